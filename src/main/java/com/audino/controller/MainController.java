@@ -1,8 +1,17 @@
 package com.audino.controller;
 
 import com.audino.model.*;
+import com.audino.service.AlertRenderer;
+import com.audino.service.AlertView;
+import com.audino.service.CatalogScreen;
+import com.audino.service.DataEvent;
+import com.audino.service.DataEventBus;
 import com.audino.service.DataService;
 import com.audino.service.InteractionEngine;
+import com.audino.service.InteractionReport;
+import com.audino.service.RuleImpactAnalyzer;
+import com.audino.service.Ruleset;
+import com.audino.util.ConfigurationManager;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -13,23 +22,34 @@ import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.skin.ComboBoxListViewSkin;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public class MainController implements Initializable {
 
+    private static final String CRITICAL_ALERTS_WARNING = "There are unacknowledged critical alerts. Please review them.";
+
     @FXML private Label currentDateLabel;
 
     @FXML private TextField patientSearchField;
@@ -75,12 +95,15 @@ public class MainController implements Initializable {
 
     private DataService dataService;
     private InteractionEngine interactionEngine;
+    private AlertView alertView;
     private Patient selectedPatient;
 
     private Prescription currentPrescription;
+    private InteractionReport currentReport = InteractionReport.empty();
+    private CatalogScreen catalogScreen;
+    private CompletableFuture<InteractionReport> pendingCheck;
     private final ObservableList<Patient> patientList = FXCollections.observableArrayList();
     private final ObservableList<Medication> medicationList = FXCollections.observableArrayList();
-    private final ObservableList<Prescription> prescriptionList = FXCollections.observableArrayList();
     private final ObservableList<InteractionAlert> alertList = FXCollections.observableArrayList();
     private final ObservableList<PrescribedDrug> prescribedDrugList = FXCollections.observableArrayList();
     
@@ -98,8 +121,116 @@ public class MainController implements Initializable {
         setupPrescriptionTable();
         setupAlertsListView();
         setupEventListeners();
+        setupDataEvents();
         updateUIState();
     }
+
+    /**
+     * Subscribes the lists, the alert view and the open prescription to data
+     * changes, so each change patches only the records it touches. Changes
+     * made elsewhere, such as in another window or by the rule file watcher,
+     * arrive the same way.
+     */
+    private void setupDataEvents() {
+        DataEventBus events = dataService.getEventBus();
+        events.subscribe(DataEvent.PatientAdded.class, event -> onFxThread(() -> {
+            if (dataService.matchesPatientSearch(event.patient(), patientSearchField.getText())) {
+                patientList.add(event.patient());
+            }
+        }));
+        events.subscribe(DataEvent.PatientUpdated.class, event -> {
+            refreshAlertView(dataService.getCurrentPrescriptions(event.patient().getPatientId()));
+            onFxThread(() -> {
+                Patient patient = event.patient();
+                boolean listed = patientList.contains(patient);
+                boolean matches = dataService.matchesPatientSearch(patient, patientSearchField.getText());
+                if (listed && !matches && patient != selectedPatient) {
+                    patientList.remove(patient);
+                } else if (!listed && matches) {
+                    patientList.add(patient);
+                } else {
+                    patientListView.refresh();
+                }
+                if (patient == selectedPatient) {
+                    updatePatientInfoPanel();
+                    checkInteractions();
+                    refreshCatalogScreen();
+                }
+            });
+        });
+        events.subscribe(DataEvent.PatientDeleted.class, event -> {
+            refreshAlertView(dataService.getCurrentPrescriptions(event.patient().getPatientId()));
+            onFxThread(() -> {
+                if (event.patient() == selectedPatient) {
+                    patientListView.getSelectionModel().clearSelection();
+                }
+                patientList.remove(event.patient());
+            });
+        });
+        events.subscribe(DataEvent.PrescriptionSaved.class, event -> {
+            List<Prescription> changed = new ArrayList<>(event.superseded());
+            changed.add(event.prescription());
+            refreshAlertView(changed);
+            onFxThread(() -> {
+                Prescription saved = event.prescription();
+                boolean editing = currentPrescription != null && currentPrescription.getStatus() == PrescriptionStatus.DRAFT;
+                // Saved elsewhere: show it unless that would discard an edit in progress here
+                if (selectedPatient != null && saved != currentPrescription && !editing
+                        && selectedPatient.getPatientId().equals(saved.getPatientId())) {
+                    handlePatientSelection(selectedPatient);
+                }
+            });
+        });
+        events.subscribe(DataEvent.PrescriptionDeleted.class, event -> {
+            refreshAlertView(List.of(event.prescription()));
+            onFxThread(() -> {
+                boolean editing = currentPrescription != null && currentPrescription.getStatus() == PrescriptionStatus.DRAFT;
+                if (event.prescription() == currentPrescription && !editing) {
+                    handlePatientSelection(selectedPatient);
+                }
+            });
+        });
+
+        RuleImpactAnalyzer impactAnalyzer = new RuleImpactAnalyzer(dataService, interactionEngine);
+        events.subscribe(DataEvent.RulesReloaded.class, event -> {
+            Ruleset ruleset = event.current();
+            Platform.runLater(() -> {
+                medicationList.setAll(ruleset.getMedications());
+                statusLabel.setText("Interaction rules updated (version " + ruleset.getVersion() + ").");
+                checkInteractions();
+                refreshCatalogScreen();
+            });
+            // Without earlier rules there are no stored alerts to compare against
+            if (event.previous() == null) return;
+            impactAnalyzer.analyze(event.previous(), ruleset)
+                .thenAccept(impact -> Platform.runLater(() -> statusLabel.setText("Interaction rules updated (version "
+                    + ruleset.getVersion() + "): " + impact.getScreenedCount() + " saved prescriptions re-screened, "
+                    + impact.getGainedCount() + " alerts gained, " + impact.getLostCount() + " lost.")))
+                // Entries stamped with the old rules are now stale
+                .thenRun(() -> {
+                    if (alertView != null) alertView.refreshAsync(dataService, interactionEngine);
+                });
+        });
+        // Watching reloads on top of loaded data, so there is nothing to watch if the load failed
+        if (dataLoadedSuccessfully) {
+            dataService.startWatchingDataFiles();
+        }
+    }
+
+    private void refreshAlertView(Collection<Prescription> prescriptions) {
+        if (alertView != null && !prescriptions.isEmpty()) {
+            alertView.refreshAsync(dataService, interactionEngine, prescriptions);
+        }
+    }
+
+    /** Runs UI work directly when already on the UI thread, so the caller sees its effect immediately. */
+    private static void onFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
+    }
     
     private void setupDate() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
@@ -112,7 +243,9 @@ public class MainController implements Initializable {
             dataService.loadAllData();
             patientList.setAll(dataService.getAllPatients());
             medicationList.setAll(dataService.getAllMedications());
-            prescriptionList.setAll(dataService.getAllPrescriptions());
+            ConfigurationManager config = ConfigurationManager.getInstance();
+            alertView = new AlertView(Paths.get(config.getAlertViewFile()), config.getObjectMapper()).load();
+            alertView.refreshAsync(dataService, interactionEngine);
             dataLoadedSuccessfully = true;
             statusLabel.setText("Data loaded successfully.");
         } catch (Exception e) {
@@ -129,7 +262,6 @@ public class MainController implements Initializable {
         if (saved) {
             newPatient.setPatientId("PAT-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
             dataService.savePatient(newPatient);
-            patientList.add(newPatient);
             patientListView.getSelectionModel().select(newPatient);
         }
     }
@@ -143,8 +275,6 @@ public class MainController implements Initializable {
         boolean saved = showPatientDialog(selectedPatient, "Edit Patient");
         if (saved) {
             dataService.updatePatient(selectedPatient);
-            patientListView.refresh();
-            updatePatientInfoPanel();
         }
     }
 
@@ -168,9 +298,6 @@ public class MainController implements Initializable {
                     String patientName = patientToDelete.getFullName();
 
                     dataService.deletePatient(patientToDelete);
-                    patientList.remove(patientToDelete);
-                    patientListView.getSelectionModel().clearSelection();
-                    
                     statusLabel.setText("Patient " + patientName + " deleted.");
                 } catch (Exception e) {
                     showErrorAlert("Deletion Error", "Could not delete the patient from the database.", e.getMessage());
@@ -195,6 +322,7 @@ public class MainController implements Initializable {
             PatientDialogController controller = loader.getController();
             controller.setDialogStage(dialogStage);
             controller.setPatient(patient);
+            controller.setTermNormalizer(dataService.getTermNormalizer());
 
             dialogStage.showAndWait();
 
@@ -223,7 +351,19 @@ public class MainController implements Initializable {
             @Override
             protected void updateItem(Medication med, boolean empty) {
                 super.updateItem(med, empty);
-                setText(empty ? null : med.getDisplayName() + " (" + med.getGenericName() + ")");
+                getStyleClass().removeAll("screen-critical", "screen-warning");
+                if (empty || med == null) {
+                    setText(null);
+                    return;
+                }
+                AlertLevel level = catalogScreen != null ? catalogScreen.getLevel(med) : null;
+                String text = med.getDisplayName() + " (" + med.getGenericName() + ")";
+                if (level == null) {
+                    setText(text);
+                } else {
+                    setText(text + "  [" + level + "]");
+                    getStyleClass().add(level == AlertLevel.CRITICAL ? "screen-critical" : "screen-warning");
+                }
             }
         };
         medicationComboBox.setCellFactory(cellFactory);
@@ -314,17 +454,20 @@ public class MainController implements Initializable {
         updatePatientInfoPanel();
         
         if (patient != null) {
-            // Automatically load existing prescription for this patient
+            // Automatically load existing prescription for this patient, including any saved on another workstation
+            dataService.refreshPrescriptionsForPatient(patient.getPatientId());
             currentPrescription = dataService.getActivePrescriberionForPatient(patient.getPatientId());
             if (currentPrescription != null) {
                 prescribedDrugList.setAll(currentPrescription.getPrescribedDrugs());
                 statusLabel.setText("Loaded prescription for " + patient.getFullName() + " (" + currentPrescription.getPrescribedDrugs().size() + " medications)");
                 prescriptionStatusLabel.setText("Prescription Status: " + currentPrescription.getStatus());
-                checkInteractions(); // Check interactions for existing medications
+                // Alert identities are only stable within one patient
+                clearAlerts();
+                showMaterializedAlerts(); // Stored alerts if still valid, otherwise a fresh check
             } else {
                 // No existing prescription - clear the view
                 prescribedDrugList.clear();
-                alertList.clear();
+                clearAlerts();
                 statusLabel.setText("Selected " + patient.getFullName() + " - No existing prescription");
                 prescriptionStatusLabel.setText("No active prescription");
             }
@@ -332,6 +475,7 @@ public class MainController implements Initializable {
             clearPrescription();
             statusLabel.setText("No patient selected");
         }
+        refreshCatalogScreen();
         updateUIState();
     }
 
@@ -356,8 +500,9 @@ public class MainController implements Initializable {
         currentPrescription = new Prescription(selectedPatient, "Dr. User");
         clearPrescriptionForm();
         prescribedDrugList.clear();
-        alertList.clear();
+        clearAlerts();
         updateAlertsSummary();
+        refreshCatalogScreen();
         updateUIState();
         statusLabel.setText("New prescription started for " + selectedPatient.getFullName());
     }
@@ -378,8 +523,9 @@ public class MainController implements Initializable {
         currentPrescription = existingPrescription;
         prescribedDrugList.setAll(currentPrescription.getPrescribedDrugs());
         clearPrescriptionForm();
-        alertList.clear();
+        clearAlerts();
         updateAlertsSummary();
+        refreshCatalogScreen();
         updateUIState();
         statusLabel.setText("Loaded existing prescription for " + selectedPatient.getFullName());
         prescriptionStatusLabel.setText("Prescription Status: " + currentPrescription.getStatus());
@@ -396,22 +542,29 @@ public class MainController implements Initializable {
             }
         }
 
-        final String selectedPatientId = (selectedPatient != null) ? selectedPatient.getPatientId() : null;
-
-        loadData();
+        // Edits to the stored prescription were made in memory, so its record is compared even if the file is unchanged
+        boolean storedPrescriptionEdited = selectedPatient != null && currentPrescription != null
+            && currentPrescription.getStatus() == PrescriptionStatus.DRAFT
+            && currentPrescription == dataService.getActivePrescriberionForPatient(selectedPatient.getPatientId());
+        DataService.ReloadResult result;
+        try {
+            // Changed records arrive as data events; unchanged files are not read
+            result = dataService.reloadChangedData(storedPrescriptionEdited);
+        } catch (RuntimeException e) {
+            showErrorAlert("Data Loading Error", "Could not reload application data.", e.getMessage());
+            return;
+        }
 
-        if (selectedPatientId != null) {
-            patientList.stream()
-                .filter(p -> selectedPatientId.equals(p.getPatientId()))
-                .findFirst()
-                .ifPresent(p -> {
-                    patientListView.getSelectionModel().select(p);
-                    patientListView.scrollTo(p);
-                    // This will trigger handlePatientSelection and reload prescription from database
-                });
+        clearPrescriptionForm();
+        if (selectedPatient != null) {
+            handlePatientSelection(selectedPatient);
+        } else {
+            clearPrescription();
         }
-        
-        statusLabel.setText("Data refreshed from database. Any unsaved changes have been discarded.");
+        statusLabel.setText(result.isEmpty()
+            ? "Data is up to date. Any unsaved changes have been discarded."
+            : "Data refreshed: " + result.inserted() + " added, " + result.updated() + " updated, "
+                + result.deleted() + " removed. Any unsaved changes have been discarded.");
     }
 
     @FXML
@@ -471,6 +624,7 @@ public class MainController implements Initializable {
         prescribedDrugList.setAll(currentPrescription.getPrescribedDrugs());
         clearPrescriptionForm();
         checkInteractions();
+        refreshCatalogScreen();
         updateUIState();
         
         // Don't save immediately - user must click Save button
@@ -484,6 +638,7 @@ public class MainController implements Initializable {
             currentPrescription.setStatus(PrescriptionStatus.DRAFT); // Mark as draft when modified
             prescribedDrugList.setAll(currentPrescription.getPrescribedDrugs());
             checkInteractions();
+            refreshCatalogScreen();
             updateUIState();
             statusLabel.setText(drug.getMedication().getDisplayName() + " removed from prescription. Click 'Save' to save changes.");
             prescriptionStatusLabel.setText("Prescription Status: DRAFT (unsaved changes)");
@@ -504,40 +659,101 @@ public class MainController implements Initializable {
     private void handleSave() {
         if (currentPrescription != null && !currentPrescription.isEmpty()) {
             // Check for critical alerts but don't block saving
-            boolean hasUnacknowledgedCritical = alertList.stream()
-                .anyMatch(a -> a.getAlertLevel() == AlertLevel.CRITICAL && !a.isAcknowledged());
-
-            if (hasUnacknowledgedCritical) {
-                showWarningAlert("Critical Alerts", "There are unacknowledged critical alerts. Please review them.");
-                // Don't return - allow saving anyway for simplified workflow
+            Prescription prescription = currentPrescription;
+            List<InteractionAlert> alerts = new ArrayList<>(alertList);
+            if (pendingCheck != null && !pendingCheck.isDone()) {
+                // The recheck has not finished yet; save its alerts once it does, on the FX thread,
+                // rather than waiting here or saving the alerts shown before the last edit
+                saveBtn.setDisable(true);
+                statusLabel.setText("Checking for critical alerts before saving...");
+                pendingCheck.whenComplete((report, ex) -> Platform.runLater(() -> {
+                    if (ex != null) {
+                        finishSave(prescription, alerts,
+                            "Could not finish checking for interactions. Please review the prescription for critical alerts.");
+                        return;
+                    }
+                    List<InteractionAlert> checked = withAcknowledgements(report.getAlerts(), alerts);
+                    finishSave(prescription, checked, InteractionReport.of(checked).hasUnacknowledged(AlertLevel.CRITICAL)
+                        ? CRITICAL_ALERTS_WARNING : null);
+                }));
+                return;
             }
-
-            currentPrescription.setStatus(PrescriptionStatus.APPROVED);
-            currentPrescription.setAlerts(alertList);
-            dataService.savePrescription(currentPrescription);
-            statusLabel.setText("Prescription saved successfully!");
-            updateUIState();
-
+            finishSave(prescription, alerts, currentReport.hasUnacknowledged(AlertLevel.CRITICAL) ? CRITICAL_ALERTS_WARNING : null);
         } else {
             showWarningAlert("Cannot Save", "There is no active or non-empty prescription to save.");
         }
     }
 
+    /** Fresh alerts, acknowledged where an alert with the same identity was acknowledged before. */
+    private static List<InteractionAlert> withAcknowledgements(List<InteractionAlert> fresh, List<InteractionAlert> previous) {
+        Set<String> acknowledgedIds = new HashSet<>();
+        previous.stream().filter(InteractionAlert::isAcknowledged).forEach(alert -> acknowledgedIds.add(alert.getAlertId()));
+        for (InteractionAlert alert : fresh) {
+            if (acknowledgedIds.contains(alert.getAlertId())) alert.acknowledge();
+        }
+        return new ArrayList<>(fresh);
+    }
+
+    /** Saves the prescription with its alerts, first showing the warning if there is one. */
+    private void finishSave(Prescription prescription, List<InteractionAlert> alerts, String warning) {
+        if (warning != null) {
+            showWarningAlert("Critical Alerts", warning);
+            // Don't return - allow saving anyway for simplified workflow
+        }
+
+        prescription.setStatus(PrescriptionStatus.APPROVED);
+        prescription.setAlerts(alerts);
+        dataService.savePrescription(prescription);
+        statusLabel.setText("Prescription saved successfully!");
+        updateUIState();
+    }
+
+    /**
+     * Shows the alerts stored for the current prescription when they are
+     * still valid for the current rules and catalog, and only runs a check
+     * when they are not.
+     */
+    private void showMaterializedAlerts() {
+        Ruleset ruleset = dataService.getRuleset();
+        List<AlertMatch> matches = alertView != null ? alertView.lookup(selectedPatient, currentPrescription, ruleset) : null;
+        if (matches == null) {
+            checkInteractions();
+            return;
+        }
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        List<InteractionAlert> alerts = new ArrayList<>();
+        matches.forEach(match -> alerts.add(new InteractionAlert(match, renderer)));
+        applyAlertDelta(alerts);
+        currentReport = new InteractionReport(alertList, Map.of());
+        updateAlertsSummary();
+        interactionStatusLabel.setText("Interactions up to date.");
+    }
+
     private void checkInteractions() {
         if (selectedPatient == null || currentPrescription == null || currentPrescription.isEmpty()) {
-            alertList.clear();
+            clearAlerts();
             updateAlertsSummary();
             interactionStatusLabel.setText("Interactions: N/A");
             return;
         }
 
         interactionStatusLabel.setText("Checking interactions...");
-        CompletableFuture<List<InteractionAlert>> future = interactionEngine.checkAllInteractionsAsync(selectedPatient, currentPrescription, dataService.getInteractionRules(), medicationList);
-
-        future.thenAccept(alerts -> Platform.runLater(() -> {
-                alertList.setAll(alerts);
+        CompletableFuture<InteractionReport> future = interactionEngine.checkInteractionsAsync(selectedPatient, currentPrescription, dataService.getRuleset());
+        pendingCheck = future;
+
+        final Patient checkedPatient = selectedPatient;
+        final Prescription checkedPrescription = currentPrescription;
+        final Ruleset checkedRuleset = dataService.getRuleset();
+        future.thenAccept(report -> rememberAlerts(checkedPatient, checkedPrescription, checkedRuleset, report));
+        future.thenAccept(report -> Platform.runLater(() -> {
+                if (checkedPatient != selectedPatient) return;
+                applyAlertDelta(report.getAlerts());
+                // Rebucket the instances actually shown so acknowledgements are reflected in the report
+                currentReport = new InteractionReport(alertList, report.getStrategyTimings());
                 updateAlertsSummary();
-                interactionStatusLabel.setText("Interactions checked.");
+                long slowestMillis = report.getStrategyTimings().values().stream()
+                    .mapToLong(Duration::toMillis).max().orElse(0);
+                interactionStatusLabel.setText("Interactions checked (" + slowestMillis + " ms).");
             }))
             .exceptionally(ex -> {
                 Platform.runLater(() -> {
@@ -548,6 +764,67 @@ public class MainController implements Initializable {
             });
     }
 
+    private void rememberAlerts(Patient patient, Prescription prescription, Ruleset ruleset, InteractionReport report) {
+        if (alertView == null || !report.getIncompleteChecks().isEmpty()) return;
+        List<AlertMatch> matches = new ArrayList<>();
+        report.getAlerts().forEach(alert -> matches.add(alert.getMatch()));
+        alertView.put(patient, prescription, ruleset, matches);
+    }
+
+    /**
+     * Applies only the added, removed and changed alerts to the observable
+     * list. Alerts whose identity, level and text are unchanged keep their
+     * instance, so the ListView does not redraw them; one whose level or text
+     * changed, such as after a rule reload, is replaced and keeps its
+     * acknowledgement.
+     */
+    private void applyAlertDelta(List<InteractionAlert> freshAlerts) {
+        Map<String, InteractionAlert> fresh = new LinkedHashMap<>();
+        for (InteractionAlert alert : freshAlerts) {
+            fresh.putIfAbsent(alert.getAlertId(), alert);
+        }
+
+        alertList.removeIf(existing -> !fresh.containsKey(existing.getAlertId()));
+        for (int i = 0; i < alertList.size(); i++) {
+            InteractionAlert existing = alertList.get(i);
+            InteractionAlert replacement = fresh.get(existing.getAlertId());
+            if (!isSameAlert(existing, replacement)) {
+                replacement.setAcknowledged(existing.isAcknowledged());
+                replacement.setCreatedAt(existing.getCreatedAt());
+                alertList.set(i, replacement);
+            }
+        }
+
+        Set<String> retained = new HashSet<>();
+        alertList.forEach(existing -> retained.add(existing.getAlertId()));
+
+        Set<String> acknowledgedIds = new HashSet<>();
+        if (currentPrescription != null) {
+            currentPrescription.getAlerts().stream()
+                .filter(InteractionAlert::isAcknowledged)
+                .forEach(saved -> acknowledgedIds.add(saved.getAlertId()));
+        }
+
+        int index = 0;
+        for (InteractionAlert alert : fresh.values()) {
+            if (!retained.contains(alert.getAlertId())) {
+                if (acknowledgedIds.contains(alert.getAlertId())) {
+                    alert.acknowledge();
+                }
+                alertList.add(Math.min(index, alertList.size()), alert);
+            }
+            index++;
+        }
+    }
+
+    private static boolean isSameAlert(InteractionAlert shown, InteractionAlert fresh) {
+        return shown == fresh || (Objects.equals(shown.getMatch(), fresh.getMatch())
+            && shown.getAlertLevel() == fresh.getAlertLevel()
+            && Objects.equals(shown.getTitle(), fresh.getTitle())
+            && Objects.equals(shown.getMessage(), fresh.getMessage())
+            && Objects.equals(shown.getRecommendation(), fresh.getRecommendation()));
+    }
+
     private void updateUIState() {
         boolean patientSelected = selectedPatient != null;
         newPrescriptionBtn.setDisable(!patientSelected);
@@ -606,25 +883,44 @@ public class MainController implements Initializable {
 
         prescribedDrugList.setAll(prescription.getPrescribedDrugs());
         alertList.setAll(prescription.getAlerts());
+        currentReport = InteractionReport.of(alertList);
         updateAlertsSummary();
         statusLabel.setText("Loaded latest prescription for " + selectedPatient.getFullName());
         prescriptionStatusLabel.setText("Prescription Status: " + currentPrescription.getStatus());
     }
 
+    /**
+     * Re-screens the catalog for the selected patient and regimen and redraws
+     * the medication picker with the result.
+     */
+    private void refreshCatalogScreen() {
+        if (selectedPatient == null || !dataLoadedSuccessfully) {
+            catalogScreen = null;
+        } else {
+            // The previous screen is diffed per drug class, so only medications whose level can change are revisited
+            catalogScreen = interactionEngine.screenCatalog(selectedPatient, currentPrescription, dataService.getRuleset(), catalogScreen);
+        }
+        if (medicationComboBox.getSkin() instanceof ComboBoxListViewSkin<?> skin
+                && skin.getPopupContent() instanceof ListView<?> popupList) {
+            popupList.refresh();
+        }
+    }
+
+    private void clearAlerts() {
+        alertList.clear();
+        currentReport = InteractionReport.empty();
+    }
+
     private void updateAlertsSummary() {
-        long criticalCount = alertList.stream().filter(a -> a.getAlertLevel() == AlertLevel.CRITICAL).count();
-        long warningCount = alertList.stream().filter(a -> a.getAlertLevel() == AlertLevel.WARNING).count();
-        long infoCount = alertList.stream().filter(a -> a.getAlertLevel() == AlertLevel.INFO).count();
-        
-        criticalAlertsLabel.setText(String.valueOf(criticalCount));
-        warningAlertsLabel.setText(String.valueOf(warningCount));
-        infoAlertsLabel.setText(String.valueOf(infoCount));
+        criticalAlertsLabel.setText(String.valueOf(currentReport.getCount(AlertLevel.CRITICAL)));
+        warningAlertsLabel.setText(String.valueOf(currentReport.getCount(AlertLevel.WARNING)));
+        infoAlertsLabel.setText(String.valueOf(currentReport.getCount(AlertLevel.INFO)));
     }
 
     private void clearPrescription() {
         currentPrescription = null;
         prescribedDrugList.clear();
-        alertList.clear();
+        clearAlerts();
         updateAlertsSummary();
         clearPrescriptionForm();
     }
@@ -639,13 +935,22 @@ public class MainController implements Initializable {
 
     public void shutdown() {
         // Save all data before shutting down - only if data was loaded successfully
-        if (dataService != null && dataLoadedSuccessfully && !patientList.isEmpty()) {
+        if (dataService != null && dataLoadedSuccessfully && !dataService.getAllPatients().isEmpty()) {
             System.out.println("Saving data on shutdown...");
-            dataService.saveAllData(new ArrayList<>(patientList), new ArrayList<>(prescriptionList));
+            // The service holds every record; the patient list may be filtered by a search.
+            // A shared store is skipped, as each change was written through already
+            dataService.saveAllData();
         } else {
             System.out.println("Skipping save - data was not loaded successfully or is empty.");
         }
         
+        if (dataService != null) {
+            dataService.logRuleStatistics();
+            dataService.close();
+        }
+        if (alertView != null) {
+            alertView.save();
+        }
         if (interactionEngine != null) {
             interactionEngine.shutdown();
         }
@@ -1,6 +1,7 @@
 package com.audino.controller;
 
 import com.audino.model.Patient;
+import com.audino.service.TermNormalizer;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ComboBox;
@@ -25,6 +26,7 @@ public class PatientDialogController {
 
     private Stage dialogStage;
     private Patient patient;
+    private TermNormalizer termNormalizer;
     private boolean saved = false;
 
     public void setDialogStage(Stage dialogStage) {
@@ -44,6 +46,10 @@ public class PatientDialogController {
         }
     }
 
+    public void setTermNormalizer(TermNormalizer termNormalizer) {
+        this.termNormalizer = termNormalizer;
+    }
+
     public boolean isSaved() {
         return saved;
     }
@@ -65,6 +71,10 @@ public class PatientDialogController {
                 .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList());
             patient.setChronicConditions(conditions);
 
+            if (termNormalizer != null) {
+                reportUnmappedTerms(termNormalizer.normalize(patient));
+            }
+
             saved = true;
             dialogStage.close();
         }
@@ -75,6 +85,21 @@ public class PatientDialogController {
         dialogStage.close();
     }
 
+    private void reportUnmappedTerms(TermNormalizer.Result result) {
+        if (!result.hasUnmappedTerms()) return;
+
+        StringBuilder content = new StringBuilder("The following entries do not match any known interaction rule and will not be screened:\n");
+        result.getUnmappedAllergies().forEach(term -> content.append("\nAllergy: ").append(term));
+        result.getUnmappedConditions().forEach(term -> content.append("\nCondition: ").append(term));
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.initOwner(dialogStage);
+        alert.setTitle("Unrecognized Terms");
+        alert.setHeaderText("Some allergies or conditions were not recognized");
+        alert.setContentText(content.toString());
+        alert.showAndWait();
+    }
+
     private boolean isInputValid() {
         String errorMessage = "";
         if (firstNameField.getText() == null || firstNameField.getText().isEmpty()) {
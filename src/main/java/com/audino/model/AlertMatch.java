@@ -0,0 +1,50 @@
+package com.audino.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact result of a rule firing: which rule, which medications and which
+ * patient factor were involved. Display text is rendered from it on demand.
+ */
+public record AlertMatch(String ruleId, AlertType alertType, AlertLevel alertLevel,
+                         List<String> medicationIds, String patientFactor) {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public AlertMatch {
+        medicationIds = medicationIds != null ? List.copyOf(medicationIds) : List.of();
+    }
+
+    /**
+     * Deterministic identifier derived from the rule and its participants, so
+     * the same interaction keeps the same id across rechecks.
+     */
+    public String alertId() {
+        List<String> participants = new ArrayList<>(medicationIds);
+        Collections.sort(participants);
+
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, alertType != null ? alertType.name() : "");
+        hash = mix(hash, ruleId);
+        for (String medicationId : participants) {
+            hash = mix(hash, medicationId);
+        }
+        hash = mix(hash, patientFactor);
+        return String.format("ALERT-%016X", hash);
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // Field separator so ("ab", "c") and ("a", "bc") hash differently
+        hash ^= 0x1F;
+        return hash * FNV_PRIME;
+    }
+}
@@ -7,7 +7,9 @@ public enum AlertType {
     DRUG_ALLERGY("Drug-Allergy Interaction", "Medication contains ingredients the patient is allergic to."),
     DRUG_DRUG("Drug-Drug Interaction", "Medications may interact with each other."),
     DRUG_CONDITION("Drug-Condition Contraindication", "Medication may be harmful given the patient's medical conditions."),
-    DUPLICATE_THERAPY("Duplicate Therapy", "Patient is receiving multiple medications with similar effects.");
+    DUPLICATE_THERAPY("Duplicate Therapy", "Patient is receiving multiple medications with similar effects."),
+    CUMULATIVE_BURDEN("Cumulative Burden", "Medications add up to a harmful combined effect."),
+    DOSE_LIMIT("Dose Limit", "Prescribed daily dose exceeds the recommended maximum.");
 
     private final String displayName;
     private final String description;
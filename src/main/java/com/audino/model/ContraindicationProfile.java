@@ -0,0 +1,90 @@
+package com.audino.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The medication classes a patient's allergies and conditions rule out,
+ * as a bitset over the ruleset's class index, with the rules behind each
+ * class. Built once per patient and ruleset version, so checking a drug
+ * is a single bitset intersection.
+ */
+public class ContraindicationProfile {
+
+    public record Contraindication(String ruleId, AlertType alertType, AlertLevel alertLevel, String patientFactor) {}
+
+    private final long rulesetVersion;
+    private final BitSet classes;
+    private final Map<Integer, List<Contraindication>> contraindicationsByClass;
+
+    public ContraindicationProfile(long rulesetVersion, Map<Integer, List<Contraindication>> contraindicationsByClass) {
+        this.rulesetVersion = rulesetVersion;
+        this.classes = new BitSet();
+        this.contraindicationsByClass = new HashMap<>();
+        contraindicationsByClass.forEach((bit, contraindications) -> {
+            classes.set(bit);
+            this.contraindicationsByClass.put(bit, List.copyOf(contraindications));
+        });
+    }
+
+    public long getRulesetVersion() { return rulesetVersion; }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    /** Whether a medication with the given class bits is ruled out for this patient. */
+    public boolean isContraindicated(BitSet medicationClasses) {
+        return classes.intersects(medicationClasses);
+    }
+
+    /**
+     * The distinct contraindications that apply to a medication with the given
+     * class bits, in rule order.
+     */
+    public List<Contraindication> getContraindications(BitSet medicationClasses) {
+        if (!classes.intersects(medicationClasses)) {
+            return List.of();
+        }
+        Set<Contraindication> found = new LinkedHashSet<>();
+        for (int bit = medicationClasses.nextSetBit(0); bit >= 0; bit = medicationClasses.nextSetBit(bit + 1)) {
+            List<Contraindication> contraindications = contraindicationsByClass.get(bit);
+            if (contraindications != null) {
+                found.addAll(contraindications);
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /** The contraindicated classes; a copy. */
+    public BitSet getClasses() {
+        return (BitSet) classes.clone();
+    }
+
+    /** The most severe level a single class is contraindicated at, or null if it is not. */
+    public AlertLevel getWorstLevel(int classBit) {
+        AlertLevel worst = null;
+        for (Contraindication contraindication : contraindicationsByClass.getOrDefault(classBit, List.of())) {
+            if (worst == null || contraindication.alertLevel().ordinal() < worst.ordinal()) {
+                worst = contraindication.alertLevel();
+            }
+        }
+        return worst;
+    }
+
+    /** The most severe level among the contraindications for the given class bits, or null if there are none. */
+    public AlertLevel getWorstLevel(BitSet medicationClasses) {
+        AlertLevel worst = null;
+        for (Contraindication contraindication : getContraindications(medicationClasses)) {
+            if (worst == null || contraindication.alertLevel().ordinal() < worst.ordinal()) {
+                worst = contraindication.alertLevel();
+            }
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,162 @@
+package com.audino.model;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured form of a prescribed dose: the amount given per administration
+ * and how many administrations a day the frequency allows. Parsed from the
+ * free-text dosage and frequency with patterns compiled once per class.
+ *
+ * @param dosesPerDay administrations per day, counting every unit of a
+ *                    multi-unit dose such as "2 puffs twice daily"; 0 if the
+ *                    frequency could not be read
+ */
+public record Dosage(Amount amount, double dosesPerDay) {
+
+    private static final String NUMBER = "(\\d+(?:\\.\\d+)?)";
+    private static final Pattern AMOUNT = Pattern.compile(
+        "^\\s*" + NUMBER + "\\s*(mg|mcg|µg|ug|g|ml|units?|iu|tablets?|tabs?|capsules?|caps?|puffs?|sprays?)?\\s*$",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern STRENGTH = Pattern.compile(
+        "^\\s*" + NUMBER + "\\s*(mg|mcg|µg|ug|g|units?|iu)\\s*(?:/\\s*" + NUMBER + "?\\s*(ml|actuation|spray|puff|tablet))?\\s*$",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern UNITS_PER_DOSE = Pattern.compile(
+        "^\\s*(\\d+)\\s*(?:puffs?|tablets?|tabs?|capsules?|caps?|sprays?|drops?)\\b", Pattern.CASE_INSENSITIVE);
+    private static final String COUNT = "(\\d+|once|twice|two|three|four)";
+    private static final Pattern EVERY_HOURS = Pattern.compile(
+        "\\b(?:every|q)\\s*" + NUMBER + "(?:\\s*(?:-|to)\\s*" + NUMBER + ")?\\s*(?:hours?|hrs?|h)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TIMES_A_DAY = Pattern.compile(
+        "\\b" + COUNT + "(?:\\s*(?:-|to|or)\\s*" + COUNT + ")?\\s*(?:times?\\s*)?(?:a\\s+|per\\s+)?(?:daily|day)\\b",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern ABBREVIATION = Pattern.compile(
+        "\\b(qd|od|bid|tid|qid|qhs|daily|nightly|weekly)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BEDTIME = Pattern.compile("\\bat bedtime\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, Double> WORD_COUNTS = Map.of("once", 1.0, "twice", 2.0, "two", 2.0, "three", 3.0, "four", 4.0);
+    private static final Map<String, Double> ABBREVIATIONS = Map.of(
+        "qd", 1.0, "od", 1.0, "daily", 1.0, "qhs", 1.0, "nightly", 1.0, "bid", 2.0, "tid", 3.0, "qid", 4.0, "weekly", 1.0 / 7);
+
+    /** A quantity with its unit normalized to mg, mcg, g, ml, units or each (tablets, puffs and other counts). */
+    public record Amount(double value, String unit) {
+
+        /** The amount in another unit, converting between mass units; null if the units are not comparable. */
+        public Amount convertTo(String target) {
+            if (unit.equals(target)) return this;
+            Double from = milligrams(unit);
+            Double to = milligrams(target);
+            return from != null && to != null ? new Amount(value * from / to, target) : null;
+        }
+
+        private static Double milligrams(String unit) {
+            return switch (unit) {
+                case "g" -> 1000.0;
+                case "mg" -> 1.0;
+                case "mcg" -> 0.001;
+                default -> null;
+            };
+        }
+
+        @Override
+        public String toString() {
+            String number = value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.2f", value);
+            return "each".equals(unit) ? number : number + ("units".equals(unit) ? " " : "") + unit;
+        }
+    }
+
+    /**
+     * Active amount contained in a quantity of product, such as 500mg per
+     * tablet or 40mg per 0.8ml.
+     *
+     * @param perUnit ml, or each for tablets, puffs and sprays
+     */
+    public record Strength(Amount amount, double per, String perUnit) {
+
+        /** Active amount in a dose of the product, or null if the dose is not measured in this product's units. */
+        public Amount of(Amount dose) {
+            if (!dose.unit().equals(perUnit) || per <= 0) return null;
+            return new Amount(amount.value() * dose.value() / per, amount.unit());
+        }
+    }
+
+    /** Parses a dosage and its frequency, or returns null if the dosage is not a recognizable amount. */
+    public static Dosage parse(String dosage, String frequency) {
+        Amount amount = parseAmount(dosage);
+        return amount != null ? new Dosage(amount, parseDosesPerDay(frequency)) : null;
+    }
+
+    /** Parses an amount such as "5ml", "20 units" or "1", or returns null. */
+    public static Amount parseAmount(String text) {
+        if (text == null) return null;
+        Matcher matcher = AMOUNT.matcher(text);
+        if (!matcher.matches()) return null;
+        return new Amount(Double.parseDouble(matcher.group(1)), unit(matcher.group(2)));
+    }
+
+    /** Parses a product strength such as "500mg", "100 units/mL" or "90mcg/actuation", or returns null. */
+    public static Strength parseStrength(String text) {
+        if (text == null) return null;
+        Matcher matcher = STRENGTH.matcher(text);
+        if (!matcher.matches()) return null;
+        Amount amount = new Amount(Double.parseDouble(matcher.group(1)), unit(matcher.group(2)));
+        double per = matcher.group(3) != null ? Double.parseDouble(matcher.group(3)) : 1;
+        String perUnit = matcher.group(4) != null && matcher.group(4).equalsIgnoreCase("ml") ? "ml" : "each";
+        return new Strength(amount, per, perUnit);
+    }
+
+    /**
+     * Administrations per day a frequency allows, taking "as needed" at its
+     * maximum and a range such as "every 4-6 hours" or "2-3 times daily" at
+     * its most frequent end; 0 if it cannot be read.
+     */
+    public static double parseDosesPerDay(String frequency) {
+        if (frequency == null) return 0;
+        double unitsPerDose = 1;
+        Matcher units = UNITS_PER_DOSE.matcher(frequency);
+        if (units.find()) {
+            unitsPerDose = Double.parseDouble(units.group(1));
+        }
+
+        Matcher hours = EVERY_HOURS.matcher(frequency);
+        if (hours.find()) {
+            double interval = Double.parseDouble(hours.group(1));
+            if (hours.group(2) != null) {
+                interval = Math.min(interval, Double.parseDouble(hours.group(2)));
+            }
+            return interval > 0 ? unitsPerDose * Math.floor(24 / interval) : 0;
+        }
+        Matcher times = TIMES_A_DAY.matcher(frequency);
+        if (times.find()) {
+            double count = count(times.group(1));
+            return unitsPerDose * (times.group(2) != null ? Math.max(count, count(times.group(2))) : count);
+        }
+        Matcher abbreviation = ABBREVIATION.matcher(frequency);
+        if (abbreviation.find()) {
+            return unitsPerDose * ABBREVIATIONS.get(abbreviation.group(1).toLowerCase(Locale.ROOT));
+        }
+        return BEDTIME.matcher(frequency).find() ? unitsPerDose : 0;
+    }
+
+    private static double count(String text) {
+        String count = text.toLowerCase(Locale.ROOT);
+        return WORD_COUNTS.getOrDefault(count, count.chars().allMatch(Character::isDigit) ? Double.parseDouble(count) : 0);
+    }
+
+    private static String unit(String raw) {
+        if (raw == null) return "each";
+        String unit = raw.toLowerCase(Locale.ROOT);
+        return switch (unit) {
+            case "mg", "g", "ml" -> unit;
+            case "mcg", "µg", "ug" -> "mcg";
+            case "unit", "units", "iu" -> "units";
+            default -> "each";
+        };
+    }
+
+    /** Total active amount per day, or null if the frequency is unknown. */
+    public Amount dailyAmount() {
+        return dosesPerDay > 0 ? new Amount(amount.value() * dosesPerDay, amount.unit()) : null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.audino.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A patient's medication exposure windows across every version of their
+ * prescriptions, held as an interval tree. A drug's window runs from when
+ * it was added, the prescription's creation unless added later, until its
+ * course ends or the prescription is superseded, whichever is first,
+ * extended by the medication's washout period. Windows are sorted by start and laid out as an implicit balanced
+ * tree in which each node records the latest end in its subtree, so finding
+ * the windows overlapping a time range takes O(log n + k).
+ */
+public class ExposureHistory {
+
+    public record Exposure(String medicationId, String prescriptionId, LocalDateTime start, LocalDateTime end) {
+
+        /** Whether the window is still open at the given time. */
+        public boolean activeAt(LocalDateTime time) {
+            return (start == null || !start.isAfter(time)) && (end == null || end.isAfter(time));
+        }
+    }
+
+    private static final ExposureHistory EMPTY = new ExposureHistory(List.of());
+    private static final Pattern DURATION = Pattern.compile(
+        "^\\s*(\\d+)\\s*(d|days?|w|weeks?|m|months?)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private final Exposure[] exposures;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    private ExposureHistory(List<Exposure> windows) {
+        exposures = windows.stream()
+            .sorted(Comparator.comparingLong(exposure -> seconds(exposure.start(), Long.MIN_VALUE)))
+            .toArray(Exposure[]::new);
+        starts = new long[exposures.length];
+        ends = new long[exposures.length];
+        maxEnds = new long[exposures.length];
+        for (int i = 0; i < exposures.length; i++) {
+            starts[i] = seconds(exposures[i].start(), Long.MIN_VALUE);
+            ends[i] = seconds(exposures[i].end(), Long.MAX_VALUE);
+        }
+        computeMaxEnds(0, exposures.length);
+    }
+
+    public static ExposureHistory empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds the history of one patient's prescriptions.
+     *
+     * @param washoutDays days a medication stays active after it is stopped
+     */
+    public static ExposureHistory build(List<Prescription> prescriptions, ToIntFunction<String> washoutDays) {
+        List<Exposure> windows = new ArrayList<>();
+        for (Prescription prescription : prescriptions) {
+            if (prescription.getStatus() == PrescriptionStatus.CANCELLED) continue;
+            for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+                LocalDateTime start = drug.getStartedAt() != null ? drug.getStartedAt() : prescription.getCreatedAt();
+                LocalDateTime stop = prescription.getSupersededAt();
+                int courseDays = parseDurationDays(drug.getDuration());
+                if (courseDays >= 0 && start != null) {
+                    LocalDateTime courseEnd = start.plusDays(courseDays);
+                    if (stop == null || courseEnd.isBefore(stop)) stop = courseEnd;
+                }
+                LocalDateTime end = stop != null ? stop.plusDays(washoutDays.applyAsInt(drug.getMedicationId())) : null;
+                windows.add(new Exposure(drug.getMedicationId(), prescription.getPrescriptionId(), start, end));
+            }
+        }
+        return windows.isEmpty() ? EMPTY : new ExposureHistory(windows);
+    }
+
+    /** Length of a course such as "7 days", "2 weeks" or "30d" in days, or -1 if open-ended or unreadable. */
+    public static int parseDurationDays(String duration) {
+        if (duration == null) return -1;
+        Matcher matcher = DURATION.matcher(duration);
+        if (!matcher.matches()) return -1;
+        int count = Integer.parseInt(matcher.group(1));
+        return switch (matcher.group(2).toLowerCase(Locale.ROOT).charAt(0)) {
+            case 'w' -> count * 7;
+            case 'm' -> count * 30;
+            default -> count;
+        };
+    }
+
+    /** Exposures whose windows overlap {@code [from, to]}, in order of start. */
+    public List<Exposure> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<Exposure> result = new ArrayList<>();
+        collect(0, exposures.length, seconds(from, Long.MIN_VALUE), seconds(to, Long.MAX_VALUE), result);
+        return result;
+    }
+
+    /** Exposures open at a point in time. */
+    public List<Exposure> activeAt(LocalDateTime time) {
+        return overlapping(time, time);
+    }
+
+    public int size() {
+        return exposures.length;
+    }
+
+    private long computeMaxEnds(int low, int high) {
+        if (low >= high) return Long.MIN_VALUE;
+        int mid = (low + high) >>> 1;
+        long max = Math.max(ends[mid], Math.max(computeMaxEnds(low, mid), computeMaxEnds(mid + 1, high)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private void collect(int low, int high, long from, long to, List<Exposure> result) {
+        if (low >= high) return;
+        int mid = (low + high) >>> 1;
+        // Nothing under this node ends after the range starts
+        if (maxEnds[mid] <= from) return;
+        collect(low, mid, from, to, result);
+        // Everything to the right starts later than this node
+        if (starts[mid] > to) return;
+        if (ends[mid] > from) result.add(exposures[mid]);
+        collect(mid + 1, high, from, to, result);
+    }
+
+    private static long seconds(LocalDateTime time, long unbounded) {
+        return time != null ? time.toEpochSecond(ZoneOffset.UTC) : unbounded;
+    }
+}
@@ -1,9 +1,13 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.regex.Pattern;
 
 public class InjectionMedication extends Medication {
-    
+
+    private static final Pattern DOSAGE = Pattern.compile("\\d+(\\.\\d+)?\\s*(ml|units)");
+
     @JsonProperty("concentration")
     private String concentration;
     
@@ -24,7 +28,13 @@ public class InjectionMedication extends Medication {
     public boolean isValidDosage(String dosage) {
         if (dosage == null || dosage.trim().isEmpty()) return false;
         // Simple validation for formats like "1ml", "10 units", etc.
-        return dosage.toLowerCase().matches("\\d+(\\.\\d+)?\\s*(ml|units)");
+        return DOSAGE.matcher(dosage.toLowerCase()).matches();
+    }
+
+    @Override
+    @JsonIgnore
+    public Dosage.Strength getUnitStrength() {
+        return Dosage.parseStrength(concentration);
     }
     
     public String getConcentration() { return concentration; }
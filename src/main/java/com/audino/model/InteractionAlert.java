@@ -1,11 +1,23 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.UUID;
 
 public class InteractionAlert {
 
+    /**
+     * Produces display text for a match. Implemented in the service layer so
+     * alerts only pay for formatting when they are actually shown or saved.
+     */
+    public interface Renderer {
+        String renderTitle(AlertMatch match);
+        String renderMessage(AlertMatch match);
+        String renderRecommendation(AlertMatch match);
+        String renderInvolvedMedications(AlertMatch match);
+    }
+
     private String alertId;
     private AlertLevel alertLevel;
     private AlertType alertType;
@@ -17,6 +29,9 @@ public class InteractionAlert {
     private LocalDateTime createdAt;
     private boolean acknowledged;
 
+    private AlertMatch match;
+    private Renderer renderer;
+
     public InteractionAlert() {
         // Default constructor for BSON mapping
     }
@@ -35,6 +50,26 @@ public class InteractionAlert {
         this.acknowledged = false;
     }
 
+    public InteractionAlert(AlertMatch match, Renderer renderer) {
+        this.alertId = match.alertId();
+        this.alertLevel = match.alertLevel();
+        this.alertType = match.alertType();
+        this.patientFactor = match.patientFactor();
+        this.match = match;
+        this.renderer = renderer;
+        this.createdAt = LocalDateTime.now();
+        this.acknowledged = false;
+    }
+
+    private synchronized void materialize() {
+        if (renderer == null) return;
+        title = renderer.renderTitle(match);
+        message = renderer.renderMessage(match);
+        recommendation = renderer.renderRecommendation(match);
+        involvedMedications = renderer.renderInvolvedMedications(match);
+        renderer = null;
+    }
+
     public String getCssClass() {
         return switch (alertLevel) {
             case CRITICAL -> "alert-critical";
@@ -47,8 +82,9 @@ public class InteractionAlert {
         StringBuilder formatted = new StringBuilder();
         formatted.append("Alert Type: ").append(alertType.getDisplayName());
         formatted.append("\nLevel: ").append(alertLevel.getDisplayName());
-        formatted.append("\n\nDetails:\n").append(message);
+        formatted.append("\n\nDetails:\n").append(getMessage());
 
+        String recommendation = getRecommendation();
         if (recommendation != null && !recommendation.trim().isEmpty()) {
             formatted.append("\n\nRecommendation:\n").append(recommendation);
         }
@@ -66,20 +102,22 @@ public class InteractionAlert {
     public void setAlertLevel(AlertLevel alertLevel) { this.alertLevel = alertLevel; }
     public AlertType getAlertType() { return alertType; }
     public void setAlertType(AlertType alertType) { this.alertType = alertType; }
-    public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
-    public String getMessage() { return message; }
-    public void setMessage(String message) { this.message = message; }
-    public String getRecommendation() { return recommendation; }
-    public void setRecommendation(String recommendation) { this.recommendation = recommendation; }
-    public String getInvolvedMedications() { return involvedMedications; }
-    public void setInvolvedMedications(String involvedMedications) { this.involvedMedications = involvedMedications; }
+    public String getTitle() { materialize(); return title; }
+    public void setTitle(String title) { materialize(); this.title = title; }
+    public String getMessage() { materialize(); return message; }
+    public void setMessage(String message) { materialize(); this.message = message; }
+    public String getRecommendation() { materialize(); return recommendation; }
+    public void setRecommendation(String recommendation) { materialize(); this.recommendation = recommendation; }
+    public String getInvolvedMedications() { materialize(); return involvedMedications; }
+    public void setInvolvedMedications(String involvedMedications) { materialize(); this.involvedMedications = involvedMedications; }
     public String getPatientFactor() { return patientFactor; }
     public void setPatientFactor(String patientFactor) { this.patientFactor = patientFactor; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public boolean isAcknowledged() { return acknowledged; }
     public void setAcknowledged(boolean acknowledged) { this.acknowledged = acknowledged; }
+    @JsonIgnore
+    public AlertMatch getMatch() { return match; }
 
 
     @Override
@@ -1,9 +1,13 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.regex.Pattern;
 
 public class LiquidMedication extends Medication {
 
+    private static final Pattern DOSAGE = Pattern.compile("\\d+(\\.\\d+)?\\s*(ml|mg)");
+
     @JsonProperty("concentration")
     private String concentration;
 
@@ -21,7 +25,13 @@ public class LiquidMedication extends Medication {
     public boolean isValidDosage(String dosage) {
         if (dosage == null || dosage.trim().isEmpty()) return false;
         // Simple validation for formats like "5ml", "10 mg", etc.
-        return dosage.toLowerCase().matches("\\d+(\\.\\d+)?\\s*(ml|mg)");
+        return DOSAGE.matcher(dosage.toLowerCase()).matches();
+    }
+
+    @Override
+    @JsonIgnore
+    public Dosage.Strength getUnitStrength() {
+        return Dosage.parseStrength(concentration);
     }
 
     public String getConcentration() { return concentration; }
@@ -1,5 +1,6 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -34,6 +35,12 @@ public abstract class Medication {
     @JsonProperty("medicationType")
     protected MedicationType medicationType;
 
+    @JsonProperty("maxDailyDose")
+    protected String maxDailyDose;
+
+    @JsonProperty("washoutDays")
+    protected Integer washoutDays;
+
     public Medication() {
         this.activeIngredients = new ArrayList<>();
         this.interactionIdentifiers = new ArrayList<>();
@@ -51,6 +58,12 @@ public abstract class Medication {
     
     public abstract boolean isValidDosage(String dosage);
 
+    /** Active amount per tablet, actuation or volume of this product, or null if its strength cannot be read. */
+    @JsonIgnore
+    public Dosage.Strength getUnitStrength() {
+        return null;
+    }
+
     public String getDisplayName() {
         return (brandName != null && !brandName.trim().isEmpty()) ? brandName : genericName;
     }
@@ -68,6 +81,10 @@ public abstract class Medication {
     public void setInteractionIdentifiers(List<String> identifiers) { this.interactionIdentifiers = new ArrayList<>(identifiers); }
     public MedicationType getMedicationType() { return medicationType; }
     public void setMedicationType(MedicationType type) { this.medicationType = type; }
+    public String getMaxDailyDose() { return maxDailyDose; }
+    public void setMaxDailyDose(String maxDailyDose) { this.maxDailyDose = maxDailyDose; }
+    public Integer getWashoutDays() { return washoutDays; }
+    public void setWashoutDays(Integer washoutDays) { this.washoutDays = washoutDays; }
 
     @Override
     public boolean equals(Object o) {
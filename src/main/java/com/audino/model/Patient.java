@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class Patient {
@@ -15,8 +17,22 @@ public class Patient {
     private LocalDate dateOfBirth;
     private String gender;
     private String contactNumber;
-    private List<String> allergies;
-    private List<String> chronicConditions;
+    // Replaced rather than modified, so a reader copying them never sees a list change underneath it
+    private volatile List<String> allergies;
+    private volatile List<String> chronicConditions;
+    // Term edits and normalization synchronize on the patient; readers get the codes and profile
+    // published together by the last normalization
+    private volatile Normalization normalization = new Normalization(null, null, null);
+    // Exposure windows from the patient's prescription history, rebuilt whenever a prescription is saved.
+    private volatile ExposureHistory exposureHistory = ExposureHistory.empty();
+
+    /**
+     * Raw term -> rule vocabulary codes, null until the patient has been
+     * normalized, and the profile derived from them and the rules, null
+     * until built and whenever the terms change.
+     */
+    private record Normalization(Map<String, List<String>> allergyCodes, Map<String, List<String>> conditionCodes,
+                                 ContraindicationProfile profile) {}
 
     public Patient() {
         this.allergies = new ArrayList<>();
@@ -54,19 +70,70 @@ public class Patient {
         return Period.between(dateOfBirth, LocalDate.now()).getYears();
     }
     public List<String> getAllergies() { return new ArrayList<>(allergies); }
-    public void setAllergies(List<String> allergies) { this.allergies = new ArrayList<>(allergies != null ? allergies : new ArrayList<>()); }
-    public void addAllergy(String allergy) {
+    public synchronized void setAllergies(List<String> allergies) {
+        this.allergies = new ArrayList<>(allergies != null ? allergies : new ArrayList<>());
+        this.normalization = new Normalization(null, normalization.conditionCodes(), null);
+    }
+    public synchronized void addAllergy(String allergy) {
         if (allergy != null && !allergy.trim().isEmpty() && !allergies.contains(allergy.trim())) {
-            allergies.add(allergy.trim());
+            List<String> updated = new ArrayList<>(allergies);
+            updated.add(allergy.trim());
+            setAllergies(updated);
         }
     }
     public List<String> getChronicConditions() { return new ArrayList<>(chronicConditions); }
-    public void setChronicConditions(List<String> chronicConditions) { this.chronicConditions = new ArrayList<>(chronicConditions != null ? chronicConditions : new ArrayList<>()); }
-    public void addChronicCondition(String condition) {
+    public synchronized void setChronicConditions(List<String> chronicConditions) {
+        this.chronicConditions = new ArrayList<>(chronicConditions != null ? chronicConditions : new ArrayList<>());
+        this.normalization = new Normalization(normalization.allergyCodes(), null, null);
+    }
+    public synchronized void addChronicCondition(String condition) {
         if (condition != null && !condition.trim().isEmpty() && !chronicConditions.contains(condition.trim())) {
-            chronicConditions.add(condition.trim());
+            List<String> updated = new ArrayList<>(chronicConditions);
+            updated.add(condition.trim());
+            setChronicConditions(updated);
         }
     }
+    public Map<String, List<String>> getAllergyCodes() { return copy(normalization.allergyCodes()); }
+    public synchronized void setAllergyCodes(Map<String, List<String>> allergyCodes) {
+        Normalization current = normalization;
+        normalization = new Normalization(copy(allergyCodes), current.conditionCodes(), current.profile());
+    }
+    public Map<String, List<String>> getConditionCodes() { return copy(normalization.conditionCodes()); }
+    public synchronized void setConditionCodes(Map<String, List<String>> conditionCodes) {
+        Normalization current = normalization;
+        normalization = new Normalization(current.allergyCodes(), copy(conditionCodes), current.profile());
+    }
+    @JsonIgnore
+    public ContraindicationProfile getContraindicationProfile() { return normalization.profile(); }
+    @JsonIgnore
+    public synchronized void setContraindicationProfile(ContraindicationProfile contraindicationProfile) {
+        Normalization current = normalization;
+        normalization = new Normalization(current.allergyCodes(), current.conditionCodes(), contraindicationProfile);
+    }
+
+    /**
+     * Publishes the codes and the profile built from them in one step, so a
+     * renormalization never shows readers new codes with an old profile.
+     */
+    public synchronized void setNormalization(Map<String, List<String>> allergyCodes, Map<String, List<String>> conditionCodes,
+                                              ContraindicationProfile contraindicationProfile) {
+        normalization = new Normalization(copy(allergyCodes), copy(conditionCodes), contraindicationProfile);
+    }
+
+    private static Map<String, List<String>> copy(Map<String, List<String>> codes) {
+        return codes != null ? new LinkedHashMap<>(codes) : null;
+    }
+    @JsonIgnore
+    public ExposureHistory getExposureHistory() { return exposureHistory; }
+    @JsonIgnore
+    public void setExposureHistory(ExposureHistory exposureHistory) {
+        this.exposureHistory = exposureHistory != null ? exposureHistory : ExposureHistory.empty();
+    }
+    @JsonIgnore
+    public boolean isNormalized() {
+        Normalization current = normalization;
+        return current.allergyCodes() != null && current.conditionCodes() != null;
+    }
 
     @Override
     public boolean equals(Object o) {
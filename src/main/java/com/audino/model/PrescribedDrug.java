@@ -1,5 +1,7 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 public class PrescribedDrug {
@@ -10,8 +12,12 @@ public class PrescribedDrug {
     private String duration;
     private String specialInstructions;
     private String prescribedBy;
+    // Set when the drug is added to a prescription that was already saved; null means from the prescription's creation
+    private LocalDateTime startedAt;
 
-    private Medication medication;
+    // Repointed at the reloaded catalog's medication from the watcher thread
+    private volatile Medication medication;
+    private Dosage parsedDosage;
 
     public PrescribedDrug() {
     }
@@ -25,6 +31,17 @@ public class PrescribedDrug {
         this.specialInstructions = specialInstructions;
         this.prescribedBy = prescribedBy;
     }
+
+    public PrescribedDrug(PrescribedDrug other) {
+        this.medication = other.medication;
+        this.medicationId = other.medicationId;
+        this.dosage = other.dosage;
+        this.frequency = other.frequency;
+        this.duration = other.duration;
+        this.specialInstructions = other.specialInstructions;
+        this.prescribedBy = other.prescribedBy;
+        this.startedAt = other.startedAt;
+    }
     
     public boolean isValid() {
         return medication != null && dosage != null && !dosage.isEmpty() &&
@@ -34,19 +51,30 @@ public class PrescribedDrug {
     public String getMedicationId() { return medicationId; }
     public void setMedicationId(String medicationId) { this.medicationId = medicationId; }
     public String getDosage() { return dosage; }
-    public void setDosage(String dosage) { this.dosage = dosage; }
+    public void setDosage(String dosage) { this.dosage = dosage; this.parsedDosage = null; }
     public String getFrequency() { return frequency; }
-    public void setFrequency(String frequency) { this.frequency = frequency; }
+    public void setFrequency(String frequency) { this.frequency = frequency; this.parsedDosage = null; }
     public String getDuration() { return duration; }
     public void setDuration(String duration) { this.duration = duration; }
     public String getSpecialInstructions() { return specialInstructions; }
     public void setSpecialInstructions(String specialInstructions) { this.specialInstructions = specialInstructions; }
     public String getPrescribedBy() { return prescribedBy; }
     public void setPrescribedBy(String prescribedBy) { this.prescribedBy = prescribedBy; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
     
     public Medication getMedication() { return medication; }
     public void setMedication(Medication medication) { this.medication = medication; }
 
+    /** Dosage and frequency in structured form, parsed once and kept until either changes; null if unreadable. */
+    @JsonIgnore
+    public Dosage getParsedDosage() {
+        if (parsedDosage == null) {
+            parsedDosage = Dosage.parse(dosage, frequency);
+        }
+        return parsedDosage;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
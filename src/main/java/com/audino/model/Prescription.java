@@ -1,5 +1,6 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +17,8 @@ public class Prescription {
     private String prescribedBy;
     private PrescriptionStatus status;
     private List<InteractionAlert> alerts;
+    private int version = 1;
+    private LocalDateTime supersededAt;
 
     public Prescription() {
         this.prescribedDrugs = new ArrayList<>();
@@ -60,6 +63,16 @@ public class Prescription {
     public void setStatus(PrescriptionStatus status) { this.status = status; }
     public List<InteractionAlert> getAlerts() { return new ArrayList<>(alerts); }
     public void setAlerts(List<InteractionAlert> alerts) { this.alerts = new ArrayList<>(alerts); }
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+    public LocalDateTime getSupersededAt() { return supersededAt; }
+    public void setSupersededAt(LocalDateTime supersededAt) { this.supersededAt = supersededAt; }
+
+    /** Whether this is the patient's current prescription rather than an earlier version. */
+    @JsonIgnore
+    public boolean isCurrent() {
+        return supersededAt == null && status != PrescriptionStatus.SUPERSEDED;
+    }
     
     @Override
     public boolean equals(Object o) {
@@ -7,7 +7,8 @@ public enum PrescriptionStatus {
     DRAFT("Draft", "Prescription is being created."),
     PENDING_REVIEW("Pending Review", "Prescription awaiting review."),
     APPROVED("Approved", "Prescription has been approved."),
-    CANCELLED("Cancelled", "Prescription has been cancelled.");
+    CANCELLED("Cancelled", "Prescription has been cancelled."),
+    SUPERSEDED("Superseded", "Prescription has been replaced by a newer version.");
 
     private final String displayName;
     private final String description;
@@ -1,5 +1,6 @@
 package com.audino.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class TabletMedication extends Medication {
@@ -32,6 +33,12 @@ public class TabletMedication extends Medication {
             return false;
         }
     }
+
+    @Override
+    @JsonIgnore
+    public Dosage.Strength getUnitStrength() {
+        return Dosage.parseStrength(strength);
+    }
     
     public String getStrength() { return strength; }
     public void setStrength(String strength) { this.strength = strength; }
@@ -0,0 +1,64 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Evaluation order for the rules of one section. Rules stay grouped most
+ * severe first, so short-circuit callers still see critical matches first;
+ * within a severity, rules that match often for little work move to the
+ * front as the statistics accumulate.
+ */
+final class AdaptiveRuleOrder<T> {
+
+    static final int REORDER_INTERVAL = 200;
+    static final int MIN_SAMPLES = 20;
+
+    private final List<T> declared;
+    private final Function<T, AlertLevel> levelOf;
+    private final Map<T, RuleStatistics.Counter> counters = new IdentityHashMap<>();
+    private final AtomicLong passes = new AtomicLong();
+    private volatile List<T> current;
+
+    AdaptiveRuleOrder(List<T> declared, Function<T, AlertLevel> levelOf, Function<T, String> idOf,
+                      String section, RuleStatistics statistics) {
+        this.declared = List.copyOf(declared);
+        this.levelOf = levelOf;
+        for (T rule : this.declared) {
+            counters.put(rule, statistics.counter(section, idOf.apply(rule)));
+        }
+        this.current = this.declared;
+        reorder();
+    }
+
+    /** The rules in their current evaluation order. */
+    List<T> rules() {
+        if (passes.incrementAndGet() % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+        return current;
+    }
+
+    RuleStatistics.Counter counter(T rule) {
+        return counters.get(rule);
+    }
+
+    private void reorder() {
+        Map<T, Double> cost = new IdentityHashMap<>();
+        for (T rule : declared) {
+            RuleStatistics.Counter counter = counters.get(rule);
+            // Too few samples to judge: keep the rule early so it gets measured
+            cost.put(rule, counter.evaluations() < MIN_SAMPLES ? 0.0 : counter.costPerHit());
+        }
+        List<T> ordered = new ArrayList<>(declared);
+        ordered.sort(Comparator.comparing(levelOf).thenComparing(cost::get));
+        current = Collections.unmodifiableList(ordered);
+    }
+}
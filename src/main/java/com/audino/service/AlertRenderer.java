@@ -0,0 +1,149 @@
+package com.audino.service;
+
+import com.audino.model.AlertMatch;
+import com.audino.model.AlertType;
+import com.audino.model.InteractionAlert;
+import com.audino.model.Medication;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Turns {@link AlertMatch} records into the title, message and recommendation
+ * text shown to clinicians. Only invoked when an alert is displayed or saved.
+ */
+public class AlertRenderer implements InteractionAlert.Renderer {
+
+    private final Ruleset ruleset;
+
+    public AlertRenderer(Ruleset ruleset) {
+        this.ruleset = ruleset;
+    }
+
+    @Override
+    public String renderTitle(AlertMatch match) {
+        Object title = findRule(match).get("title");
+        if (title != null) {
+            return (String) title;
+        }
+        return switch (match.alertType()) {
+            case DRUG_ALLERGY -> "Potential Allergic Reaction";
+            case DRUG_DRUG -> "Drug-Drug Interaction";
+            case DRUG_CONDITION -> "Drug-Condition Contraindication";
+            case DUPLICATE_THERAPY -> "Duplicate Therapy";
+            case CUMULATIVE_BURDEN -> "Cumulative Burden";
+            case DOSE_LIMIT -> isUncheckedDose(match) ? "Daily Dose Not Checked" : "Daily Dose Above Maximum";
+        };
+    }
+
+    @Override
+    public String renderMessage(AlertMatch match) {
+        Map<String, Object> rule = findRule(match);
+        List<String> names = displayNames(match);
+        Map<String, Object> expressionRule = findExpressionRule(match);
+        if (expressionRule != null) {
+            return String.format("%s: %s", String.join(" and ", names), expressionRule.get("description"));
+        }
+        return switch (match.alertType()) {
+            case DRUG_ALLERGY -> String.format(
+                "Patient has a known allergy to '%s'. The prescribed medication, %s, is in a class of drugs related to this allergy.",
+                match.patientFactor(), first(names));
+            case DRUG_DRUG -> match.patientFactor() == null
+                ? String.format("%s may interact. %s", joinNames(names), rule.get("description"))
+                : String.format("%s may interact with %s, which is still active from an earlier prescription (%s). %s",
+                    first(names), names.get(names.size() - 1), match.patientFactor(), rule.get("description"));
+            case DRUG_CONDITION -> String.format(
+                "Prescribing %s is potentially unsafe for patients with '%s'. %s",
+                first(names), match.patientFactor(), rule.get("description"));
+            case DUPLICATE_THERAPY -> String.format(
+                "%s %s contain %s, so the patient would receive it more than once.",
+                joinNames(names), names.size() > 2 ? "all" : "both", match.patientFactor());
+            case CUMULATIVE_BURDEN -> String.format(
+                "%s together reach a combined score of %s. %s", joinNames(names), match.patientFactor(), rule.get("description"));
+            case DOSE_LIMIT -> isUncheckedDose(match)
+                ? String.format("The daily dose of %s could not be worked out from '%s', so it was not checked against the maximum of %s.",
+                    first(names), match.patientFactor(), maxDailyDose(match))
+                : String.format("The prescribed %s adds up to %s a day, above the recommended maximum of %s.",
+                    first(names), match.patientFactor(), maxDailyDose(match));
+        };
+    }
+
+    @Override
+    public String renderRecommendation(AlertMatch match) {
+        if (match.alertType() == AlertType.DUPLICATE_THERAPY) {
+            return "Confirm that both products are intended. Otherwise remove one, and keep the combined dose within the daily maximum.";
+        }
+        if (match.alertType() == AlertType.DOSE_LIMIT && isUncheckedDose(match)) {
+            return "Write the dose as an amount and the frequency as times a day or an hourly interval, or check the daily total by hand.";
+        }
+        if (match.alertType() == AlertType.DOSE_LIMIT) {
+            return "Check the dose and frequency. Reduce them to stay within the daily maximum unless the higher dose is intended.";
+        }
+        return (String) findRule(match).get("recommendation");
+    }
+
+    @Override
+    public String renderInvolvedMedications(AlertMatch match) {
+        return String.join(" & ", displayNames(match));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> findRule(AlertMatch match) {
+        String section = switch (match.alertType()) {
+            case DRUG_ALLERGY -> "drugAllergyInteractions";
+            case DRUG_DRUG -> "drugDrugInteractions";
+            case DRUG_CONDITION -> "drugConditionInteractions";
+            case DUPLICATE_THERAPY, DOSE_LIMIT -> null;
+            case CUMULATIVE_BURDEN -> "burdenRules";
+        };
+        Object sectionRules = section != null ? ruleset.getRules().get(section) : null;
+        if (sectionRules instanceof Map && ((Map<String, Object>) sectionRules).get(match.ruleId()) instanceof Map) {
+            return (Map<String, Object>) ((Map<String, Object>) sectionRules).get(match.ruleId());
+        }
+        Map<String, Object> multiDrugRules = RuleSupport.section(ruleset.getRules(), "multiDrugInteractions");
+        if (match.alertType() == AlertType.DRUG_DRUG && multiDrugRules != null && multiDrugRules.get(match.ruleId()) instanceof Map) {
+            return (Map<String, Object>) multiDrugRules.get(match.ruleId());
+        }
+        Map<String, Object> expressionRule = findExpressionRule(match);
+        return expressionRule != null ? expressionRule : Map.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> findExpressionRule(AlertMatch match) {
+        Map<String, Object> expressionRules = RuleSupport.section(ruleset.getRules(), "expressionRules");
+        if (expressionRules != null && expressionRules.get(match.ruleId()) instanceof Map) {
+            return (Map<String, Object>) expressionRules.get(match.ruleId());
+        }
+        return null;
+    }
+
+    private static boolean isUncheckedDose(AlertMatch match) {
+        return MaxDoseCheckStrategy.UNCHECKED_RULE_ID.equals(match.ruleId());
+    }
+
+    private String maxDailyDose(AlertMatch match) {
+        Medication med = match.medicationIds().isEmpty() ? null : ruleset.getMedication(match.medicationIds().get(0));
+        return med != null ? med.getMaxDailyDose() : "unknown";
+    }
+
+    private List<String> displayNames(AlertMatch match) {
+        return match.medicationIds().stream()
+            .map(id -> {
+                Medication med = ruleset.getMedication(id);
+                return med != null ? med.getDisplayName() : id;
+            })
+            .collect(Collectors.toList());
+    }
+
+    /** "A and B", or "A, B and C" for multi-drug matches. */
+    private static String joinNames(List<String> names) {
+        if (names.size() <= 2) {
+            return String.join(" and ", names);
+        }
+        return String.join(", ", names.subList(0, names.size() - 1)) + " and " + names.get(names.size() - 1);
+    }
+
+    private static String first(List<String> names) {
+        return names.isEmpty() ? "" : names.get(0);
+    }
+}
@@ -0,0 +1,173 @@
+package com.audino.service;
+
+import com.audino.model.AlertMatch;
+import com.audino.model.Patient;
+import com.audino.model.PrescribedDrug;
+import com.audino.model.Prescription;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized view of the engine's matches per saved prescription, kept on
+ * disk so alerts can be shown immediately after a restart. Each entry is
+ * stamped with the rules and catalog content it was computed against and a
+ * digest of the prescription and patient facts it depends on; an entry is
+ * only served while all three stamps still match, so validating it never
+ * runs a check. Stale entries are recomputed in the background.
+ */
+public class AlertView {
+
+    public record Entry(String rulesStamp, String catalogStamp, String inputStamp, List<AlertMatch> matches) {}
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public AlertView(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Reads the persisted view; a missing or unreadable file leaves the view empty. */
+    public AlertView load() {
+        if (!Files.exists(file)) return this;
+        try {
+            Map<String, Entry> stored = objectMapper.readValue(file.toFile(), new TypeReference<Map<String, Entry>>() {});
+            entries.putAll(stored);
+            System.out.println("Loaded " + stored.size() + " materialized alert entries from " + file + ".");
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable alert view " + file + ": " + e.getMessage());
+        }
+        return this;
+    }
+
+    public synchronized void save() {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            objectMapper.writeValue(file.toFile(), new TreeMap<>(entries));
+        } catch (IOException e) {
+            System.err.println("Error saving alert view: " + e.getMessage());
+        }
+    }
+
+    /** The stored matches if they were computed for this exact prescription, patient and ruleset, otherwise null. */
+    public List<AlertMatch> lookup(Patient patient, Prescription prescription, Ruleset ruleset) {
+        Entry entry = entries.get(prescription.getPrescriptionId());
+        if (entry == null
+                || !entry.rulesStamp().equals(ruleset.getRulesStamp())
+                || !entry.catalogStamp().equals(ruleset.getCatalogStamp())
+                || !entry.inputStamp().equals(inputStamp(patient, prescription))) {
+            return null;
+        }
+        return entry.matches();
+    }
+
+    public void put(Patient patient, Prescription prescription, Ruleset ruleset, List<AlertMatch> matches) {
+        entries.put(prescription.getPrescriptionId(), new Entry(ruleset.getRulesStamp(), ruleset.getCatalogStamp(),
+            inputStamp(patient, prescription), List.copyOf(matches)));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Recomputes, in the background, the entries of current prescriptions
+     * that are missing or stale, drops entries of prescriptions that are no
+     * longer current, and saves the view if anything changed.
+     *
+     * @return the number of entries recomputed
+     */
+    public CompletableFuture<Integer> refreshAsync(DataService dataService, InteractionEngine engine) {
+        Ruleset ruleset = dataService.getRuleset();
+        List<String> current = new ArrayList<>();
+        List<CompletableFuture<Void>> recomputed = new ArrayList<>();
+        for (Prescription prescription : dataService.getAllPrescriptions()) {
+            if (!prescription.isCurrent()) continue;
+            Patient patient = dataService.getPatient(prescription.getPatientId());
+            if (patient == null) continue;
+            current.add(prescription.getPrescriptionId());
+            if (lookup(patient, prescription, ruleset) != null) continue;
+            recomputed.add(engine.matchAllInteractionsAsync(patient, prescription, ruleset)
+                .thenAccept(matches -> put(patient, prescription, ruleset, matches)));
+        }
+        boolean pruned = entries.keySet().retainAll(current);
+        return saveWhenDone(recomputed, pruned);
+    }
+
+    /**
+     * Like {@link #refreshAsync(DataService, InteractionEngine)}, but only for
+     * the given prescriptions, so a change to one record costs one check.
+     * Prescriptions no longer current in the data service are dropped.
+     */
+    public CompletableFuture<Integer> refreshAsync(DataService dataService, InteractionEngine engine,
+                                                   Collection<Prescription> prescriptions) {
+        Ruleset ruleset = dataService.getRuleset();
+        List<CompletableFuture<Void>> recomputed = new ArrayList<>();
+        boolean pruned = false;
+        for (Prescription prescription : prescriptions) {
+            boolean current = dataService.getCurrentPrescriptions(prescription.getPatientId()).contains(prescription);
+            Patient patient = current ? dataService.getPatient(prescription.getPatientId()) : null;
+            if (patient == null) {
+                pruned |= entries.remove(prescription.getPrescriptionId()) != null;
+                continue;
+            }
+            if (lookup(patient, prescription, ruleset) != null) continue;
+            recomputed.add(engine.matchAllInteractionsAsync(patient, prescription, ruleset)
+                .thenAccept(matches -> put(patient, prescription, ruleset, matches)));
+        }
+        return saveWhenDone(recomputed, pruned);
+    }
+
+    private CompletableFuture<Integer> saveWhenDone(List<CompletableFuture<Void>> recomputed, boolean pruned) {
+        return CompletableFuture.allOf(recomputed.toArray(new CompletableFuture[0])).thenApply(v -> {
+            if (!recomputed.isEmpty() || pruned) save();
+            return recomputed.size();
+        });
+    }
+
+    /**
+     * Digest of everything besides the rules a check depends on: the patient's
+     * terms, the prescribed drugs with their doses, and the earlier drugs
+     * still within their washout.
+     */
+    static String inputStamp(Patient patient, Prescription prescription) {
+        StringBuilder input = new StringBuilder();
+        if (patient != null) {
+            input.append(patient.getPatientId()).append('|').append(patient.getAllergies()).append('|')
+                .append(patient.getChronicConditions()).append('|').append(patient.getAge()).append('|');
+            patient.getExposureHistory().activeAt(LocalDateTime.now()).forEach(exposure -> {
+                if (!prescription.getPrescriptionId().equals(exposure.prescriptionId())) {
+                    input.append(exposure.medicationId()).append('@').append(exposure.end()).append(',');
+                }
+            });
+        }
+        input.append('|');
+        for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+            input.append(drug.getMedicationId()).append(':').append(drug.getDosage()).append(':')
+                .append(drug.getFrequency()).append(',');
+        }
+        return String.format("%016X", fnv(input.toString()));
+    }
+
+    private static long fnv(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
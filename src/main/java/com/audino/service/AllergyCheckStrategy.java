@@ -1,10 +1,8 @@
 package com.audino.service;
 
 import com.audino.model.*;
-import java.util.ArrayList;
+import com.audino.model.ContraindicationProfile.Contraindication;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class AllergyCheckStrategy implements InteractionCheckStrategy {
 
@@ -14,62 +12,30 @@ public class AllergyCheckStrategy implements InteractionCheckStrategy {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<InteractionAlert> check(Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
-        List<InteractionAlert> alerts = new ArrayList<>();
-        if (patient == null || patient.getAllergies().isEmpty() || rules == null) {
-            return alerts;
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        // Drug-allergy alerts are always critical
+        if (patient == null || patient.getAllergies().isEmpty() || !sink.wants(AlertLevel.CRITICAL)) {
+            return;
         }
-
-        Map<String, Object> allergyRules = (Map<String, Object>) rules.get("drugAllergyInteractions");
-        if (allergyRules == null) return alerts;
-
-        List<Medication> prescribedMedications = prescription.getPrescribedDrugs().stream()
-            .map(drug -> allMedications.stream()
-                .filter(m -> m.getMedicationId().equals(drug.getMedicationId()))
-                .findFirst().orElse(null))
-            .filter(m -> m != null)
-            .collect(Collectors.toList());
-
-        for (Medication med : prescribedMedications) {
-            List<String> medIdentifiers = med.getInteractionIdentifiers().stream()
-                                             .map(String::toLowerCase)
-                                             .collect(Collectors.toList());
-                                             
-            for (String allergy : patient.getAllergies()) {
-                String allergyLower = allergy.toLowerCase();
-
-                allergyRules.forEach((key, ruleObj) -> {
-                    Map<String, Object> rule = (Map<String, Object>) ruleObj;
-                    List<String> keywords = (List<String>) rule.get("allergyKeywords");
-                    List<String> medicationClasses = (List<String>) rule.get("medicationClasses");
-
-                    // Check if patient allergy matches the rule's allergy keywords
-                    if (keywords != null && keywords.stream().anyMatch(keyword -> allergyLower.contains(keyword.toLowerCase()))) {
-                        // Check if prescribed medication's class matches the rule's medication classes
-                        if (medicationClasses != null && medIdentifiers.stream().anyMatch(medId -> medicationClasses.contains(medId.toUpperCase()))) {
-                            alerts.add(createAlert(patient, med, allergy, rule));
-                        }
-                    }
-                });
+        if (patient.getAllergyCodes() == null) return;
+
+        ContraindicationProfile profile = ruleset.profileFor(patient);
+        if (profile.isEmpty()) return;
+
+        for (Medication med : RuleSupport.prescribedMedications(prescription, ruleset)) {
+            if (sink.isCancelled()) return;
+            // The profile already holds every class the patient's allergies rule out
+            for (Contraindication contraindication : profile.getContraindications(ruleset.classBits(med.getMedicationId()))) {
+                if (contraindication.alertType() != AlertType.DRUG_ALLERGY) continue;
+                if (!sink.accept(createMatch(contraindication, med))) {
+                    return;
+                }
             }
         }
-        return alerts;
     }
 
-    private InteractionAlert createAlert(Patient p, Medication m, String allergy, Map<String, Object> rule) {
-        String message = String.format(
-            "Patient has a known allergy to '%s'. The prescribed medication, %s, is in a class of drugs related to this allergy.",
-            allergy, m.getDisplayName()
-        );
-        return new InteractionAlert(
-            AlertLevel.CRITICAL,
-            AlertType.DRUG_ALLERGY,
-            "Potential Allergic Reaction",
-            message,
-            (String) rule.get("recommendation"),
-            m.getDisplayName(),
-            allergy
-        );
+    private AlertMatch createMatch(Contraindication contraindication, Medication m) {
+        return new AlertMatch(contraindication.ruleId(), AlertType.DRUG_ALLERGY, AlertLevel.CRITICAL,
+            List.of(m.getMedicationId()), contraindication.patientFactor());
     }
-}
\ No newline at end of file
+}
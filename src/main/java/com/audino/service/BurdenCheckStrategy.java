@@ -0,0 +1,44 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import java.util.List;
+
+/**
+ * Checks weighted burden rules such as QT prolongation or anticholinergic
+ * load, where no single pair is the problem but the regimen's drugs add up.
+ * Every rule is scored in the same pass over the regimen, using per-thread
+ * score arrays, so the check allocates only when a rule fires.
+ */
+public class BurdenCheckStrategy implements InteractionCheckStrategy {
+
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[2][0]);
+
+    @Override
+    public String getStrategyName() {
+        return "Cumulative Burden Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        BurdenScorer scorer = ruleset.burdenScorer();
+        if (scorer.isEmpty()) return;
+        List<Medication> meds = RuleSupport.prescribedMedications(prescription, ruleset);
+        if (meds.isEmpty()) return;
+
+        int[][] scratch = SCRATCH.get();
+        if (scratch[0].length < scorer.rules().size()) {
+            scratch[0] = new int[scorer.rules().size()];
+            scratch[1] = new int[scorer.rules().size()];
+        }
+        int[] scores = scratch[0];
+        scorer.score(meds, ruleset, scores, scratch[1]);
+
+        for (int i = 0; i < scorer.rules().size(); i++) {
+            if (sink.isCancelled()) return;
+            AlertMatch match = scorer.match(i, scores[i], meds, ruleset);
+            if (match != null && sink.wants(match.alertLevel()) && !sink.accept(match)) {
+                return;
+            }
+        }
+    }
+}
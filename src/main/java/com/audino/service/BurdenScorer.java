@@ -0,0 +1,167 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertMatch;
+import com.audino.model.AlertType;
+import com.audino.model.Medication;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The burden rules of a ruleset compiled to per-class weight tables. A
+ * regimen is scored in one pass over its medications' class bits: each drug
+ * contributes its highest weight under a rule, so a drug listed under two
+ * weighted classes is not counted twice, and the contributions are summed
+ * across the regimen. Scoring writes into caller-supplied arrays and does
+ * not allocate.
+ */
+final class BurdenScorer {
+
+    private static final BurdenScorer EMPTY = new BurdenScorer(List.of(), new int[0][], new int[0][], List.of());
+
+    private final List<Rule> rules;
+    // Indexed by class bit: the rules that weight the class and the weight under each; null if none do
+    private final int[][] rulesByClass;
+    private final int[][] weightsByClass;
+    private final List<BitSet> weightedClasses;
+
+    /** A burden rule's identity and the score thresholds at which it raises an alert. */
+    record Rule(String ruleId, int warningThreshold, int criticalThreshold) {
+
+        /** The alert level a score reaches, or null if it is below every threshold. */
+        AlertLevel level(int score) {
+            if (criticalThreshold > 0 && score >= criticalThreshold) return AlertLevel.CRITICAL;
+            if (warningThreshold > 0 && score >= warningThreshold) return AlertLevel.WARNING;
+            return null;
+        }
+
+        /** The most severe level this rule can raise. */
+        AlertLevel maxLevel() {
+            return criticalThreshold > 0 ? AlertLevel.CRITICAL : AlertLevel.WARNING;
+        }
+    }
+
+    private BurdenScorer(List<Rule> rules, int[][] rulesByClass, int[][] weightsByClass, List<BitSet> weightedClasses) {
+        this.rules = rules;
+        this.rulesByClass = rulesByClass;
+        this.weightsByClass = weightsByClass;
+        this.weightedClasses = weightedClasses;
+    }
+
+    static BurdenScorer compile(Map<String, Object> section, ClassIndex classIndex) {
+        if (section == null || section.isEmpty()) return EMPTY;
+
+        List<Rule> rules = new ArrayList<>();
+        List<BitSet> weightedClasses = new ArrayList<>();
+        int[][] rulesByClass = new int[classIndex.size()][];
+        int[][] weightsByClass = new int[classIndex.size()][];
+        for (Map.Entry<String, Map<String, Object>> entry : RuleSupport.bySeverity(section)) {
+            Map<String, Object> rule = entry.getValue();
+            int ruleIndex = rules.size();
+            rules.add(new Rule(entry.getKey(), threshold(rule.get("warningThreshold")), threshold(rule.get("criticalThreshold"))));
+
+            BitSet classes = new BitSet();
+            ((Map<?, ?>) rule.get("weights")).forEach((medicationClass, weight) -> {
+                int bit = classIndex.bit(String.valueOf(medicationClass));
+                // Classes no catalog medication carries can never contribute
+                if (bit < 0) return;
+                classes.set(bit);
+                rulesByClass[bit] = append(rulesByClass[bit], ruleIndex);
+                weightsByClass[bit] = append(weightsByClass[bit], ((Number) weight).intValue());
+            });
+            weightedClasses.add(classes);
+        }
+        return new BurdenScorer(List.copyOf(rules), rulesByClass, weightsByClass, List.copyOf(weightedClasses));
+    }
+
+    private static int threshold(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] grown = values == null ? new int[1] : Arrays.copyOf(values, values.length + 1);
+        grown[grown.length - 1] = value;
+        return grown;
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /** Burden rules in file order; indexes match the score arrays. */
+    List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Scores a regimen under every rule.
+     *
+     * @param scores   receives the score of each rule; at least {@code rules().size()} long
+     * @param drugMax  scratch space of the same length, all zero; left all zero on return
+     */
+    void score(List<Medication> regimen, Ruleset ruleset, int[] scores, int[] drugMax) {
+        Arrays.fill(scores, 0, rules.size(), 0);
+        for (int i = 0; i < regimen.size(); i++) {
+            BitSet bits = ruleset.classBits(regimen.get(i).getMedicationId());
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                int[] ruleIndexes = rulesByClass[bit];
+                if (ruleIndexes == null) continue;
+                int[] weights = weightsByClass[bit];
+                for (int k = 0; k < ruleIndexes.length; k++) {
+                    drugMax[ruleIndexes[k]] = Math.max(drugMax[ruleIndexes[k]], weights[k]);
+                }
+            }
+            // Flush this drug's contributions; zeroing on the way means a rule seen under two classes adds once
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                int[] ruleIndexes = rulesByClass[bit];
+                if (ruleIndexes == null) continue;
+                for (int ruleIndex : ruleIndexes) {
+                    scores[ruleIndex] += drugMax[ruleIndex];
+                    drugMax[ruleIndex] = 0;
+                }
+            }
+        }
+    }
+
+    /** The weight of one class under a rule; 0 if the rule does not weight it. */
+    int weight(int ruleIndex, int bit) {
+        int[] ruleIndexes = rulesByClass[bit];
+        if (ruleIndexes == null) return 0;
+        for (int k = 0; k < ruleIndexes.length; k++) {
+            if (ruleIndexes[k] == ruleIndex) return weightsByClass[bit][k];
+        }
+        return 0;
+    }
+
+    /**
+     * The alert a rule raises for a scored regimen, or null if the score is
+     * below its thresholds. The score travels as the patient factor.
+     */
+    AlertMatch match(int ruleIndex, int score, List<Medication> regimen, Ruleset ruleset) {
+        Rule rule = rules.get(ruleIndex);
+        AlertLevel level = rule.level(score);
+        if (level == null) return null;
+        return new AlertMatch(rule.ruleId(), AlertType.CUMULATIVE_BURDEN, level,
+            contributors(ruleIndex, regimen, ruleset), String.valueOf(score));
+    }
+
+    /** Ids of the regimen's medications that contribute to a rule's score. */
+    List<String> contributors(int ruleIndex, List<Medication> regimen, Ruleset ruleset) {
+        BitSet weighted = weightedClasses.get(ruleIndex);
+        List<String> ids = new ArrayList<>();
+        for (Medication med : regimen) {
+            if (ruleset.classBits(med.getMedicationId()).intersects(weighted) && !ids.contains(med.getMedicationId())) {
+                ids.add(med.getMedicationId());
+            }
+        }
+        return ids;
+    }
+
+    /** Classes carrying a weight under a rule; shared, so callers must not modify them. */
+    BitSet weightedClasses(int ruleIndex) {
+        return weightedClasses.get(ruleIndex);
+    }
+}
@@ -0,0 +1,69 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.Medication;
+import java.util.BitSet;
+
+/**
+ * For every catalog medication, the worst alert level it would raise if it
+ * were added to a patient's current regimen, or null if it would raise none.
+ * Produced by {@link CatalogScreener}.
+ */
+public class CatalogScreen {
+
+    private final Ruleset ruleset;
+    private final AlertLevel[] classLevels;
+    private final AlertLevel[] medicationLevels;
+    private final BitSet duplicates;
+
+    /**
+     * @param duplicates catalog positions of medications sharing an active
+     *                   ingredient with the regimen, flagged as warnings on top
+     *                   of {@code medicationLevels}
+     */
+    CatalogScreen(Ruleset ruleset, AlertLevel[] classLevels, AlertLevel[] medicationLevels, BitSet duplicates) {
+        this.ruleset = ruleset;
+        this.classLevels = classLevels;
+        this.medicationLevels = medicationLevels;
+        this.duplicates = duplicates;
+    }
+
+    public AlertLevel getLevel(String medicationId) {
+        int position = ruleset.catalogPosition(medicationId);
+        return position >= 0 ? level(position) : null;
+    }
+
+    private AlertLevel level(int position) {
+        return duplicates.get(position)
+            ? CatalogScreener.worse(medicationLevels[position], AlertLevel.WARNING)
+            : medicationLevels[position];
+    }
+
+    public AlertLevel getLevel(Medication medication) {
+        return medication != null ? getLevel(medication.getMedicationId()) : null;
+    }
+
+    public long getRulesetVersion() {
+        return ruleset.getVersion();
+    }
+
+    public int getFlaggedCount() {
+        int count = 0;
+        for (int position = 0; position < medicationLevels.length; position++) {
+            if (level(position) != null) count++;
+        }
+        return count;
+    }
+
+    Ruleset getRuleset() {
+        return ruleset;
+    }
+
+    AlertLevel[] classLevels() {
+        return classLevels;
+    }
+
+    AlertLevel[] medicationLevels() {
+        return medicationLevels;
+    }
+}
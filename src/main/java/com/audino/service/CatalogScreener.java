@@ -0,0 +1,160 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.ContraindicationProfile;
+import com.audino.model.Medication;
+import com.audino.model.Patient;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Screens the whole medication catalog against a patient and their current
+ * regimen in one pass. The allergy, condition and drug-drug rules are first
+ * reduced to a worst alert level per drug class; each medication then only
+ * looks up its own class bits. Burden rules flag every class whose weight
+ * would lift the regimen's score over a threshold. Expression rules depend on
+ * the full regimen and are left to the interaction check. Medications sharing
+ * an active ingredient with the regimen are found through the ingredient
+ * index and flagged as duplicates.
+ */
+public class CatalogScreener {
+
+    private final Ruleset ruleset;
+    private final BitSet[] medicationsByClass;
+
+    public CatalogScreener(Ruleset ruleset) {
+        this.ruleset = ruleset;
+        medicationsByClass = new BitSet[ruleset.getClassIndex().size()];
+        List<BitSet> catalogBits = ruleset.catalogClassBits();
+        for (int position = 0; position < catalogBits.size(); position++) {
+            BitSet bits = catalogBits.get(position);
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                if (medicationsByClass[bit] == null) medicationsByClass[bit] = new BitSet();
+                medicationsByClass[bit].set(position);
+            }
+        }
+    }
+
+    public Ruleset getRuleset() {
+        return ruleset;
+    }
+
+    public CatalogScreen screen(Patient patient, List<Medication> regimen) {
+        return screen(null, patient, regimen);
+    }
+
+    /**
+     * Screens the catalog, reusing a previous screen of the same ruleset so
+     * only medications in drug classes whose level changed are revisited.
+     */
+    public CatalogScreen screen(CatalogScreen previous, Patient patient, List<Medication> regimen) {
+        AlertLevel[] classLevels = classLevels(patient, regimen);
+        BitSet flaggedClasses = new BitSet(classLevels.length);
+        for (int bit = 0; bit < classLevels.length; bit++) {
+            if (classLevels[bit] != null) flaggedClasses.set(bit);
+        }
+
+        List<BitSet> catalogBits = ruleset.catalogClassBits();
+        AlertLevel[] medicationLevels;
+        if (previous != null && previous.getRuleset() == ruleset) {
+            medicationLevels = previous.medicationLevels().clone();
+            BitSet affected = new BitSet(catalogBits.size());
+            AlertLevel[] previousLevels = previous.classLevels();
+            for (int bit = 0; bit < classLevels.length; bit++) {
+                if (classLevels[bit] != previousLevels[bit] && medicationsByClass[bit] != null) {
+                    affected.or(medicationsByClass[bit]);
+                }
+            }
+            for (int position = affected.nextSetBit(0); position >= 0; position = affected.nextSetBit(position + 1)) {
+                medicationLevels[position] = worstLevel(catalogBits.get(position), classLevels, flaggedClasses);
+            }
+        } else {
+            medicationLevels = new AlertLevel[catalogBits.size()];
+            for (int position = 0; position < medicationLevels.length; position++) {
+                medicationLevels[position] = worstLevel(catalogBits.get(position), classLevels, flaggedClasses);
+            }
+        }
+        return new CatalogScreen(ruleset, classLevels, medicationLevels, duplicates(regimen));
+    }
+
+    private AlertLevel[] classLevels(Patient patient, List<Medication> regimen) {
+        AlertLevel[] levels = new AlertLevel[ruleset.getClassIndex().size()];
+
+        if (patient != null && patient.isNormalized()) {
+            ContraindicationProfile profile = ruleset.profileFor(patient);
+            BitSet classes = profile.getClasses();
+            for (int bit = classes.nextSetBit(0); bit >= 0; bit = classes.nextSetBit(bit + 1)) {
+                levels[bit] = worse(levels[bit], profile.getWorstLevel(bit));
+            }
+        }
+
+        BitSet regimenClasses = new BitSet(levels.length);
+        for (Medication med : regimen) {
+            regimenClasses.or(ruleset.classBits(med.getMedicationId()));
+        }
+        BurdenScorer scorer = ruleset.burdenScorer();
+        if (!scorer.isEmpty()) {
+            int[] scores = new int[scorer.rules().size()];
+            scorer.score(regimen, ruleset, scores, new int[scores.length]);
+            for (int i = 0; i < scores.length; i++) {
+                BurdenScorer.Rule rule = scorer.rules().get(i);
+                BitSet weighted = scorer.weightedClasses(i);
+                for (int bit = weighted.nextSetBit(0); bit >= 0; bit = weighted.nextSetBit(bit + 1)) {
+                    // A drug adds its highest class weight, so the class weight alone decides its level
+                    levels[bit] = worse(levels[bit], rule.level(scores[i] + scorer.weight(i, bit)));
+                }
+            }
+        }
+        if (!regimenClasses.isEmpty()) {
+            for (Ruleset.PairRule rule : ruleset.pairRules()) {
+                // A drug in the regimen on one side of the rule flags every class on the other side
+                if (regimenClasses.intersects(rule.left())) raise(levels, rule.right(), rule.level());
+                if (regimenClasses.intersects(rule.right())) raise(levels, rule.left(), rule.level());
+            }
+            for (Ruleset.MultiDrugRule rule : ruleset.multiDrugRules()) {
+                // One slot short of firing: any drug filling the missing slot completes the combination
+                if (rule.uncoveredSlots(regimenClasses) != 1) continue;
+                for (BitSet slot : rule.slots()) {
+                    if (!slot.intersects(regimenClasses)) raise(levels, slot, rule.level());
+                }
+            }
+        }
+        return levels;
+    }
+
+    /** Catalog positions of every medication sharing an active ingredient with the regimen. */
+    private BitSet duplicates(List<Medication> regimen) {
+        IngredientIndex index = ruleset.getIngredientIndex();
+        BitSet positions = new BitSet();
+        for (Medication med : regimen) {
+            BitSet ingredients = index.ingredientsOf(med.getMedicationId());
+            for (int bit = ingredients.nextSetBit(0); bit >= 0; bit = ingredients.nextSetBit(bit + 1)) {
+                positions.or(index.medicationsWith(bit));
+            }
+        }
+        return positions;
+    }
+
+    private static void raise(AlertLevel[] levels, BitSet classes, AlertLevel level) {
+        for (int bit = classes.nextSetBit(0); bit >= 0; bit = classes.nextSetBit(bit + 1)) {
+            levels[bit] = worse(levels[bit], level);
+        }
+    }
+
+    private static AlertLevel worstLevel(BitSet medicationClasses, AlertLevel[] classLevels, BitSet flaggedClasses) {
+        if (!flaggedClasses.intersects(medicationClasses)) {
+            return null;
+        }
+        AlertLevel worst = null;
+        for (int bit = medicationClasses.nextSetBit(0); bit >= 0; bit = medicationClasses.nextSetBit(bit + 1)) {
+            worst = worse(worst, classLevels[bit]);
+        }
+        return worst;
+    }
+
+    static AlertLevel worse(AlertLevel a, AlertLevel b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.ordinal() <= b.ordinal() ? a : b;
+    }
+}
@@ -0,0 +1,73 @@
+package com.audino.service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns every medication interaction identifier a bit position, so sets
+ * of drug classes can be held and compared as bitsets. Identifiers are
+ * matched case-insensitively. The drug class ontology is folded in at build
+ * time: each class has a precomputed mask of itself and all its ancestors,
+ * and one of the classes it is cross-reactive with.
+ */
+public class ClassIndex {
+
+    private final Map<String, Integer> bits = new HashMap<>();
+    private final BitSet[] closures;
+    private final BitSet[] crossReactive;
+
+    ClassIndex(Collection<String> identifiers, DrugClassOntology ontology) {
+        for (String identifier : identifiers) {
+            bits.putIfAbsent(identifier.toUpperCase(), bits.size());
+        }
+        for (String drugClass : ontology.getClasses()) {
+            bits.putIfAbsent(drugClass, bits.size());
+        }
+        closures = new BitSet[bits.size()];
+        crossReactive = new BitSet[bits.size()];
+        bits.forEach((identifier, bit) -> {
+            closures[bit] = bitsOf(ontology.getAncestors(identifier));
+            closures[bit].set(bit);
+            crossReactive[bit] = bitsOf(ontology.getCrossReactive(identifier));
+        });
+    }
+
+    /** Bit position of an identifier, or -1 if it is not indexed. */
+    public int bit(String identifier) {
+        return identifier != null ? bits.getOrDefault(identifier.toUpperCase(), -1) : -1;
+    }
+
+    public BitSet bitsOf(Collection<String> identifiers) {
+        BitSet result = new BitSet(bits.size());
+        for (String identifier : identifiers) {
+            int bit = bit(identifier);
+            if (bit >= 0) result.set(bit);
+        }
+        return result;
+    }
+
+    /** Bits of the identifiers and of every ancestor class they descend from. */
+    public BitSet closureOf(Collection<String> identifiers) {
+        BitSet result = new BitSet(bits.size());
+        for (String identifier : identifiers) {
+            int bit = bit(identifier);
+            if (bit >= 0) result.or(closures[bit]);
+        }
+        return result;
+    }
+
+    /** The given classes together with the classes directly cross-reactive with them. */
+    public BitSet withCrossReactive(BitSet classes) {
+        BitSet result = (BitSet) classes.clone();
+        for (int bit = classes.nextSetBit(0); bit >= 0; bit = classes.nextSetBit(bit + 1)) {
+            result.or(crossReactive[bit]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return bits.size();
+    }
+}
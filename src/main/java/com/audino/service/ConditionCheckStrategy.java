@@ -1,10 +1,8 @@
 package com.audino.service;
 
 import com.audino.model.*;
-import java.util.ArrayList;
+import com.audino.model.ContraindicationProfile.Contraindication;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ConditionCheckStrategy implements InteractionCheckStrategy {
 
@@ -14,68 +12,29 @@ public class ConditionCheckStrategy implements InteractionCheckStrategy {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<InteractionAlert> check(Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
-        List<InteractionAlert> alerts = new ArrayList<>();
-        if (patient == null || patient.getChronicConditions() == null || patient.getChronicConditions().isEmpty() || rules == null) {
-            return alerts;
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        if (patient == null || patient.getChronicConditions() == null || patient.getChronicConditions().isEmpty()) {
+            return;
         }
-
-        Map<String, Object> conditionRules = (Map<String, Object>) rules.get("drugConditionInteractions");
-        if (conditionRules == null) return alerts;
-        
-        List<Medication> prescribedMedications = prescription.getPrescribedDrugs().stream()
-            .map(drug -> allMedications.stream()
-                .filter(m -> m.getMedicationId().equals(drug.getMedicationId()))
-                .findFirst().orElse(null))
-            .filter(m -> m != null)
-            .collect(Collectors.toList());
-
-        for (Medication med : prescribedMedications) {
-            for (String condition : patient.getChronicConditions()) {
-                String conditionLower = condition.toLowerCase();
-
-                conditionRules.forEach((key, ruleObj) -> {
-                    Map<String, Object> rule = (Map<String, Object>) ruleObj;
-                    List<String> keywords = (List<String>) rule.get("conditionKeywords");
-                    List<String> medClasses = (List<String>) rule.get("medicationClasses");
-
-                    if (keywords != null && medClasses != null) {
-                        boolean conditionMatches = keywords.stream().anyMatch(keyword -> 
-                            conditionLower.contains(keyword.toLowerCase()));
-                        
-                        if (conditionMatches) {
-                            boolean medicationMatches = medClasses.stream().anyMatch(medClass ->
-                                med.getInteractionIdentifiers().stream().anyMatch(id -> 
-                                    id.equalsIgnoreCase(medClass)));
-                            
-                            if (medicationMatches) {
-                                alerts.add(createAlert(patient, med, condition, rule));
-                            }
-                        }
-                    }
-                });
+        if (patient.getConditionCodes() == null) return;
+
+        ContraindicationProfile profile = ruleset.profileFor(patient);
+        if (profile.isEmpty()) return;
+
+        for (Medication med : RuleSupport.prescribedMedications(prescription, ruleset)) {
+            if (sink.isCancelled()) return;
+            // The profile already holds every class the patient's conditions rule out
+            for (Contraindication contraindication : profile.getContraindications(ruleset.classBits(med.getMedicationId()))) {
+                if (contraindication.alertType() != AlertType.DRUG_CONDITION || !sink.wants(contraindication.alertLevel())) continue;
+                if (!sink.accept(createMatch(contraindication, med))) {
+                    return;
+                }
             }
         }
-        return alerts;
     }
 
-    private InteractionAlert createAlert(Patient p, Medication m, String condition, Map<String, Object> rule) {
-        String severity = (String) rule.get("severity");
-        AlertLevel level = "CRITICAL".equalsIgnoreCase(severity) ? AlertLevel.CRITICAL : AlertLevel.WARNING;
-        String message = String.format(
-            "Prescribing %s is potentially unsafe for patients with '%s'. %s",
-            m.getDisplayName(), condition, rule.get("description")
-        );
-        
-        return new InteractionAlert(
-            level,
-            AlertType.DRUG_CONDITION,
-            "Drug-Condition Contraindication",
-            message,
-            (String) rule.get("recommendation"),
-            m.getDisplayName(),
-            condition
-        );
+    private AlertMatch createMatch(Contraindication contraindication, Medication m) {
+        return new AlertMatch(contraindication.ruleId(), AlertType.DRUG_CONDITION, contraindication.alertLevel(),
+            List.of(m.getMedicationId()), contraindication.patientFactor());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import java.util.List;
+
+/**
+ * A change to the data held by DataService, published on its event bus once
+ * the change has been applied in memory. Each event carries the affected
+ * record, so subscribers can patch their own state instead of re-reading
+ * everything.
+ */
+public sealed interface DataEvent {
+
+    record PatientAdded(Patient patient) implements DataEvent {}
+
+    record PatientUpdated(Patient patient) implements DataEvent {}
+
+    record PatientDeleted(Patient patient) implements DataEvent {}
+
+    /** A prescription became its patient's current one, superseding the ones listed. */
+    record PrescriptionSaved(Prescription prescription, List<Prescription> superseded) implements DataEvent {}
+
+    /** A prescription was removed from the data file by an external edit. */
+    record PrescriptionDeleted(Prescription prescription) implements DataEvent {}
+
+    record RulesReloaded(Ruleset previous, Ruleset current) implements DataEvent {}
+}
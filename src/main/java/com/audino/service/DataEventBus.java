@@ -0,0 +1,53 @@
+package com.audino.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers data change events to the subscribers of each event type.
+ * Events are delivered synchronously on the publishing thread, so in-process
+ * state is consistent as soon as a change returns; subscribers that touch
+ * the UI hand the work to the UI thread themselves. A failing subscriber is
+ * logged and does not stop delivery to the others.
+ */
+public class DataEventBus {
+
+    private static final class Subscription<E extends DataEvent> {
+        private final Class<E> type;
+        private final Consumer<? super E> listener;
+
+        Subscription(Class<E> type, Consumer<? super E> listener) {
+            this.type = type;
+            this.listener = listener;
+        }
+
+        void deliver(DataEvent event) {
+            if (type.isInstance(event)) listener.accept(type.cast(event));
+        }
+    }
+
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener for events of the given type and its subtypes.
+     *
+     * @return an action that removes the subscription again
+     */
+    public <E extends DataEvent> Runnable subscribe(Class<E> type, Consumer<? super E> listener) {
+        Subscription<E> subscription = new Subscription<>(type, listener);
+        subscriptions.add(subscription);
+        return () -> subscriptions.remove(subscription);
+    }
+
+    public void publish(DataEvent event) {
+        for (Subscription<?> subscription : subscriptions) {
+            try {
+                subscription.deliver(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering " + event.getClass().getSimpleName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
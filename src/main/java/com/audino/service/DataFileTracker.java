@@ -0,0 +1,76 @@
+package com.audino.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Remembers the modification time and checksum of each data file as last
+ * read or written, so a reload can skip files that have not changed. The
+ * modification time is checked first and the file is only read when it
+ * differs; files inside a jar have no usable time and are always read and
+ * compared by checksum.
+ */
+class DataFileTracker {
+
+    private record Stamp(long lastModified, long checksum) {}
+
+    private final Function<String, URL> locator;
+    private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+
+    DataFileTracker(Function<String, URL> locator) {
+        this.locator = locator;
+    }
+
+    byte[] read(String resource) throws IOException {
+        URL url = locator.apply(resource);
+        if (url == null) {
+            throw new IOException("Cannot find resource file: " + resource);
+        }
+        try (InputStream input = url.openStream()) {
+            return input.readAllBytes();
+        }
+    }
+
+    /** The file's content if it differs from the content last recorded, otherwise null. */
+    byte[] readIfChanged(String resource) throws IOException {
+        Stamp stamp = stamps.get(resource);
+        long lastModified = lastModified(resource);
+        if (stamp != null && lastModified >= 0 && stamp.lastModified() == lastModified) return null;
+        byte[] content = read(resource);
+        if (stamp != null && stamp.checksum() == checksum(content)) {
+            // Touched but not changed, such as by a save of the same data
+            stamps.put(resource, new Stamp(lastModified, stamp.checksum()));
+            return null;
+        }
+        return content;
+    }
+
+    /** Records content as the file's current state once it has been loaded or written. */
+    void record(String resource, byte[] content) {
+        stamps.put(resource, new Stamp(lastModified(resource), checksum(content)));
+    }
+
+    private long lastModified(String resource) {
+        URL url = locator.apply(resource);
+        if (url == null || !"file".equals(url.getProtocol())) return -1;
+        try {
+            return Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+        } catch (IOException | URISyntaxException e) {
+            return -1;
+        }
+    }
+
+    private static long checksum(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
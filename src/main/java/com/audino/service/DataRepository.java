@@ -0,0 +1,88 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Storage for patients and prescriptions behind DataService, which keeps the
+ * working set in memory and writes each change through. The medication
+ * catalog and the rules are not stored here; they stay in the bundled data
+ * files, where they are reviewed and hot reloaded.
+ */
+public interface DataRepository extends AutoCloseable {
+
+    List<Patient> loadPatients();
+
+    /** Prescriptions with their drugs pointed at the catalog's medications. */
+    List<Prescription> loadPrescriptions(Ruleset catalog);
+
+    /** Inserts or replaces the patients, matched by id, in one batch. */
+    void savePatients(Collection<Patient> patients);
+
+    void deletePatients(Collection<String> patientIds);
+
+    /** Inserts or replaces the prescriptions, matched by id, in one batch. */
+    void savePrescriptions(Collection<Prescription> prescriptions);
+
+    /** Replaces everything stored with exactly these records. */
+    void replaceAll(List<Patient> patients, List<Prescription> prescriptions);
+
+    /** Patients with a name word starting with each word of the term, such as "raj ku". */
+    List<Patient> findPatientsByName(String term);
+
+    List<Prescription> findPrescriptionsForPatient(String patientId, Ruleset catalog);
+
+    /**
+     * Whether the finders are indexed queries against a store other clients
+     * may write to, so the service should use them rather than search the
+     * records it holds in memory.
+     */
+    default boolean hasIndexedFinders() {
+        return false;
+    }
+
+    /**
+     * The stored patients if they may have been changed by someone else since
+     * they were last loaded or saved, otherwise null. Stores that cannot tell
+     * return null unless forced.
+     *
+     * @param force read them even if they are not known to have changed
+     */
+    List<Patient> loadPatientsIfChanged(boolean force);
+
+    /** Like {@link #loadPatientsIfChanged}, for prescriptions. */
+    List<Prescription> loadPrescriptionsIfChanged(Ruleset catalog, boolean force);
+
+    /** Classpath data files the repository reads, to be watched for external edits. */
+    default List<String> getWatchedFiles() {
+        return List.of();
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /** Lower-case words of a patient's name, which name searches match by prefix. */
+    static List<String> nameKeys(Patient patient) {
+        return nameWords(patient.getFullName());
+    }
+
+    static boolean matchesName(Patient patient, String term) {
+        List<String> keys = nameKeys(patient);
+        return nameWords(term).stream().allMatch(word -> keys.stream().anyMatch(key -> key.startsWith(word)));
+    }
+
+    /** Lower-case words of a name or search term. */
+    static List<String> nameWords(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        for (String word : text.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+}
@@ -1,58 +1,365 @@
 package com.audino.service;
 
+import com.audino.model.ExposureHistory;
+import com.audino.model.InteractionAlert;
 import com.audino.model.Medication;
 import com.audino.model.Patient;
+import com.audino.model.PrescribedDrug;
 import com.audino.model.Prescription;
+import com.audino.model.PrescriptionStatus;
 import com.audino.util.ConfigurationManager;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.File;
-import java.io.InputStream;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
-public class DataService {
+public class DataService implements AutoCloseable {
 
     private final ObjectMapper objectMapper;
     private final ConfigurationManager config;
-    private List<Patient> patients = new ArrayList<>();
-    private List<Medication> medications = new ArrayList<>();
-    private List<Prescription> prescriptions = new ArrayList<>();
-    private Map<String, Object> interactionRules;
+    private final DataRepository repository;
+    // Replaced as a whole by a differential reload, so readers never see a half-applied diff
+    private volatile List<Patient> patients = new ArrayList<>();
+    private volatile List<Prescription> prescriptions = new ArrayList<>();
+    // Replaced as a whole on reload; checks that already hold the old snapshot finish on it
+    private volatile Ruleset ruleset;
+    private final DataEventBus eventBus = new DataEventBus();
+    private final PrescriptionIndex prescriptionIndex = new PrescriptionIndex();
+    private final PrescriptionStore prescriptionStore;
+    private final DataFileTracker dataFiles = new DataFileTracker(DataService.class::getResource);
+    private DataFileWatcher dataFileWatcher;
+
+    /**
+     * What a differential reload found and applied: "patients" or
+     * "prescriptions" if records of that kind changed, and the rule files
+     * that changed.
+     */
+    public record ReloadResult(List<String> changedSources, int inserted, int updated, int deleted) {
+
+        public boolean isEmpty() {
+            return changedSources.isEmpty() && inserted == 0 && updated == 0 && deleted == 0;
+        }
+    }
+
+    /** Stores patients and prescriptions in the backend chosen by the storage.backend setting. */
     public DataService() {
+        this(createRepository(ConfigurationManager.getInstance()));
+    }
+
+    public DataService(DataRepository repository) {
         this.config = ConfigurationManager.getInstance();
         this.objectMapper = config.getObjectMapper();
+        this.prescriptionStore = new PrescriptionStore(objectMapper);
+        this.repository = repository;
+    }
+
+    private static DataRepository createRepository(ConfigurationManager config) {
+        if ("mongodb".equalsIgnoreCase(config.getStorageBackend())) {
+            System.out.println("Storing patients and prescriptions in MongoDB database " + config.getMongoDatabase() + ".");
+            return new MongoRepository(config.getMongoUri(), config.getMongoDatabase(), config.getObjectMapper());
+        }
+        return new JsonFileRepository(config, config.getObjectMapper());
+    }
+
+    public DataRepository getRepository() {
+        return repository;
     }
 
     public void loadAllData() {
-        patients = loadData(config.getPatientsDataFile(), new TypeReference<>() {});
-        medications = loadData(config.getMedicationsDataFile(), new TypeReference<>() {});
-        interactionRules = loadData(config.getInteractionRulesDataFile(), new TypeReference<>() {});
-        prescriptions = loadData(config.getPrescriptionsDataFile(), new TypeReference<>() {});
+        patients = new ArrayList<>(repository.loadPatients());
+        List<Medication> medications = loadData(config.getMedicationsDataFile(), new TypeReference<>() {});
+        Map<String, Object> interactionRules = loadData(config.getInteractionRulesDataFile(), new TypeReference<>() {});
+        DrugClassOntology ontology = DrugClassOntology.fromMap(loadData(config.getDrugClassesDataFile(), new TypeReference<>() {}));
+        ruleset = Ruleset.compile(interactionRules, medications, ontology, new RuleStatistics());
+        // Prescriptions refer to medications by id, so they are read against the compiled catalog
+        prescriptions = new ArrayList<>(repository.loadPrescriptions(ruleset));
+        prescriptionIndex.rebuild(prescriptions);
+        patients.forEach(this::normalizePatient);
+        patients.forEach(this::indexHistory);
         System.out.println("All data loaded.");
     }
 
-    private <T> T loadData(String filePath, TypeReference<T> typeRef) {
-        try (InputStream inputStream = DataService.class.getResourceAsStream(filePath)) {
-            if (inputStream == null) {
-                throw new RuntimeException("Cannot find resource file: " + filePath);
+    /**
+     * Re-reads the rule, drug class and medication files, validates them and publishes
+     * the result as the new ruleset. The current ruleset stays in place if
+     * the files are invalid. Runs on the watcher thread while the UI reads
+     * the same patients, so each patient's new codes and profile are
+     * published in one step, like the ruleset itself, rather than edited
+     * field by field.
+     */
+    public synchronized Ruleset reloadRuleset() {
+        List<Medication> medications = loadData(config.getMedicationsDataFile(), new TypeReference<>() {});
+        Map<String, Object> interactionRules = loadData(config.getInteractionRulesDataFile(), new TypeReference<>() {});
+        DrugClassOntology ontology = DrugClassOntology.fromMap(loadData(config.getDrugClassesDataFile(), new TypeReference<>() {}));
+        Ruleset previous = ruleset;
+        // No ruleset yet if the first load failed; statistics start afresh then
+        RuleStatistics statistics = previous != null ? previous.getRuleStatistics() : new RuleStatistics();
+        Ruleset reloaded = Ruleset.compile(interactionRules, medications, ontology, statistics);
+
+        ruleset = reloaded;
+        PrescriptionStore.rehydrate(prescriptions, reloaded);
+        // The keyword vocabulary may have changed, so patient codes are stale
+        getAllPatients().forEach(this::normalizePatient);
+        // Washout periods come from the medication file
+        getAllPatients().forEach(this::indexHistory);
+        System.out.println("Interaction rules reloaded (version " + reloaded.getVersion() + ").");
+        eventBus.publish(new DataEvent.RulesReloaded(previous, reloaded));
+        return reloaded;
+    }
+
+    /**
+     * Applies only what changed in storage since it was last read or
+     * written. The repository reports whether patients and prescriptions
+     * changed; if they did, the records are matched by id against those in
+     * memory and only the inserts, updates and deletes are applied, each
+     * published as a data event. Patients are updated in place so references
+     * to them stay valid. Rule, drug class and medication files whose
+     * modification time and checksum are unchanged are skipped; a change to
+     * any of them reloads the ruleset.
+     *
+     * @param compareUnchangedRecords also compare records not known to have
+     *        changed, to discard edits made in memory but not saved
+     */
+    public synchronized ReloadResult reloadChangedData(boolean compareUnchangedRecords) {
+        List<String> changedSources = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        int deleted = 0;
+
+        List<Patient> storedPatients = repository.loadPatientsIfChanged(compareUnchangedRecords);
+        if (storedPatients != null) {
+            RecordDiff<Patient> diff = applyPatients(storedPatients);
+            if (!diff.isEmpty()) changedSources.add("patients");
+            inserted += diff.getInserted().size();
+            updated += diff.getUpdated().size();
+            deleted += diff.getDeleted().size();
+        }
+
+        List<Prescription> storedPrescriptions = repository.loadPrescriptionsIfChanged(ruleset, compareUnchangedRecords);
+        if (storedPrescriptions != null) {
+            RecordDiff<Prescription> diff = applyPrescriptions(storedPrescriptions);
+            if (!diff.isEmpty()) changedSources.add("prescriptions");
+            inserted += diff.getInserted().size();
+            updated += diff.getUpdated().size();
+            deleted += diff.getDeleted().size();
+        }
+
+        try {
+            boolean rulesChanged = false;
+            for (String ruleFile : ruleFiles()) {
+                if (dataFiles.readIfChanged(ruleFile) != null) {
+                    changedSources.add(ruleFile);
+                    rulesChanged = true;
+                }
+            }
+            // Last, so invalid rules do not hold back record changes
+            if (rulesChanged) reloadRuleset();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reload data: " + e.getMessage(), e);
+        }
+        ReloadResult result = new ReloadResult(changedSources, inserted, updated, deleted);
+        if (!result.isEmpty()) {
+            System.out.println("Reloaded " + changedSources + ": " + inserted + " inserted, " + updated + " updated, "
+                + deleted + " deleted.");
+        }
+        return result;
+    }
+
+    /** Applies the record-level difference between the stored patients and the patients in memory. */
+    RecordDiff<Patient> applyPatients(List<Patient> incoming) {
+        return applyPatients(patients, incoming);
+    }
+
+    /** Like {@link #applyPatients(List)}, comparing the stored records only with the given patients in memory. */
+    private RecordDiff<Patient> applyPatients(List<Patient> current, List<Patient> incoming) {
+        RecordDiff<Patient> diff = RecordDiff.between(current, incoming, Patient::getPatientId, this::patientContent);
+        if (diff.isEmpty()) return diff;
+
+        for (RecordDiff.Update<Patient> update : diff.getUpdated()) {
+            try {
+                objectMapper.updateValue(update.current(), patientContent(update.incoming()));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to update patient " + update.current().getPatientId(), e);
             }
-            return objectMapper.readValue(inputStream, typeRef);
+            normalizePatient(update.current());
+        }
+        Set<String> deletedIds = new HashSet<>();
+        diff.getDeleted().forEach(patient -> deletedIds.add(patient.getPatientId()));
+        List<Patient> next = new ArrayList<>(patients.size() + diff.getInserted().size());
+        patients.stream().filter(patient -> !deletedIds.contains(patient.getPatientId())).forEach(next::add);
+        for (Patient patient : diff.getInserted()) {
+            normalizePatient(patient);
+            indexHistory(patient);
+            next.add(patient);
+        }
+        patients = next;
+
+        diff.getInserted().forEach(patient -> eventBus.publish(new DataEvent.PatientAdded(patient)));
+        diff.getUpdated().forEach(update -> eventBus.publish(new DataEvent.PatientUpdated(update.current())));
+        diff.getDeleted().forEach(patient -> eventBus.publish(new DataEvent.PatientDeleted(patient)));
+        return diff;
+    }
+
+    /** Applies the record-level difference between the stored prescriptions and the prescriptions in memory. */
+    RecordDiff<Prescription> applyPrescriptions(List<Prescription> incoming) {
+        return applyPrescriptions(prescriptions, incoming);
+    }
+
+    /** Like {@link #applyPrescriptions(List)}, comparing the stored records only with the given prescriptions in memory. */
+    private RecordDiff<Prescription> applyPrescriptions(List<Prescription> current, List<Prescription> incoming) {
+        RecordDiff<Prescription> diff = RecordDiff.between(current, incoming, Prescription::getPrescriptionId,
+            prescriptionStore::toStoredNode);
+        if (diff.isEmpty()) return diff;
+
+        Map<String, Prescription> replacements = new HashMap<>();
+        diff.getUpdated().forEach(update -> replacements.put(update.current().getPrescriptionId(), update.incoming()));
+        diff.getDeleted().forEach(prescription -> replacements.put(prescription.getPrescriptionId(), null));
+        List<Prescription> next = new ArrayList<>(prescriptions.size() + diff.getInserted().size());
+        for (Prescription prescription : prescriptions) {
+            String id = prescription.getPrescriptionId();
+            if (!replacements.containsKey(id)) {
+                next.add(prescription);
+            } else if (replacements.get(id) != null) {
+                next.add(replacements.get(id));
+            }
+        }
+        next.addAll(diff.getInserted());
+        prescriptions = next;
+
+        Set<String> patientIds = new HashSet<>();
+        diff.getDeleted().forEach(prescription -> {
+            prescriptionIndex.remove(prescription.getPrescriptionId());
+            patientIds.add(prescription.getPatientId());
+        });
+        List<Prescription> saved = new ArrayList<>();
+        diff.getUpdated().forEach(update -> saved.add(update.incoming()));
+        saved.addAll(diff.getInserted());
+        saved.forEach(prescription -> {
+            prescriptionIndex.update(prescription);
+            patientIds.add(prescription.getPatientId());
+        });
+        for (String patientId : patientIds) {
+            Patient patient = getPatient(patientId);
+            if (patient != null) indexHistory(patient);
+        }
+
+        saved.forEach(prescription -> eventBus.publish(new DataEvent.PrescriptionSaved(prescription, List.of())));
+        diff.getDeleted().forEach(prescription -> eventBus.publish(new DataEvent.PrescriptionDeleted(prescription)));
+        return diff;
+    }
+
+    /** A patient as stored, without the codes derived from their terms. */
+    private JsonNode patientContent(Patient patient) {
+        ObjectNode node = objectMapper.valueToTree(patient);
+        node.remove(List.of("allergyCodes", "conditionCodes"));
+        return node;
+    }
+
+    private List<String> ruleFiles() {
+        return List.of(config.getInteractionRulesDataFile(), config.getDrugClassesDataFile(), config.getMedicationsDataFile());
+    }
+
+    /**
+     * Starts watching the data files and applies their changes off-thread
+     * through {@link #reloadChangedData}. Only possible when the files live
+     * on the file system rather than inside a jar.
+     */
+    public void startWatchingDataFiles() {
+        if (dataFileWatcher != null) return;
+        List<Path> files = new ArrayList<>();
+        List<String> resources = new ArrayList<>(ruleFiles());
+        resources.addAll(repository.getWatchedFiles());
+        for (String resource : resources) {
+            URL url = DataService.class.getResource(resource);
+            if (url == null || !"file".equals(url.getProtocol())) {
+                System.out.println("Data hot reload disabled: " + resource + " is not on the file system.");
+                return;
+            }
+            try {
+                files.add(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                System.err.println("Data hot reload disabled: " + e.getMessage());
+                return;
+            }
+        }
+        try {
+            dataFileWatcher = new DataFileWatcher(files, () -> reloadChangedData(false));
+        } catch (IOException e) {
+            System.err.println("Could not watch data files: " + e.getMessage());
+        }
+    }
+
+    public void stopWatchingDataFiles() {
+        if (dataFileWatcher != null) {
+            dataFileWatcher.close();
+            dataFileWatcher = null;
+        }
+    }
+
+    /** Stops watching the data files and releases the repository. */
+    @Override
+    public void close() {
+        stopWatchingDataFiles();
+        repository.close();
+    }
+
+    /** Bus on which patient, prescription and ruleset changes are published once applied. */
+    public DataEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Maps the patient's terms onto rule codes and rebuilds their
+     * contraindication profile against the current ruleset.
+     */
+    public TermNormalizer.Result normalizePatient(Patient patient) {
+        TermNormalizer.Result result = ruleset.normalize(patient);
+        if (!result.getFuzzyAllergies().isEmpty() || !result.getFuzzyConditions().isEmpty()) {
+            System.out.println("Misspelt terms matched for patient " + patient.getPatientId() + ": allergies="
+                + result.getFuzzyAllergies() + ", conditions=" + result.getFuzzyConditions());
+        }
+        if (result.hasUnmappedTerms()) {
+            System.out.println("Unmapped terms for patient " + patient.getPatientId() + ": allergies="
+                + result.getUnmappedAllergies() + ", conditions=" + result.getUnmappedConditions());
+        }
+        return result;
+    }
+
+    private <T> T loadData(String filePath, TypeReference<T> typeRef) {
+        try {
+            byte[] content = dataFiles.read(filePath);
+            T data = objectMapper.readValue(content, typeRef);
+            dataFiles.record(filePath, content);
+            return data;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to load data from " + filePath, e);
         }
     }
-    
+
     public List<Patient> getAllPatients() {
         return new ArrayList<>(patients);
     }
 
     public List<Medication> getAllMedications() {
-        return new ArrayList<>(medications);
+        return new ArrayList<>(ruleset.getMedications());
     }
     
     public List<Prescription> getAllPrescriptions() {
@@ -60,126 +367,343 @@ public class DataService {
     }
 
     public Map<String, Object> getInteractionRules() {
-        return interactionRules;
+        return ruleset.getRules();
+    }
+
+    public Ruleset getRuleset() {
+        return ruleset;
+    }
+
+    public long getRulesetVersion() {
+        return ruleset.getVersion();
+    }
+
+    public TermNormalizer getTermNormalizer() {
+        return ruleset.getTermNormalizer();
+    }
+
+    public RuleStatistics getRuleStatistics() {
+        return ruleset.getRuleStatistics();
+    }
+
+    /** Prints per-rule evaluation counters for review. */
+    public void logRuleStatistics() {
+        if (ruleset == null) return;
+        RuleStatistics statistics = ruleset.getRuleStatistics();
+        statistics.snapshot().stream()
+            .filter(stats -> stats.evaluations() > 0)
+            .forEach(stats -> System.out.printf("Rule %s: %d evaluations, %d hits (%.1f%%), %d ns average%n",
+                stats.rule(), stats.evaluations(), stats.hits(), stats.hitRate() * 100, stats.averageNanos()));
+        List<String> neverFired = statistics.neverFired();
+        if (!neverFired.isEmpty()) {
+            System.out.println("Rules that never fired this session: " + neverFired);
+        }
     }
     
+    /**
+     * Patients whose name matches the term. A repository with indexed
+     * finders, shared with other workstations, is queried directly, and
+     * patients it returns that were added or changed elsewhere are brought
+     * into memory first; otherwise the patients in memory are searched.
+     */
     public List<Patient> searchPatients(String searchTerm) {
+        if (repository.hasIndexedFinders()) {
+            List<Patient> found = repository.findPatientsByName(searchTerm == null ? "" : searchTerm);
+            Set<String> ids = new LinkedHashSet<>();
+            found.forEach(patient -> ids.add(patient.getPatientId()));
+            synchronized (this) {
+                applyPatients(patients.stream().filter(patient -> ids.contains(patient.getPatientId())).toList(), found);
+            }
+            return ids.stream().map(this::getPatient).filter(Objects::nonNull).collect(Collectors.toList());
+        }
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllPatients();
         }
-        String lowerCaseTerm = searchTerm.toLowerCase();
         return patients.stream()
-                .filter(p -> p.getFullName().toLowerCase().contains(lowerCaseTerm))
+                .filter(p -> matchesPatientSearch(p, searchTerm))
                 .collect(Collectors.toList());
     }
 
+    /** Whether {@link #searchPatients} would return the patient for this term. */
+    public boolean matchesPatientSearch(Patient patient, String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) return true;
+        if (repository.hasIndexedFinders()) return DataRepository.matchesName(patient, searchTerm);
+        return patient.getFullName().toLowerCase().contains(searchTerm.toLowerCase());
+    }
+
+    /**
+     * Brings a patient's prescriptions in memory up to date with a repository
+     * that has indexed finders, so prescriptions saved for them on another
+     * workstation show when they are opened. Unsaved edits to their
+     * prescriptions are discarded. Does nothing for other repositories,
+     * which only this service writes to.
+     */
+    public synchronized void refreshPrescriptionsForPatient(String patientId) {
+        if (!repository.hasIndexedFinders()) return;
+        List<Prescription> stored = repository.findPrescriptionsForPatient(patientId, ruleset);
+        applyPrescriptions(prescriptions.stream().filter(p -> p.getPatientId().equals(patientId)).toList(), stored);
+    }
+
     public List<Medication> searchMedications(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllMedications();
         }
         String lowerCaseTerm = searchTerm.toLowerCase();
-        return medications.stream()
+        return ruleset.getMedications().stream()
                 .filter(m -> m.getGenericName().toLowerCase().contains(lowerCaseTerm) ||
                              (m.getBrandName() != null && m.getBrandName().toLowerCase().contains(lowerCaseTerm)))
                 .collect(Collectors.toList());
     }
 
-    public void savePatient(Patient patient) {
-        patients.add(patient);
-        // Persist changes immediately to files
-        saveAllData();
+    public synchronized void savePatient(Patient patient) {
+        if (!patient.isNormalized()) {
+            normalizePatient(patient);
+        } else {
+            patient.setContraindicationProfile(ruleset.buildProfile(patient));
+        }
+        // Copied rather than edited, as readers and the watcher thread hold the current list
+        List<Patient> next = new ArrayList<>(patients);
+        next.add(patient);
+        patients = next;
+        eventBus.publish(new DataEvent.PatientAdded(patient));
+        // Persist changes immediately
+        persist(() -> repository.savePatients(List.of(patient)));
     }
 
-    public void updatePatient(Patient patient) {
+    public synchronized void updatePatient(Patient patient) {
+        if (!patient.isNormalized()) {
+            normalizePatient(patient);
+        } else {
+            patient.setContraindicationProfile(ruleset.buildProfile(patient));
+        }
         // Patient is already in the list by reference
-        // Persist changes immediately to files
-        saveAllData();
+        eventBus.publish(new DataEvent.PatientUpdated(patient));
+        // Persist changes immediately
+        persist(() -> repository.savePatients(List.of(patient)));
+    }
+
+    public synchronized void deletePatient(Patient patient) {
+        List<Patient> next = new ArrayList<>(patients);
+        next.remove(patient);
+        patients = next;
+        eventBus.publish(new DataEvent.PatientDeleted(patient));
+        // Persist changes immediately
+        persist(() -> repository.deletePatients(List.of(patient.getPatientId())));
+    }
+
+    public synchronized void savePrescription(Prescription prescription) {
+        List<Prescription> changed = new ArrayList<>(recordPrescription(prescription));
+        changed.add(prescription);
+        // Persist changes immediately, superseded versions included
+        persist(() -> repository.savePrescriptions(changed));
+    }
+
+    /**
+     * Makes a prescription the patient's current one. Earlier prescriptions
+     * are kept as superseded versions rather than removed, so drugs stopped
+     * recently still count towards interactions until their washout ends.
+     * A prescription edited in place is compared with the drugs it had when
+     * last saved: drugs added since start now, and if any were removed the
+     * saved drug list is kept as a superseded version of its own.
+     *
+     * @return the prescriptions it superseded
+     */
+    synchronized List<Prescription> recordPrescription(Prescription prescription) {
+        LocalDateTime now = LocalDateTime.now();
+        Prescription stored = null;
+        List<Prescription> superseded = new ArrayList<>();
+        int latestVersion = 0;
+        List<Prescription> next = new ArrayList<>(prescriptions);
+        for (Prescription existing : next) {
+            if (!existing.getPatientId().equals(prescription.getPatientId())) continue;
+            if (existing.equals(prescription)) {
+                stored = existing;
+                continue;
+            }
+            latestVersion = Math.max(latestVersion, existing.getVersion());
+            if (existing.isCurrent()) {
+                existing.setSupersededAt(now);
+                existing.setStatus(PrescriptionStatus.SUPERSEDED);
+                prescriptionIndex.update(existing);
+                superseded.add(existing);
+            }
+        }
+        if (stored != null) {
+            next.remove(stored);
+            Prescription earlier = recordEdit(prescription, now);
+            if (earlier != null) {
+                earlier.setVersion(stored.getVersion());
+                prescription.setVersion(Math.max(latestVersion, stored.getVersion()) + 1);
+                next.add(earlier);
+                superseded.add(earlier);
+            } else {
+                prescription.setVersion(stored.getVersion());
+            }
+        } else {
+            prescription.setVersion(latestVersion + 1);
+        }
+        next.add(prescription);
+        prescriptions = next;
+        prescriptionIndex.update(prescription);
+        Patient patient = getPatient(prescription.getPatientId());
+        if (patient != null) indexHistory(patient);
+        eventBus.publish(new DataEvent.PrescriptionSaved(prescription, superseded));
+        return superseded;
     }
 
-    public void deletePatient(Patient patient) {
-        patients.remove(patient);
-        // Persist changes immediately to files
-        saveAllData();
+    /**
+     * Stamps drugs added to a saved prescription with the time they start and
+     * returns the drugs it had when last saved as a superseded copy, or null
+     * if none were removed.
+     */
+    private Prescription recordEdit(Prescription prescription, LocalDateTime now) {
+        List<PrescribedDrug> saved = prescriptionIndex.indexedDrugs(prescription.getPrescriptionId());
+        if (saved.isEmpty()) return null;
+        Set<String> savedIds = new HashSet<>();
+        saved.forEach(drug -> savedIds.add(drug.getMedicationId()));
+        Set<String> currentIds = new HashSet<>();
+        for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+            currentIds.add(drug.getMedicationId());
+            if (!savedIds.contains(drug.getMedicationId()) && drug.getStartedAt() == null) drug.setStartedAt(now);
+        }
+        if (currentIds.containsAll(savedIds)) return null;
+
+        Prescription earlier = new Prescription();
+        earlier.setPrescriptionId("RX-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        earlier.setPatientId(prescription.getPatientId());
+        earlier.setPrescribedBy(prescription.getPrescribedBy());
+        earlier.setCreatedAt(prescription.getCreatedAt());
+        earlier.setPrescribedDrugs(new ArrayList<>(saved.stream().map(PrescribedDrug::new).toList()));
+        earlier.setStatus(PrescriptionStatus.SUPERSEDED);
+        earlier.setSupersededAt(now);
+        return earlier;
     }
 
-    public void savePrescription(Prescription prescription) {
-        // Remove any existing prescriptions for this patient to ensure only one active prescription
-        prescriptions.removeIf(p -> p.getPatientId().equals(prescription.getPatientId()));
-        prescriptions.add(prescription);
-        // Persist changes immediately to files
-        saveAllData();
+    /** Rebuilds the interval tree of the patient's medication exposure windows. */
+    private void indexHistory(Patient patient) {
+        Ruleset current = ruleset;
+        patient.setExposureHistory(ExposureHistory.build(getPrescriptionsForPatient(patient), medicationId -> {
+            Medication med = current.getMedication(medicationId);
+            return med != null && med.getWashoutDays() != null ? med.getWashoutDays() : 0;
+        }));
     }
 
-    public boolean addMedicationToExistingPrescription(String patientId, Medication medication, String dosage, String frequency, String duration, String prescribingPhysician) {
+    public synchronized boolean addMedicationToExistingPrescription(String patientId, Medication medication, String dosage, String frequency, String duration, String prescribingPhysician) {
         // Find existing prescription for the patient
-        Prescription existingPrescription = prescriptions.stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .findFirst()
-                .orElse(null);
+        Prescription existingPrescription = getActivePrescriberionForPatient(patientId);
         
         if (existingPrescription != null) {
-            // Add medication to existing prescription
-            existingPrescription.addPrescribedDrug(new com.audino.model.PrescribedDrug(
-                medication, dosage, frequency, duration, "", prescribingPhysician));
-            // Persist changes immediately to files
-            saveAllData();
+            // Add medication to existing prescription, counting it from now rather than from the prescription's creation
+            PrescribedDrug drug = new PrescribedDrug(medication, dosage, frequency, duration, "", prescribingPhysician);
+            drug.setStartedAt(LocalDateTime.now());
+            existingPrescription.addPrescribedDrug(drug);
+            prescriptionIndex.update(existingPrescription);
+            Patient patient = getPatient(patientId);
+            if (patient != null) indexHistory(patient);
+            eventBus.publish(new DataEvent.PrescriptionSaved(existingPrescription, List.of()));
+            // Persist changes immediately
+            persist(() -> repository.savePrescriptions(List.of(existingPrescription)));
             return true;
         }
         return false; // No existing prescription found
     }
 
+    /**
+     * Replaces the stored alerts of re-screened prescriptions and writes them
+     * in one batch. Holds the lock the watcher thread's reload holds, so the
+     * alerts never change under a reload comparing or replacing them.
+     */
+    public synchronized void saveAlerts(Map<Prescription, List<InteractionAlert>> updated) {
+        if (updated.isEmpty()) return;
+        updated.forEach(Prescription::setAlerts);
+        List<Prescription> changed = new ArrayList<>(updated.keySet());
+        persist(() -> repository.savePrescriptions(changed));
+    }
+
     public List<Prescription> getPrescriptionsForPatient(Patient patient) {
         return prescriptions.stream()
                 .filter(p -> p.getPatientId().equals(patient.getPatientId()))
                 .collect(Collectors.toList());
     }
     
-    public Prescription getActivePrescriberionForPatient(String patientId) {
-        return prescriptions.stream()
+    /**
+     * Current prescriptions a ruleset change can affect: those containing a
+     * medication in a changed class or a changed catalog entry, and those of
+     * patients with a changed keyword. Resolved through reverse indexes, so
+     * unaffected prescriptions are never visited unless the change is global.
+     */
+    public Set<Prescription> getImpactedPrescriptions(RulesetDiff diff, Ruleset before, Ruleset after) {
+        if (diff.isGlobal()) return prescriptionIndex.all();
+        Set<String> medicationIds = new HashSet<>(diff.getMedicationIds());
+        for (String drugClass : diff.getClasses()) {
+            medicationIds.addAll(before.medicationsInClass(drugClass));
+            medicationIds.addAll(after.medicationsInClass(drugClass));
+        }
+        Set<Prescription> impacted = new LinkedHashSet<>();
+        medicationIds.forEach(id -> impacted.addAll(prescriptionIndex.withMedication(id)));
+        if (!diff.getKeywords().isEmpty()) {
+            for (Patient patient : patients) {
+                if (hasAnyCode(patient.getAllergyCodes(), diff.getKeywords()) || hasAnyCode(patient.getConditionCodes(), diff.getKeywords())) {
+                    impacted.addAll(prescriptionIndex.forPatient(patient.getPatientId()));
+                }
+            }
+        }
+        return impacted;
+    }
+
+    private static boolean hasAnyCode(Map<String, List<String>> codes, Set<String> keywords) {
+        if (codes == null) return false;
+        return codes.values().stream().flatMap(List::stream).anyMatch(code -> keywords.contains(code.toLowerCase()));
+    }
+
+    public Patient getPatient(String patientId) {
+        return patients.stream()
                 .filter(p -> p.getPatientId().equals(patientId))
                 .findFirst()
                 .orElse(null);
     }
+
+    /** The patient's current prescriptions, read from the reverse index. */
+    public Set<Prescription> getCurrentPrescriptions(String patientId) {
+        return prescriptionIndex.forPatient(patientId);
+    }
+
+    public Prescription getActivePrescriberionForPatient(String patientId) {
+        return prescriptions.stream()
+                .filter(p -> p.getPatientId().equals(patientId) && p.isCurrent())
+                .max(Comparator.comparingInt(Prescription::getVersion))
+                .orElse(null);
+    }
     
+    /** Replaces everything stored with the records in memory. */
     public void saveAllData() {
-        try {
-            saveDataToFile(patients, config.getPatientsDataFile());
-            saveDataToFile(prescriptions, config.getPrescriptionsDataFile());
-            System.out.println("All data saved successfully.");
-        } catch (Exception e) {
-            System.err.println("Error saving data: " + e.getMessage());
-            e.printStackTrace();
-        }
+        saveAllData(getAllPatients(), getAllPrescriptions());
     }
     
+    /**
+     * Replaces everything stored with these records. Skipped for a store
+     * shared with other workstations, where it would overwrite their newer
+     * writes and delete records this service has not loaded; every change is
+     * written through as it happens, so there is nothing left to save.
+     */
     public void saveAllData(List<Patient> currentPatients, List<Prescription> currentPrescriptions) {
-        try {
-            saveDataToFile(currentPatients, config.getPatientsDataFile());
-            saveDataToFile(currentPrescriptions, config.getPrescriptionsDataFile());
+        if (repository.hasIndexedFinders()) {
+            System.out.println("Skipping full save: changes are already written through to the shared store.");
+            return;
+        }
+        persist(() -> {
+            repository.replaceAll(currentPatients, currentPrescriptions);
             System.out.println("All data saved successfully.");
+        });
+    }
+
+    /** Runs a write against the repository; a failed write is logged and the change stays in memory. */
+    private void persist(Runnable write) {
+        try {
+            write.run();
         } catch (Exception e) {
             System.err.println("Error saving data: " + e.getMessage());
             e.printStackTrace();
         }
     }
-    
-    private <T> void saveDataToFile(T data, String resourcePath) throws Exception {
-        String projectRoot = System.getProperty("user.dir");
-        
-        // Save to source directory (src/main/resources)
-        String sourceFilePath = Paths.get(projectRoot, "src", "main", "resources", resourcePath).toString();
-        File sourceFile = new File(sourceFilePath);
-        sourceFile.getParentFile().mkdirs();
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(sourceFile, data);
-        System.out.println("Saved data to source: " + sourceFilePath);
-        
-        // Also save to target directory (target/classes) for immediate effect
-        String targetFilePath = Paths.get(projectRoot, "target", "classes", resourcePath).toString();
-        File targetFile = new File(targetFilePath);
-        if (targetFile.getParentFile().exists()) {
-            targetFile.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(targetFile, data);
-            System.out.println("Saved data to target: " + targetFilePath);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package com.audino.service;
+
+import com.audino.util.ConfigurationManager;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Hierarchy of drug classes loaded from drug-classes.json: each class names
+ * its parent classes, and cross-reactivity edges link classes that share an
+ * allergic reaction without being related by descent. Ancestor sets are
+ * closed transitively when the ontology is built, so a rule on a parent
+ * class matches every descendant without walking the graph during checks.
+ * Class names are matched case-insensitively.
+ */
+public class DrugClassOntology {
+
+    private static final DrugClassOntology EMPTY = new DrugClassOntology(Map.of(), Map.of());
+
+    private final Map<String, Set<String>> ancestors;
+    private final Map<String, Set<String>> crossReactive;
+
+    private DrugClassOntology(Map<String, Set<String>> ancestors, Map<String, Set<String>> crossReactive) {
+        this.ancestors = ancestors;
+        this.crossReactive = crossReactive;
+    }
+
+    public static DrugClassOntology empty() {
+        return EMPTY;
+    }
+
+    /** Loaded on first use, for callers that compile rules without an ontology of their own. */
+    private static final class Bundled {
+        static final DrugClassOntology INSTANCE = load(ConfigurationManager.getInstance().getDrugClassesDataFile());
+    }
+
+    /**
+     * The ontology shipped with the bundled rules. The rules name parent
+     * classes, so compiling them against an empty ontology would lose every
+     * match that relies on descent or cross-reactivity.
+     */
+    public static DrugClassOntology bundled() {
+        return Bundled.INSTANCE;
+    }
+
+    private static DrugClassOntology load(String resource) {
+        try (InputStream input = DrugClassOntology.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Drug class ontology " + resource + " not found on the classpath.");
+            }
+            return fromMap(new ObjectMapper().readValue(input, new TypeReference<Map<String, Object>>() {}));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load drug class ontology from " + resource, e);
+        }
+    }
+
+    /**
+     * Builds the ontology from its JSON form, with a "classes" object mapping
+     * each class to its parents and a "crossReactivity" list of class pairs.
+     *
+     * @throws IllegalArgumentException if the file is malformed or the hierarchy has a cycle
+     */
+    public static DrugClassOntology fromMap(Map<String, Object> data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Drug class ontology is missing.");
+        }
+        Map<String, List<String>> parents = new HashMap<>();
+        Object classes = data.get("classes");
+        if (classes != null) {
+            if (!(classes instanceof Map<?, ?> classMap)) {
+                throw new IllegalArgumentException("Drug class ontology 'classes' must be an object.");
+            }
+            classMap.forEach((name, parentList) -> {
+                List<String> upper = new ArrayList<>();
+                RuleSupport.classList(parentList).forEach(parent -> upper.add(parent.toUpperCase()));
+                if (upper.isEmpty()) {
+                    throw new IllegalArgumentException("Drug class '" + name + "' has no parent classes.");
+                }
+                parents.put(String.valueOf(name).toUpperCase(), upper);
+            });
+        }
+
+        Map<String, Set<String>> ancestors = new HashMap<>();
+        for (String name : parents.keySet()) {
+            close(name, parents, ancestors, new LinkedHashSet<>());
+        }
+
+        Map<String, Set<String>> crossReactive = new HashMap<>();
+        Object edges = data.get("crossReactivity");
+        if (edges != null) {
+            if (!(edges instanceof List<?> edgeList)) {
+                throw new IllegalArgumentException("Drug class ontology 'crossReactivity' must be a list.");
+            }
+            for (Object edge : edgeList) {
+                List<String> pair = RuleSupport.classList(edge);
+                if (pair.size() != 2) {
+                    throw new IllegalArgumentException("Cross-reactivity entry " + edge + " must name exactly two classes.");
+                }
+                String a = pair.get(0).toUpperCase();
+                String b = pair.get(1).toUpperCase();
+                crossReactive.computeIfAbsent(a, k -> new HashSet<>()).add(b);
+                crossReactive.computeIfAbsent(b, k -> new HashSet<>()).add(a);
+            }
+        }
+        crossReactive.replaceAll((name, related) -> Collections.unmodifiableSet(related));
+        return new DrugClassOntology(ancestors, crossReactive);
+    }
+
+    private static Set<String> close(String name, Map<String, List<String>> parents,
+                                     Map<String, Set<String>> ancestors, Set<String> path) {
+        Set<String> closed = ancestors.get(name);
+        if (closed != null) return closed;
+        if (!path.add(name)) {
+            throw new IllegalArgumentException("Drug class hierarchy has a cycle: " + String.join(" -> ", path) + " -> " + name);
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String parent : parents.getOrDefault(name, List.of())) {
+            result.add(parent);
+            result.addAll(close(parent, parents, ancestors, path));
+        }
+        path.remove(name);
+        closed = Collections.unmodifiableSet(result);
+        ancestors.put(name, closed);
+        return closed;
+    }
+
+    /** Every class the ontology mentions, as parent, child or cross-reactivity partner. */
+    public Set<String> getClasses() {
+        Set<String> classes = new LinkedHashSet<>();
+        ancestors.forEach((name, closed) -> {
+            classes.add(name);
+            classes.addAll(closed);
+        });
+        crossReactive.forEach((name, related) -> {
+            classes.add(name);
+            classes.addAll(related);
+        });
+        return classes;
+    }
+
+    /** All ancestors of a class, excluding the class itself. */
+    public Set<String> getAncestors(String drugClass) {
+        return drugClass != null ? ancestors.getOrDefault(drugClass.toUpperCase(), Set.of()) : Set.of();
+    }
+
+    /** Classes directly cross-reactive with a class. */
+    public Set<String> getCrossReactive(String drugClass) {
+        return drugClass != null ? crossReactive.getOrDefault(drugClass.toUpperCase(), Set.of()) : Set.of();
+    }
+
+    /** The hierarchy and cross-reactivity edges in a deterministic text form, for content stamps. */
+    String canonicalForm() {
+        Map<String, Set<String>> related = new TreeMap<>();
+        crossReactive.forEach((name, classes) -> related.put(name, new TreeSet<>(classes)));
+        return new TreeMap<>(ancestors) + "|" + related;
+    }
+
+    /** The given classes, upper-cased, together with all of their ancestors. */
+    public Set<String> expand(Collection<String> drugClasses) {
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String drugClass : drugClasses) {
+            expanded.add(drugClass.toUpperCase());
+            expanded.addAll(getAncestors(drugClass));
+        }
+        return expanded;
+    }
+}
@@ -2,11 +2,8 @@ package com.audino.service;
 
 import com.audino.model.*;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 public class DrugDrugCheckStrategy implements InteractionCheckStrategy {
     @Override
@@ -15,97 +12,46 @@ public class DrugDrugCheckStrategy implements InteractionCheckStrategy {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<InteractionAlert> check(Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
-        List<InteractionAlert> alerts = new ArrayList<>();
-        
-        List<Medication> meds = prescription.getPrescribedDrugs().stream()
-            .map(drug -> allMedications.stream()
-                .filter(m -> m.getMedicationId().equals(drug.getMedicationId()))
-                .findFirst().orElse(null))
-            .filter(m -> m != null)
-            .collect(Collectors.toList());
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        List<Medication> meds = RuleSupport.prescribedMedications(prescription, ruleset);
 
-        if (meds.size() < 2 || rules == null) {
-            return alerts;
+        if (meds.size() < 2) {
+            return;
         }
 
-        Map<String, Object> drugDrugRules = (Map<String, Object>) rules.get("drugDrugInteractions");
-        if (drugDrugRules == null) return alerts;
+        AdaptiveRuleOrder<Ruleset.PairRule> order = ruleset.pairRuleOrder();
+        List<Ruleset.PairRule> rules = order.rules();
+        if (rules.isEmpty()) return;
 
-        for (int i = 0; i < meds.size(); i++) {
-            for (int j = i + 1; j < meds.size(); j++) {
-                Medication med1 = meds.get(i);
-                Medication med2 = meds.get(j);
-
-                Set<String> ids1 = new HashSet<>(med1.getInteractionIdentifiers());
-                Set<String> ids2 = new HashSet<>(med2.getInteractionIdentifiers());
+        // Class bits include ancestor classes, so rules on a parent class match with the same mask test
+        List<BitSet> classBits = new ArrayList<>(meds.size());
+        for (Medication med : meds) {
+            classBits.add(ruleset.classBits(med.getMedicationId()));
+        }
 
-                drugDrugRules.forEach((key, ruleObj) -> {
-                    Map<String, Object> rule = (Map<String, Object>) ruleObj;
-                    Object drug1Obj = rule.get("drug1");
-                    Object drug2Obj = rule.get("drug2");
-                    
-                    // Handle both String and List<String> for drug classes
-                    List<String> drug1Classes = new ArrayList<>();
-                    List<String> drug2Classes = new ArrayList<>();
-                    
-                    if (drug1Obj instanceof String) {
-                        drug1Classes.add((String) drug1Obj);
-                    } else if (drug1Obj instanceof List) {
-                        drug1Classes.addAll((List<String>) drug1Obj);
-                    }
-                    
-                    if (drug2Obj instanceof String) {
-                        drug2Classes.add((String) drug2Obj);
-                    } else if (drug2Obj instanceof List) {
-                        drug2Classes.addAll((List<String>) drug2Obj);
-                    }
-                    
-                    // Check if any combination of drug1 and drug2 classes match
-                    boolean matchFound = false;
-                    for (String drug1Class : drug1Classes) {
-                        for (String drug2Class : drug2Classes) {
-                            boolean pair1Match = ids1.stream().anyMatch(id -> id.equalsIgnoreCase(drug1Class)) &&
-                                                 ids2.stream().anyMatch(id -> id.equalsIgnoreCase(drug2Class));
-                            
-                            boolean pair2Match = ids1.stream().anyMatch(id -> id.equalsIgnoreCase(drug2Class)) &&
-                                                 ids2.stream().anyMatch(id -> id.equalsIgnoreCase(drug1Class));
-                            
-                            if (pair1Match || pair2Match) {
-                                matchFound = true;
-                                break;
-                            }
-                        }
-                        if (matchFound) break;
-                    }
-                    
-                    if (matchFound) {
-                        alerts.add(createAlert(med1, med2, rule));
+        for (Ruleset.PairRule rule : rules) {
+            if (sink.isCancelled()) return;
+            // Rules are ordered most severe first, so nothing after this one is wanted either
+            if (!sink.wants(rule.level())) return;
+
+            RuleStatistics.Counter counter = order.counter(rule);
+            long start = System.nanoTime();
+            boolean hit = false;
+            for (int i = 0; i < meds.size(); i++) {
+                for (int j = i + 1; j < meds.size(); j++) {
+                    if (!rule.matches(classBits.get(i), classBits.get(j))) continue;
+                    hit = true;
+                    if (!sink.accept(createMatch(rule.ruleId(), meds.get(i), meds.get(j), rule.level()))) {
+                        counter.record(start, true);
+                        return;
                     }
-                });
+                }
             }
+            counter.record(start, hit);
         }
-        return alerts;
     }
 
-    private InteractionAlert createAlert(Medication m1, Medication m2, Map<String, Object> rule) {
-        String severity = (String) rule.get("severity");
-        AlertLevel level = "CRITICAL".equalsIgnoreCase(severity) ? AlertLevel.CRITICAL : AlertLevel.WARNING;
-        String message = String.format(
-            "%s and %s may interact. %s",
-            m1.getDisplayName(), m2.getDisplayName(), rule.get("description")
-        );
-        String involved = m1.getDisplayName() + " & " + m2.getDisplayName();
-        
-        return new InteractionAlert(
-            level,
-            AlertType.DRUG_DRUG,
-            "Drug-Drug Interaction",
-            message,
-            (String) rule.get("recommendation"),
-            involved,
-            null
-        );
+    private AlertMatch createMatch(String ruleId, Medication m1, Medication m2, AlertLevel level) {
+        return new AlertMatch(ruleId, AlertType.DRUG_DRUG, level, List.of(m1.getMedicationId(), m2.getMedicationId()), null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Flags active ingredients that reach the patient through more than one
+ * prescribed product, such as two brands of the same drug or a combination
+ * inhaler alongside one of its components. Ingredients are collected in one
+ * pass over the regimen; drugs are only revisited for the ingredients that
+ * turned out to be duplicated.
+ */
+public class DuplicateTherapyCheckStrategy implements InteractionCheckStrategy {
+
+    static final String RULE_ID = "duplicateIngredient";
+
+    @Override
+    public String getStrategyName() {
+        return "Duplicate Therapy Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        if (!sink.wants(AlertLevel.WARNING)) return;
+        List<Medication> meds = RuleSupport.prescribedMedications(prescription, ruleset);
+        if (meds.size() < 2) return;
+
+        IngredientIndex index = ruleset.getIngredientIndex();
+        BitSet duplicated = duplicatedIngredients(index, meds);
+        for (int bit = duplicated.nextSetBit(0); bit >= 0; bit = duplicated.nextSetBit(bit + 1)) {
+            if (sink.isCancelled()) return;
+            if (!sink.accept(createMatch(index, bit, meds))) return;
+        }
+    }
+
+    /** Ingredients contained in more than one entry of the regimen. */
+    static BitSet duplicatedIngredients(IngredientIndex index, List<Medication> regimen) {
+        BitSet seen = new BitSet(index.size());
+        BitSet duplicated = new BitSet(index.size());
+        for (Medication med : regimen) {
+            BitSet ingredients = index.ingredientsOf(med.getMedicationId());
+            for (int bit = ingredients.nextSetBit(0); bit >= 0; bit = ingredients.nextSetBit(bit + 1)) {
+                if (seen.get(bit)) duplicated.set(bit);
+                else seen.set(bit);
+            }
+        }
+        return duplicated;
+    }
+
+    static AlertMatch createMatch(IngredientIndex index, int bit, List<Medication> regimen) {
+        List<String> medicationIds = new ArrayList<>();
+        for (Medication med : regimen) {
+            if (index.ingredientsOf(med.getMedicationId()).get(bit)) {
+                medicationIds.add(med.getMedicationId());
+            }
+        }
+        return new AlertMatch(RULE_ID, AlertType.DUPLICATE_THERAPY, AlertLevel.WARNING, medicationIds, index.name(bit));
+    }
+}
@@ -0,0 +1,55 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import com.audino.service.rules.ExpressionRule;
+import com.audino.service.rules.RuleContext;
+import java.util.List;
+
+/**
+ * Evaluates the compiled rules of the expressionRules section against each
+ * prescribed medication.
+ */
+public class ExpressionRuleCheckStrategy implements InteractionCheckStrategy {
+
+    @Override
+    public String getStrategyName() {
+        return "Expression Rule Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        AdaptiveRuleOrder<ExpressionRule> order = ruleset.expressionRuleOrder();
+        List<ExpressionRule> rules = order.rules();
+        if (rules.isEmpty()) return;
+
+        List<Medication> prescribedMedications = RuleSupport.prescribedMedications(prescription, ruleset);
+        if (prescribedMedications.isEmpty()) return;
+
+        RuleContext context = new RuleContext(patient, prescribedMedications, ruleset.getExpressionMemoSlots(),
+            ruleset.getOntology()::expand);
+
+        for (ExpressionRule rule : rules) {
+            if (sink.isCancelled()) return;
+            // Rules are ordered most severe first, so nothing after this one is wanted either
+            if (!sink.wants(rule.alertLevel())) return;
+
+            RuleStatistics.Counter counter = order.counter(rule);
+            long start = System.nanoTime();
+            boolean hit = false;
+            for (int i = 0; i < prescribedMedications.size(); i++) {
+                context.setCurrent(i);
+                if (!rule.predicate().test(context)) continue;
+                hit = true;
+                if (!sink.accept(createMatch(rule, prescribedMedications.get(i)))) {
+                    counter.record(start, true);
+                    return;
+                }
+            }
+            counter.record(start, hit);
+        }
+    }
+
+    private AlertMatch createMatch(ExpressionRule rule, Medication m) {
+        return new AlertMatch(rule.ruleId(), rule.alertType(), rule.alertLevel(), List.of(m.getMedicationId()), rule.patientFactor());
+    }
+}
@@ -0,0 +1,105 @@
+package com.audino.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * BK-tree over rule keywords for finding the keywords within a small edit
+ * distance of a misspelt word. Each node keeps its children by their
+ * distance to it, so by the triangle inequality a search only descends into
+ * children whose distance lies within the tolerance of the query's distance
+ * to the node, and most of the vocabulary is never compared.
+ */
+final class FuzzyKeywordIndex {
+
+    private static final class Node {
+        final String keyword;
+        final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    private Node root;
+    private int maxWords;
+
+    FuzzyKeywordIndex(Collection<String> keywords) {
+        for (String keyword : keywords) {
+            add(keyword.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void add(String keyword) {
+        maxWords = Math.max(maxWords, keyword.split(" ").length);
+        if (root == null) {
+            root = new Node(keyword);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(keyword, node.keyword);
+            if (distance == 0) return;
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(keyword));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /** Number of words in the longest keyword, which bounds the phrases worth looking up. */
+    int maxWords() {
+        return maxWords;
+    }
+
+    /** Keywords within {@code tolerance} edits of a lower-case word or phrase. */
+    List<String> search(String query, int tolerance) {
+        List<String> matches = new ArrayList<>();
+        if (root == null) return matches;
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            int distance = distance(query, node.keyword);
+            if (distance <= tolerance) matches.add(node.keyword);
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= tolerance) pending.add(child.getValue());
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Edits allowed for a word of the given length. Short words get none, as
+     * one edit would turn abbreviations like "ckd" into unrelated ones.
+     */
+    static int tolerance(int length) {
+        if (length <= 3) return 0;
+        if (length <= 5) return 1;
+        return 2;
+    }
+
+    /** Levenshtein distance between two strings. */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
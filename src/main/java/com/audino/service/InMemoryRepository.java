@@ -0,0 +1,108 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository holding records in memory in their stored form, standing in
+ * for a database in tests and demos. Records are copied on every save and
+ * load, as they would be by a real store, so changes only reach it through
+ * the repository.
+ */
+public class InMemoryRepository implements DataRepository {
+
+    private final ObjectMapper objectMapper;
+    private final PrescriptionStore prescriptionStore;
+    private final Map<String, JsonNode> patients = new LinkedHashMap<>();
+    private final Map<String, JsonNode> prescriptions = new LinkedHashMap<>();
+
+    public InMemoryRepository(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.prescriptionStore = new PrescriptionStore(objectMapper);
+    }
+
+    @Override
+    public synchronized List<Patient> loadPatients() {
+        return toPatients(patients.values());
+    }
+
+    @Override
+    public synchronized List<Prescription> loadPrescriptions(Ruleset catalog) {
+        return toPrescriptions(prescriptions.values(), catalog);
+    }
+
+    @Override
+    public synchronized void savePatients(Collection<Patient> changed) {
+        changed.forEach(patient -> patients.put(patient.getPatientId(), objectMapper.valueToTree(patient)));
+    }
+
+    @Override
+    public synchronized void deletePatients(Collection<String> patientIds) {
+        patientIds.forEach(patients::remove);
+    }
+
+    @Override
+    public synchronized void savePrescriptions(Collection<Prescription> changed) {
+        changed.forEach(prescription -> prescriptions.put(prescription.getPrescriptionId(), prescriptionStore.toStoredNode(prescription)));
+    }
+
+    @Override
+    public synchronized void replaceAll(List<Patient> allPatients, List<Prescription> allPrescriptions) {
+        patients.clear();
+        prescriptions.clear();
+        savePatients(allPatients);
+        savePrescriptions(allPrescriptions);
+    }
+
+    @Override
+    public synchronized List<Patient> findPatientsByName(String term) {
+        return loadPatients().stream().filter(patient -> DataRepository.matchesName(patient, term)).toList();
+    }
+
+    @Override
+    public synchronized List<Prescription> findPrescriptionsForPatient(String patientId, Ruleset catalog) {
+        return toPrescriptions(prescriptions.values().stream()
+            .filter(node -> patientId.equals(node.path("patientId").asText()))
+            .toList(), catalog);
+    }
+
+    @Override
+    public List<Patient> loadPatientsIfChanged(boolean force) {
+        // Only written through this repository, so it never changes behind the service's back
+        return force ? loadPatients() : null;
+    }
+
+    @Override
+    public List<Prescription> loadPrescriptionsIfChanged(Ruleset catalog, boolean force) {
+        return force ? loadPrescriptions(catalog) : null;
+    }
+
+    private List<Patient> toPatients(Collection<JsonNode> nodes) {
+        List<Patient> result = new ArrayList<>(nodes.size());
+        try {
+            for (JsonNode node : nodes) {
+                result.add(objectMapper.treeToValue(node, Patient.class));
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored patient: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private List<Prescription> toPrescriptions(Collection<JsonNode> nodes, Ruleset catalog) {
+        try {
+            return prescriptionStore.fromStoredNodes(nodes.iterator(), catalog);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read stored prescription: " + e.getMessage(), e);
+        }
+    }
+}
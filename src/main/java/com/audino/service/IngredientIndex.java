@@ -0,0 +1,85 @@
+package com.audino.service;
+
+import com.audino.model.Medication;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns every active ingredient in the catalog a bit position and keeps,
+ * for each ingredient, the catalog medications that contain it. Ingredients
+ * are matched on their active moiety, so "Salmeterol Xinafoate" and
+ * "Salmeterol" are the same ingredient.
+ */
+public class IngredientIndex {
+
+    // Salt and ester forms that do not change the active moiety
+    private static final Set<String> SALT_FORMS = Set.of("HCL", "HYDROCHLORIDE", "SODIUM", "POTASSIUM", "CALCIUM",
+        "SULFATE", "SUCCINATE", "TARTRATE", "MALEATE", "MESYLATE", "BESYLATE", "CITRATE", "PHOSPHATE", "ACETATE",
+        "BROMIDE", "XINAFOATE", "PROPIONATE", "FUROATE", "CARBONATE");
+
+    private final Map<String, Integer> bits = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> medicationsByIngredient = new ArrayList<>();
+    private final Map<String, BitSet> ingredientsByMedication = new HashMap<>();
+
+    IngredientIndex(List<Medication> catalog) {
+        for (int position = 0; position < catalog.size(); position++) {
+            Medication med = catalog.get(position);
+            BitSet ingredients = new BitSet();
+            for (String ingredient : med.getActiveIngredients()) {
+                String key = normalize(ingredient);
+                if (key.isEmpty()) continue;
+                Integer bit = bits.get(key);
+                if (bit == null) {
+                    bit = names.size();
+                    bits.put(key, bit);
+                    names.add(ingredient.trim());
+                    medicationsByIngredient.add(new BitSet());
+                }
+                ingredients.set(bit);
+                medicationsByIngredient.get(bit).set(position);
+            }
+            ingredientsByMedication.put(med.getMedicationId(), ingredients);
+        }
+    }
+
+    /** Upper-cased ingredient name with trailing salt forms removed. */
+    static String normalize(String ingredient) {
+        if (ingredient == null) return "";
+        String[] words = ingredient.trim().toUpperCase().split("\\s+");
+        int length = words.length;
+        while (length > 1 && SALT_FORMS.contains(words[length - 1])) {
+            length--;
+        }
+        return String.join(" ", List.of(words).subList(0, length));
+    }
+
+    /** Bit position of an ingredient, or -1 if no catalog medication contains it. */
+    public int bit(String ingredient) {
+        return bits.getOrDefault(normalize(ingredient), -1);
+    }
+
+    /** The ingredient's name as first seen in the catalog. */
+    public String name(int bit) {
+        return names.get(bit);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /** Ingredient bits of a catalog medication; shared, so callers must not modify them. */
+    BitSet ingredientsOf(String medicationId) {
+        BitSet ingredients = ingredientsByMedication.get(medicationId);
+        return ingredients != null ? ingredients : new BitSet();
+    }
+
+    /** Catalog positions of the medications containing an ingredient; shared, so callers must not modify them. */
+    BitSet medicationsWith(int bit) {
+        return medicationsByIngredient.get(bit);
+    }
+}
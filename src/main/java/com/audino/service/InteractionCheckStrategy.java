@@ -1,16 +1,33 @@
 package com.audino.service;
 
+import com.audino.model.AlertMatch;
 import com.audino.model.InteractionAlert;
-import com.audino.model.Medication;
 import com.audino.model.Patient;
 import com.audino.model.Prescription;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Collectors;
 
 public interface InteractionCheckStrategy {
 
-    List<InteractionAlert> check(Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications);
+    void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink);
+
+    default List<AlertMatch> match(Patient patient, Prescription prescription, Ruleset ruleset) {
+        List<AlertMatch> matches = new ArrayList<>();
+        match(patient, prescription, ruleset, match -> {
+            matches.add(match);
+            return true;
+        });
+        return matches;
+    }
+
+    default List<InteractionAlert> check(Patient patient, Prescription prescription, Ruleset ruleset) {
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        return match(patient, prescription, ruleset).stream()
+            .map(match -> new InteractionAlert(match, renderer))
+            .collect(Collectors.toList());
+    }
 
     String getStrategyName();
-}
\ No newline at end of file
+}
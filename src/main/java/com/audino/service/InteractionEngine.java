@@ -1,68 +1,338 @@
 package com.audino.service;
 
 import com.audino.model.AlertLevel;
+import com.audino.model.AlertMatch;
+import com.audino.model.ContraindicationProfile;
 import com.audino.model.InteractionAlert;
 import com.audino.model.Medication;
 import com.audino.model.Patient;
 import com.audino.model.Prescription;
-import java.util.Comparator;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class InteractionEngine {
 
+    private static final int REPORT_CACHE_SIZE = 256;
+
     private final List<InteractionCheckStrategy> strategies;
     private final ExecutorService executorService;
+    private final Map<String, InteractionReport> completedReports = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, InteractionReport> eldest) {
+                return size() > REPORT_CACHE_SIZE;
+            }
+        });
+    private volatile AdhocRuleset adhocRuleset;
+    // Null until set, meaning the bundled ontology
+    private volatile DrugClassOntology adhocOntology;
+    private volatile CatalogScreener catalogScreener;
 
     public InteractionEngine() {
-        this.strategies = List.of(
+        this(List.of(
             new AllergyCheckStrategy(),
             new DrugDrugCheckStrategy(),
-            new ConditionCheckStrategy()
-        );
-        this.executorService = Executors.newFixedThreadPool(strategies.size());
+            new MultiDrugCheckStrategy(),
+            new ConditionCheckStrategy(),
+            new ExpressionRuleCheckStrategy(),
+            new BurdenCheckStrategy(),
+            new DuplicateTherapyCheckStrategy(),
+            new MaxDoseCheckStrategy(),
+            new RecentExposureCheckStrategy()
+        ));
+    }
+
+    InteractionEngine(List<InteractionCheckStrategy> strategies) {
+        this.strategies = List.copyOf(strategies);
+        this.executorService = Executors.newFixedThreadPool(this.strategies.size());
     }
 
     public CompletableFuture<List<InteractionAlert>> checkAllInteractionsAsync(
         Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
 
-        List<CompletableFuture<List<InteractionAlert>>> futures = strategies.stream()
-            .map(strategy -> CompletableFuture.supplyAsync(
-                () -> strategy.check(patient, prescription, rules, allMedications), executorService))
-            .collect(Collectors.toList());
+        return checkInteractionsAsync(patient, prescription, toRuleset(rules, allMedications))
+            .thenApply(InteractionReport::getAlerts);
+    }
+
+    public CompletableFuture<InteractionReport> checkInteractionsAsync(
+        Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
+
+        return checkInteractionsAsync(patient, prescription, toRuleset(rules, allMedications));
+    }
+
+    public CompletableFuture<InteractionReport> checkInteractionsAsync(Patient patient, Prescription prescription, Ruleset ruleset) {
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        List<CompletableFuture<StrategyResult>> futures = runStrategies(patient, prescription, ruleset);
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(v -> assembleReport(futures, renderer));
+    }
+
+    public InteractionReport check(
+        Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications, Duration budget) {
+
+        return check(patient, prescription, toRuleset(rules, allMedications), budget);
+    }
+
+    /**
+     * Checks interactions within a time budget. Strategies that have not
+     * finished by the deadline are listed as incomplete in the returned
+     * report; they keep running in the background and their complete result
+     * is cached, so a repeated check of the same prescription is answered
+     * from the cache.
+     */
+    public InteractionReport check(Patient patient, Prescription prescription, Ruleset ruleset, Duration budget) {
+        String key = cacheKey(patient, prescription, ruleset);
+        InteractionReport cached = completedReports.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        List<CompletableFuture<StrategyResult>> futures = runStrategies(patient, prescription, ruleset);
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        all.thenRun(() -> completedReports.put(key, assembleReport(futures, renderer)));
+
+        try {
+            all.get(budget.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Fall through and report whatever finished; failed strategies count as incomplete
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return assembleReport(futures, renderer);
+    }
+
+    public CompletableFuture<List<AlertMatch>> matchAllInteractionsAsync(
+        Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
+
+        return matchAllInteractionsAsync(patient, prescription, toRuleset(rules, allMedications));
+    }
+
+    /**
+     * Runs every strategy and returns the raw matches without building alert
+     * objects or display text, for callers that only count or filter results.
+     */
+    public CompletableFuture<List<AlertMatch>> matchAllInteractionsAsync(Patient patient, Prescription prescription, Ruleset ruleset) {
+        List<CompletableFuture<StrategyResult>> futures = runStrategies(patient, prescription, ruleset);
 
         return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
             .thenApply(v -> futures.stream()
-                .flatMap(future -> future.join().stream())
-                .sorted(Comparator.comparing(InteractionAlert::getAlertLevel).reversed())
+                .flatMap(future -> future.join().matches().stream())
                 .collect(Collectors.toList()));
     }
 
+    public CompletableFuture<Optional<InteractionAlert>> firstCriticalAsync(
+        Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
+
+        return firstCriticalAsync(patient, prescription, toRuleset(rules, allMedications));
+    }
+
+    /**
+     * Completes with the first critical alert found, or empty if there is none.
+     * Only critical rules are evaluated, and as soon as one fires the sibling
+     * strategies are told to stop.
+     */
+    public CompletableFuture<Optional<InteractionAlert>> firstCriticalAsync(Patient patient, Prescription prescription, Ruleset ruleset) {
+        normalizeIfNeeded(patient, ruleset);
+
+        CompletableFuture<Optional<AlertMatch>> result = new CompletableFuture<>();
+        MatchSink criticalSink = new MatchSink() {
+            @Override
+            public boolean accept(AlertMatch match) {
+                if (match.alertLevel() != AlertLevel.CRITICAL) return true;
+                result.complete(Optional.of(match));
+                return false;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return result.isDone();
+            }
+
+            @Override
+            public AlertLevel minimumLevel() {
+                return AlertLevel.CRITICAL;
+            }
+        };
+
+        List<CompletableFuture<Void>> tasks = strategies.stream()
+            .map(strategy -> CompletableFuture.runAsync(
+                () -> strategy.match(patient, prescription, ruleset, criticalSink), executorService))
+            .collect(Collectors.toList());
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).whenComplete((v, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(Optional.empty());
+            }
+        });
+        // Strategies that have not started yet are skipped; running ones stop at their next poll
+        result.whenComplete((match, ex) -> tasks.forEach(task -> task.cancel(false)));
+
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        return result.thenApply(match -> match.map(m -> new InteractionAlert(m, renderer)));
+    }
+
+    public CompletableFuture<Boolean> anyCriticalAsync(
+        Patient patient, Prescription prescription, Map<String, Object> rules, List<Medication> allMedications) {
+
+        return anyCriticalAsync(patient, prescription, toRuleset(rules, allMedications));
+    }
+
+    public CompletableFuture<Boolean> anyCriticalAsync(Patient patient, Prescription prescription, Ruleset ruleset) {
+        return firstCriticalAsync(patient, prescription, ruleset).thenApply(Optional::isPresent);
+    }
+
+    /**
+     * Screens every catalog medication against the patient and the drugs
+     * already on the prescription, reporting the worst alert level each would
+     * raise if added. Pass the previous screen to only revisit medications
+     * whose result can have changed.
+     */
+    public CatalogScreen screenCatalog(Patient patient, Prescription prescription, Ruleset ruleset, CatalogScreen previous) {
+        normalizeIfNeeded(patient, ruleset);
+
+        CatalogScreener screener = catalogScreener;
+        if (screener == null || screener.getRuleset() != ruleset) {
+            screener = new CatalogScreener(ruleset);
+            catalogScreener = screener;
+        }
+        List<Medication> regimen = prescription != null
+            ? RuleSupport.prescribedMedications(prescription, ruleset)
+            : List.of();
+        return screener.screen(previous, patient, regimen);
+    }
+
+    /**
+     * Evaluates candidate changes to a prescription together and ranks them
+     * by the alerts they would raise. Work shared between candidates is done
+     * once, so many candidates cost little more than one full check.
+     */
+    public CompletableFuture<RegimenComparison> compareRegimensAsync(
+        Patient patient, Prescription base, List<Substitution> candidates, Ruleset ruleset) {
+
+        normalizeIfNeeded(patient, ruleset);
+        List<Medication> baseRegimen = RuleSupport.prescribedMedications(base, ruleset);
+        return CompletableFuture.supplyAsync(
+            () -> new RegimenEvaluator(patient, base.getPrescriptionId(), ruleset).compare(baseRegimen, candidates), executorService);
+    }
+
+    private List<CompletableFuture<StrategyResult>> runStrategies(Patient patient, Prescription prescription, Ruleset ruleset) {
+        normalizeIfNeeded(patient, ruleset);
+
+        return strategies.stream()
+            .map(strategy -> CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                List<AlertMatch> matches = strategy.match(patient, prescription, ruleset);
+                return new StrategyResult(strategy.getStrategyName(), matches, Duration.ofNanos(System.nanoTime() - start));
+            }, executorService))
+            .collect(Collectors.toList());
+    }
+
+    private InteractionReport assembleReport(List<CompletableFuture<StrategyResult>> futures, AlertRenderer renderer) {
+        List<InteractionAlert> alerts = new ArrayList<>();
+        Map<String, Duration> timings = new LinkedHashMap<>();
+        Set<String> incomplete = new LinkedHashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<StrategyResult> future = futures.get(i);
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                incomplete.add(strategies.get(i).getStrategyName());
+                continue;
+            }
+            StrategyResult result = future.join();
+            result.matches().forEach(match -> alerts.add(new InteractionAlert(match, renderer)));
+            timings.put(result.strategyName(), result.elapsed());
+        }
+        return new InteractionReport(alerts, timings, incomplete);
+    }
+
+    private String cacheKey(Patient patient, Prescription prescription, Ruleset ruleset) {
+        StringBuilder key = new StringBuilder();
+        key.append(ruleset.getVersion()).append('|');
+        if (patient != null) {
+            key.append(patient.getPatientId()).append('|')
+               .append(patient.getAllergies()).append(patient.getChronicConditions()).append('|')
+               .append(patient.getExposureHistory().activeAt(LocalDateTime.now())).append('|');
+        }
+        prescription.getPrescribedDrugs().forEach(drug -> key.append(drug.getMedicationId()).append(':')
+            .append(drug.getDosage()).append(':').append(drug.getFrequency()).append(','));
+        return key.toString();
+    }
+
+    /**
+     * Sets the drug class ontology the map-based API compiles its rules
+     * with, in place of the bundled one; null restores the bundled one.
+     */
+    public void setDrugClassOntology(DrugClassOntology ontology) {
+        this.adhocOntology = ontology;
+    }
+
+    /**
+     * Adapts the map-based API by compiling a ruleset, reusing the previous
+     * one while the caller keeps passing the same rule and catalog instances.
+     */
+    private Ruleset toRuleset(Map<String, Object> rules, List<Medication> allMedications) {
+        AdhocRuleset current = adhocRuleset;
+        DrugClassOntology ontology = adhocOntology != null ? adhocOntology : DrugClassOntology.bundled();
+        if (current != null && current.rules() == rules && current.medications() == allMedications
+                && current.ruleset().getMedications().size() == allMedications.size()
+                && current.ruleset().getOntology() == ontology) {
+            return current.ruleset();
+        }
+        Ruleset compiled = Ruleset.compile(rules, allMedications, ontology, new RuleStatistics());
+        adhocRuleset = new AdhocRuleset(rules, allMedications, compiled);
+        return compiled;
+    }
+
+    private void normalizeIfNeeded(Patient patient, Ruleset ruleset) {
+        if (patient == null) return;
+        // Patients built outside DataService have not been through ingest normalization yet
+        if (!patient.isNormalized()) {
+            ruleset.normalize(patient);
+            return;
+        }
+        ContraindicationProfile profile = patient.getContraindicationProfile();
+        if (profile == null || profile.getRulesetVersion() != ruleset.getVersion()) {
+            patient.setContraindicationProfile(ruleset.buildProfile(patient));
+        }
+    }
+
     public long getCriticalAlertCount(List<InteractionAlert> alerts) {
-        return alerts.stream()
-            .filter(alert -> alert.getAlertLevel() == AlertLevel.CRITICAL)
-            .count();
+        return InteractionReport.of(alerts).getCount(AlertLevel.CRITICAL);
     }
 
     public long getWarningAlertCount(List<InteractionAlert> alerts) {
-        return alerts.stream()
-            .filter(alert -> alert.getAlertLevel() == AlertLevel.WARNING)
-            .count();
+        return InteractionReport.of(alerts).getCount(AlertLevel.WARNING);
     }
 
     public long getInfoAlertCount(List<InteractionAlert> alerts) {
-        return alerts.stream()
-            .filter(alert -> alert.getAlertLevel() == AlertLevel.INFO)
-            .count();
+        return InteractionReport.of(alerts).getCount(AlertLevel.INFO);
     }
 
+    private record StrategyResult(String strategyName, List<AlertMatch> matches, Duration elapsed) {}
+
+    private record AdhocRuleset(Map<String, Object> rules, List<Medication> medications, Ruleset ruleset) {}
+
     public void shutdown() {
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
     }
-}
\ No newline at end of file
+}
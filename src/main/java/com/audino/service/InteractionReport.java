@@ -0,0 +1,113 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertType;
+import com.audino.model.InteractionAlert;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of an interaction check with the alerts pre-bucketed by level and
+ * type, so counts and filtered views are available without rescanning.
+ */
+public class InteractionReport {
+
+    private static final InteractionReport EMPTY = new InteractionReport(List.of(), Map.of());
+
+    private final List<InteractionAlert> alerts;
+    private final Map<AlertLevel, List<InteractionAlert>> alertsByLevel = new EnumMap<>(AlertLevel.class);
+    private final Map<AlertType, List<InteractionAlert>> alertsByType = new EnumMap<>(AlertType.class);
+    private final Map<String, Duration> strategyTimings;
+    private final Set<String> incompleteChecks;
+
+    public InteractionReport(List<InteractionAlert> alerts, Map<String, Duration> strategyTimings) {
+        this(alerts, strategyTimings, Set.of());
+    }
+
+    /**
+     * @param incompleteChecks names of strategies that did not finish in time,
+     *                         whose alerts are therefore missing from this report
+     */
+    public InteractionReport(List<InteractionAlert> alerts, Map<String, Duration> strategyTimings, Set<String> incompleteChecks) {
+        for (AlertLevel level : AlertLevel.values()) {
+            alertsByLevel.put(level, new ArrayList<>());
+        }
+        for (AlertType type : AlertType.values()) {
+            alertsByType.put(type, new ArrayList<>());
+        }
+
+        Set<String> seenIds = new HashSet<>();
+        for (InteractionAlert alert : alerts) {
+            // The same rule firing twice for the same participants is one alert
+            if (alert.getAlertId() != null && !seenIds.add(alert.getAlertId())) continue;
+            alertsByLevel.get(alert.getAlertLevel()).add(alert);
+            alertsByType.get(alert.getAlertType()).add(alert);
+        }
+
+        // AlertLevel is declared most severe first, so concatenating the buckets yields the sorted view
+        List<InteractionAlert> sorted = new ArrayList<>(alerts.size());
+        alertsByLevel.values().forEach(sorted::addAll);
+        this.alerts = Collections.unmodifiableList(sorted);
+        alertsByLevel.replaceAll((level, bucket) -> Collections.unmodifiableList(bucket));
+        alertsByType.replaceAll((type, bucket) -> Collections.unmodifiableList(bucket));
+        this.strategyTimings = Collections.unmodifiableMap(new LinkedHashMap<>(strategyTimings));
+        this.incompleteChecks = Collections.unmodifiableSet(new LinkedHashSet<>(incompleteChecks));
+    }
+
+    public static InteractionReport of(List<InteractionAlert> alerts) {
+        return new InteractionReport(alerts, Map.of());
+    }
+
+    public static InteractionReport empty() {
+        return EMPTY;
+    }
+
+    /** All alerts, most severe first. */
+    public List<InteractionAlert> getAlerts() {
+        return alerts;
+    }
+
+    public List<InteractionAlert> getAlerts(AlertLevel level) {
+        return alertsByLevel.get(level);
+    }
+
+    public List<InteractionAlert> getAlerts(AlertType type) {
+        return alertsByType.get(type);
+    }
+
+    public int getCount(AlertLevel level) {
+        return alertsByLevel.get(level).size();
+    }
+
+    public int getCount(AlertType type) {
+        return alertsByType.get(type).size();
+    }
+
+    public int getTotalCount() {
+        return alerts.size();
+    }
+
+    public boolean hasUnacknowledged(AlertLevel level) {
+        return alertsByLevel.get(level).stream().anyMatch(alert -> !alert.isAcknowledged());
+    }
+
+    public Map<String, Duration> getStrategyTimings() {
+        return strategyTimings;
+    }
+
+    public Set<String> getIncompleteChecks() {
+        return incompleteChecks;
+    }
+
+    public boolean isComplete() {
+        return incompleteChecks.isEmpty();
+    }
+}
@@ -0,0 +1,181 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import com.audino.util.ConfigurationManager;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores patients and prescriptions in the bundled JSON data files. Every
+ * save rewrites the whole file, so the repository keeps the full record set
+ * it last read or wrote; a save only rewrites the file of the records it
+ * touches. Writes go to both the source resources and the build output, so
+ * they survive a rebuild and take effect immediately.
+ */
+public class JsonFileRepository implements DataRepository {
+
+    private final ConfigurationManager config;
+    private final ObjectMapper objectMapper;
+    private final PrescriptionStore prescriptionStore;
+    private final DataFileTracker dataFiles = new DataFileTracker(JsonFileRepository.class::getResource);
+    private final Map<String, Patient> patients = new LinkedHashMap<>();
+    private final Map<String, Prescription> prescriptions = new LinkedHashMap<>();
+
+    public JsonFileRepository(ConfigurationManager config, ObjectMapper objectMapper) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.prescriptionStore = new PrescriptionStore(objectMapper);
+    }
+
+    @Override
+    public synchronized List<Patient> loadPatients() {
+        return readPatients(read(config.getPatientsDataFile()));
+    }
+
+    @Override
+    public synchronized List<Prescription> loadPrescriptions(Ruleset catalog) {
+        return readPrescriptions(read(config.getPrescriptionsDataFile()), catalog);
+    }
+
+    @Override
+    public synchronized List<Patient> loadPatientsIfChanged(boolean force) {
+        byte[] content = readIfChanged(config.getPatientsDataFile(), force);
+        return content != null ? readPatients(content) : null;
+    }
+
+    @Override
+    public synchronized List<Prescription> loadPrescriptionsIfChanged(Ruleset catalog, boolean force) {
+        byte[] content = readIfChanged(config.getPrescriptionsDataFile(), force);
+        return content != null ? readPrescriptions(content, catalog) : null;
+    }
+
+    @Override
+    public synchronized void savePatients(Collection<Patient> changed) {
+        changed.forEach(patient -> patients.put(patient.getPatientId(), patient));
+        writePatients();
+    }
+
+    @Override
+    public synchronized void deletePatients(Collection<String> patientIds) {
+        patientIds.forEach(patients::remove);
+        writePatients();
+    }
+
+    @Override
+    public synchronized void savePrescriptions(Collection<Prescription> changed) {
+        changed.forEach(prescription -> prescriptions.put(prescription.getPrescriptionId(), prescription));
+        writePrescriptions();
+    }
+
+    @Override
+    public synchronized void replaceAll(List<Patient> allPatients, List<Prescription> allPrescriptions) {
+        patients.clear();
+        allPatients.forEach(patient -> patients.put(patient.getPatientId(), patient));
+        prescriptions.clear();
+        allPrescriptions.forEach(prescription -> prescriptions.put(prescription.getPrescriptionId(), prescription));
+        writePatients();
+        writePrescriptions();
+    }
+
+    @Override
+    public synchronized List<Patient> findPatientsByName(String term) {
+        return patients.values().stream().filter(patient -> DataRepository.matchesName(patient, term)).toList();
+    }
+
+    @Override
+    public synchronized List<Prescription> findPrescriptionsForPatient(String patientId, Ruleset catalog) {
+        return prescriptions.values().stream().filter(prescription -> patientId.equals(prescription.getPatientId())).toList();
+    }
+
+    @Override
+    public List<String> getWatchedFiles() {
+        return List.of(config.getPatientsDataFile(), config.getPrescriptionsDataFile());
+    }
+
+    private List<Patient> readPatients(byte[] content) {
+        try {
+            List<Patient> read = objectMapper.readValue(content, new TypeReference<List<Patient>>() {});
+            patients.clear();
+            read.forEach(patient -> patients.put(patient.getPatientId(), patient));
+            dataFiles.record(config.getPatientsDataFile(), content);
+            return read;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load data from " + config.getPatientsDataFile(), e);
+        }
+    }
+
+    private List<Prescription> readPrescriptions(byte[] content, Ruleset catalog) {
+        try {
+            List<Prescription> read = prescriptionStore.read(new ByteArrayInputStream(content), catalog);
+            prescriptions.clear();
+            read.forEach(prescription -> prescriptions.put(prescription.getPrescriptionId(), prescription));
+            dataFiles.record(config.getPrescriptionsDataFile(), content);
+            return read;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load data from " + config.getPrescriptionsDataFile(), e);
+        }
+    }
+
+    private byte[] read(String resource) {
+        try {
+            return dataFiles.read(resource);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load data from " + resource, e);
+        }
+    }
+
+    private byte[] readIfChanged(String resource, boolean force) {
+        try {
+            byte[] content = dataFiles.readIfChanged(resource);
+            return content == null && force ? dataFiles.read(resource) : content;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load data from " + resource, e);
+        }
+    }
+
+    private void writePatients() {
+        write(new ArrayList<>(patients.values()), config.getPatientsDataFile());
+    }
+
+    private void writePrescriptions() {
+        write(prescriptionStore.toStoredForm(new ArrayList<>(prescriptions.values())), config.getPrescriptionsDataFile());
+    }
+
+    private void write(Object data, String resourcePath) {
+        try {
+            byte[] content = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+            String projectRoot = System.getProperty("user.dir");
+
+            // Save to source directory (src/main/resources)
+            String sourceFilePath = Paths.get(projectRoot, "src", "main", "resources", resourcePath).toString();
+            File sourceFile = new File(sourceFilePath);
+            sourceFile.getParentFile().mkdirs();
+            Files.write(sourceFile.toPath(), content);
+            System.out.println("Saved data to source: " + sourceFilePath);
+
+            // Also save to target directory (target/classes) for immediate effect
+            String targetFilePath = Paths.get(projectRoot, "target", "classes", resourcePath).toString();
+            File targetFile = new File(targetFilePath);
+            if (targetFile.getParentFile().exists()) {
+                targetFile.getParentFile().mkdirs();
+                Files.write(targetFile.toPath(), content);
+                System.out.println("Saved data to target: " + targetFilePath);
+            }
+            // Our own writes are not changes to reload
+            dataFiles.record(resourcePath, content);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save data to " + resourcePath, e);
+        }
+    }
+}
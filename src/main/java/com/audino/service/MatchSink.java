@@ -0,0 +1,31 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertMatch;
+
+/**
+ * Receives matches from a strategy as they are found. Lets a caller stop a
+ * strategy early or restrict it to the severity levels it cares about.
+ */
+@FunctionalInterface
+public interface MatchSink {
+
+    /**
+     * @return {@code false} if the strategy should stop evaluating
+     */
+    boolean accept(AlertMatch match);
+
+    /** Polled between rules so a strategy can stop when a sibling already answered. */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /** Least severe level the caller is interested in; rules below it can be skipped. */
+    default AlertLevel minimumLevel() {
+        return AlertLevel.INFO;
+    }
+
+    default boolean wants(AlertLevel level) {
+        return level.ordinal() <= minimumLevel().ordinal();
+    }
+}
@@ -0,0 +1,65 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import java.util.List;
+
+/**
+ * Flags prescribed drugs whose daily dose, worked out from the parsed dosage
+ * and frequency, exceeds the medication's maximum daily dose. Doses counted
+ * in tablets, puffs or millilitres are converted through the product
+ * strength. A dose over the maximum is a warning; twice the maximum or more
+ * is critical. Drugs without a maximum are skipped; a drug with a maximum
+ * whose dosage or frequency cannot be read gets an informational alert, so
+ * the clinician knows the dose went unchecked.
+ */
+public class MaxDoseCheckStrategy implements InteractionCheckStrategy {
+
+    static final String RULE_ID = "maxDailyDose";
+    static final String UNCHECKED_RULE_ID = "maxDailyDoseUnchecked";
+
+    @Override
+    public String getStrategyName() {
+        return "Maximum Dose Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+            if (sink.isCancelled()) return;
+            Medication med = ruleset.getMedication(drug.getMedicationId());
+            if (med == null || med.getMaxDailyDose() == null) continue;
+            Dosage dosage = drug.getParsedDosage();
+            AlertMatch match = dosage == null || dosage.dailyAmount() == null
+                ? createUncheckedMatch(med, drug)
+                : createMatch(med, dosage);
+            if (match != null && sink.wants(match.alertLevel()) && !sink.accept(match)) return;
+        }
+    }
+
+    static AlertMatch createMatch(Medication med, Dosage dosage) {
+        Dosage.Amount max = Dosage.parseAmount(med.getMaxDailyDose());
+        Dosage.Amount daily = dailyAmount(med, dosage, max);
+        if (daily == null || daily.value() <= max.value()) return null;
+        AlertLevel level = daily.value() >= 2 * max.value() ? AlertLevel.CRITICAL : AlertLevel.WARNING;
+        return new AlertMatch(RULE_ID, AlertType.DOSE_LIMIT, level, List.of(med.getMedicationId()), daily.toString());
+    }
+
+    /** Informational match naming the dosage or frequency text that could not be read. */
+    static AlertMatch createUncheckedMatch(Medication med, PrescribedDrug drug) {
+        String unread = Dosage.parseAmount(drug.getDosage()) == null ? drug.getDosage() : drug.getFrequency();
+        return new AlertMatch(UNCHECKED_RULE_ID, AlertType.DOSE_LIMIT, AlertLevel.INFO, List.of(med.getMedicationId()),
+            unread == null ? "" : unread);
+    }
+
+    /** Active amount given per day in the unit of {@code max}, or null if it cannot be worked out. */
+    static Dosage.Amount dailyAmount(Medication med, Dosage dosage, Dosage.Amount max) {
+        if (dosage == null || max == null || max.value() <= 0) return null;
+        Dosage.Amount perDay = dosage.dailyAmount();
+        if (perDay == null) return null;
+        Dosage.Amount converted = perDay.convertTo(max.unit());
+        if (converted != null) return converted;
+        Dosage.Strength strength = med.getUnitStrength();
+        Dosage.Amount active = strength != null ? strength.of(perDay) : null;
+        return active != null ? active.convertTo(max.unit()) : null;
+    }
+}
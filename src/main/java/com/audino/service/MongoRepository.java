@@ -0,0 +1,251 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+/**
+ * Stores patients and prescriptions in MongoDB, one document per record in
+ * the same form as the JSON data files. Patients are indexed by id and by
+ * the words of their name, prescriptions by id and by patient. Batches are
+ * written as single unordered bulk upserts, and loads stream documents from
+ * a cursor with the search helper fields projected out. Every write bumps a
+ * revision counter for its collection, so a client can tell when another
+ * client changed the records since it last read them.
+ */
+public class MongoRepository implements DataRepository {
+
+    private static final String PATIENTS = "patients";
+    private static final String PRESCRIPTIONS = "prescriptions";
+    private static final String REVISIONS = "revisions";
+    private static final String NAME_KEYS = "nameKeys";
+    private static final int BATCH_SIZE = 500;
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final FindOneAndUpdateOptions BUMP = new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER);
+    // Relaxed mode writes numbers as plain JSON numbers, which Jackson reads back unchanged
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+    private static final Bson PATIENT_FIELDS = Projections.exclude("_id", NAME_KEYS);
+    private static final Bson PRESCRIPTION_FIELDS = Projections.excludeId();
+
+    private final MongoClient client;
+    private final MongoCollection<Document> patients;
+    private final MongoCollection<Document> prescriptions;
+    private final MongoCollection<Document> revisions;
+    private final ObjectMapper objectMapper;
+    private final PrescriptionStore prescriptionStore;
+    // Revision of each collection when this client last read it or was the only one writing to it
+    private final Map<String, Long> seenRevisions = new ConcurrentHashMap<>();
+
+    public MongoRepository(String uri, String database, ObjectMapper objectMapper) {
+        this(MongoClients.create(uri), database, objectMapper);
+    }
+
+    public MongoRepository(MongoClient client, String database, ObjectMapper objectMapper) {
+        this.client = client;
+        MongoDatabase db = client.getDatabase(database);
+        this.patients = db.getCollection(PATIENTS);
+        this.prescriptions = db.getCollection(PRESCRIPTIONS);
+        this.revisions = db.getCollection(REVISIONS);
+        this.objectMapper = objectMapper;
+        this.prescriptionStore = new PrescriptionStore(objectMapper);
+        createIndexes();
+    }
+
+    private void createIndexes() {
+        patients.createIndex(Indexes.ascending("patientId"), new IndexOptions().unique(true));
+        patients.createIndex(Indexes.ascending(NAME_KEYS));
+        prescriptions.createIndex(Indexes.ascending("prescriptionId"), new IndexOptions().unique(true));
+        prescriptions.createIndex(Indexes.ascending("patientId"));
+    }
+
+    @Override
+    public List<Patient> loadPatients() {
+        // Read before the records, so a write made during the load is seen as a change next time
+        seenRevisions.put(PATIENTS, revision(PATIENTS));
+        return readPatients(patients.find());
+    }
+
+    @Override
+    public List<Prescription> loadPrescriptions(Ruleset catalog) {
+        seenRevisions.put(PRESCRIPTIONS, revision(PRESCRIPTIONS));
+        return readPrescriptions(prescriptions.find(), catalog);
+    }
+
+    @Override
+    public void savePatients(Collection<Patient> changed) {
+        List<WriteModel<Document>> writes = new ArrayList<>(changed.size());
+        for (Patient patient : changed) {
+            writes.add(new ReplaceOneModel<>(Filters.eq("patientId", patient.getPatientId()), toDocument(patient), UPSERT));
+        }
+        if (writes.isEmpty()) return;
+        patients.bulkWrite(writes, UNORDERED);
+        wrote(PATIENTS);
+    }
+
+    @Override
+    public void deletePatients(Collection<String> patientIds) {
+        if (patientIds.isEmpty()) return;
+        patients.deleteMany(Filters.in("patientId", patientIds));
+        wrote(PATIENTS);
+    }
+
+    @Override
+    public void savePrescriptions(Collection<Prescription> changed) {
+        List<WriteModel<Document>> writes = new ArrayList<>(changed.size());
+        for (Prescription prescription : changed) {
+            writes.add(new ReplaceOneModel<>(Filters.eq("prescriptionId", prescription.getPrescriptionId()),
+                toDocument(prescriptionStore.toStoredNode(prescription)), UPSERT));
+        }
+        if (writes.isEmpty()) return;
+        prescriptions.bulkWrite(writes, UNORDERED);
+        wrote(PRESCRIPTIONS);
+    }
+
+    @Override
+    public void replaceAll(List<Patient> allPatients, List<Prescription> allPrescriptions) {
+        savePatients(allPatients);
+        savePrescriptions(allPrescriptions);
+        patients.deleteMany(Filters.nin("patientId", allPatients.stream().map(Patient::getPatientId).toList()));
+        prescriptions.deleteMany(Filters.nin("prescriptionId", allPrescriptions.stream().map(Prescription::getPrescriptionId).toList()));
+        wrote(PATIENTS);
+        wrote(PRESCRIPTIONS);
+    }
+
+    @Override
+    public List<Patient> findPatientsByName(String term) {
+        List<Bson> filters = new ArrayList<>();
+        // Anchored, case-sensitive prefixes of the lower-case keys can use the index
+        DataRepository.nameWords(term).forEach(word -> filters.add(Filters.regex(NAME_KEYS, "^" + Pattern.quote(word))));
+        return readPatients(filters.isEmpty() ? patients.find() : patients.find(Filters.and(filters)));
+    }
+
+    @Override
+    public List<Prescription> findPrescriptionsForPatient(String patientId, Ruleset catalog) {
+        return readPrescriptions(prescriptions.find(Filters.eq("patientId", patientId)), catalog);
+    }
+
+    @Override
+    public boolean hasIndexedFinders() {
+        return true;
+    }
+
+    @Override
+    public List<Patient> loadPatientsIfChanged(boolean force) {
+        return force || changedElsewhere(PATIENTS) ? loadPatients() : null;
+    }
+
+    @Override
+    public List<Prescription> loadPrescriptionsIfChanged(Ruleset catalog, boolean force) {
+        return force || changedElsewhere(PRESCRIPTIONS) ? loadPrescriptions(catalog) : null;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private boolean changedElsewhere(String collection) {
+        Long seen = seenRevisions.get(collection);
+        return seen == null || revision(collection) != seen;
+    }
+
+    private long revision(String collection) {
+        Document counter = revisions.find(Filters.eq("_id", collection)).first();
+        return counter != null ? ((Number) counter.get("revision")).longValue() : 0;
+    }
+
+    /** Bumps the collection's revision, still counting it as seen if no other client wrote since it was last seen. */
+    private void wrote(String collection) {
+        Document counter = revisions.findOneAndUpdate(Filters.eq("_id", collection), Updates.inc("revision", 1L), BUMP);
+        long revision = ((Number) counter.get("revision")).longValue();
+        seenRevisions.computeIfPresent(collection, (name, seen) -> seen == revision - 1 ? revision : seen);
+    }
+
+    private List<Patient> readPatients(FindIterable<Document> query) {
+        List<Patient> result = new ArrayList<>();
+        try (MongoCursor<Document> cursor = query.projection(PATIENT_FIELDS).batchSize(BATCH_SIZE).iterator()) {
+            while (cursor.hasNext()) {
+                result.add(objectMapper.treeToValue(toNode(cursor.next()), Patient.class));
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored patient: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private List<Prescription> readPrescriptions(FindIterable<Document> query, Ruleset catalog) {
+        try (MongoCursor<Document> cursor = query.projection(PRESCRIPTION_FIELDS).batchSize(BATCH_SIZE).iterator()) {
+            Iterator<JsonNode> nodes = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override
+                public JsonNode next() {
+                    return toNode(cursor.next());
+                }
+            };
+            return prescriptionStore.fromStoredNodes(nodes, catalog);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read stored prescription: " + e.getMessage(), e);
+        }
+    }
+
+    private Document toDocument(Patient patient) {
+        ObjectNode node = objectMapper.valueToTree(patient);
+        // Derived from the terms on load
+        node.remove(List.of("allergyCodes", "conditionCodes"));
+        node.putPOJO(NAME_KEYS, DataRepository.nameKeys(patient));
+        return toDocument(node);
+    }
+
+    private Document toDocument(JsonNode node) {
+        try {
+            return Document.parse(objectMapper.writeValueAsString(node));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store record: " + e.getMessage(), e);
+        }
+    }
+
+    private JsonNode toNode(Document document) {
+        try {
+            return objectMapper.readTree(document.toJson(JSON));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored record: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Checks rules that involve three or more drug classes, such as ACE
+ * inhibitor + diuretic + NSAID. The regimen's classes are collected in one
+ * pass, so each rule is a coverage test rather than a search over drug
+ * combinations.
+ */
+public class MultiDrugCheckStrategy implements InteractionCheckStrategy {
+
+    @Override
+    public String getStrategyName() {
+        return "Multi-Drug Interaction Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        List<Medication> meds = RuleSupport.prescribedMedications(prescription, ruleset);
+        if (meds.size() < 2) return;
+
+        AdaptiveRuleOrder<Ruleset.MultiDrugRule> order = ruleset.multiDrugRuleOrder();
+        List<Ruleset.MultiDrugRule> rules = order.rules();
+        if (rules.isEmpty()) return;
+
+        List<BitSet> classBits = new ArrayList<>(meds.size());
+        BitSet regimenClasses = new BitSet();
+        for (Medication med : meds) {
+            BitSet bits = ruleset.classBits(med.getMedicationId());
+            classBits.add(bits);
+            regimenClasses.or(bits);
+        }
+
+        for (Ruleset.MultiDrugRule rule : rules) {
+            if (sink.isCancelled()) return;
+            // Rules are ordered most severe first, so nothing after this one is wanted either
+            if (!sink.wants(rule.level())) return;
+
+            RuleStatistics.Counter counter = order.counter(rule);
+            long start = System.nanoTime();
+            List<String> participants = rule.participants(meds, classBits, regimenClasses);
+            counter.record(start, !participants.isEmpty());
+            if (!participants.isEmpty() && !sink.accept(createMatch(rule, participants))) {
+                return;
+            }
+        }
+    }
+
+    private AlertMatch createMatch(Ruleset.MultiDrugRule rule, List<String> medicationIds) {
+        return new AlertMatch(rule.ruleId(), AlertType.DRUG_DRUG, rule.level(), medicationIds, null);
+    }
+}
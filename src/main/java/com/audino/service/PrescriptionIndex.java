@@ -0,0 +1,88 @@
+package com.audino.service;
+
+import com.audino.model.PrescribedDrug;
+import com.audino.model.Prescription;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse indexes from medications and patients to the current prescriptions
+ * that involve them, kept up to date as prescriptions are saved, so a rule
+ * change only visits the prescriptions it can affect. Superseded versions
+ * are not indexed, as their alerts are history.
+ */
+class PrescriptionIndex {
+
+    private final Map<String, Prescription> byId = new LinkedHashMap<>();
+    private final Map<String, Set<String>> byMedication = new HashMap<>();
+    private final Map<String, Set<String>> byPatient = new HashMap<>();
+    // The drugs each prescription was indexed under, as drugs can be added or removed after indexing
+    private final Map<String, List<PrescribedDrug>> indexedDrugs = new HashMap<>();
+
+    synchronized void rebuild(Collection<Prescription> prescriptions) {
+        byId.clear();
+        byMedication.clear();
+        byPatient.clear();
+        indexedDrugs.clear();
+        prescriptions.forEach(this::update);
+    }
+
+    /** Indexes a prescription under its current drugs, or drops it once superseded. */
+    synchronized void update(Prescription prescription) {
+        remove(prescription.getPrescriptionId());
+        if (!prescription.isCurrent()) return;
+        String id = prescription.getPrescriptionId();
+        byId.put(id, prescription);
+        byPatient.computeIfAbsent(prescription.getPatientId(), k -> new LinkedHashSet<>()).add(id);
+        List<PrescribedDrug> drugs = prescription.getPrescribedDrugs();
+        for (PrescribedDrug drug : drugs) {
+            byMedication.computeIfAbsent(drug.getMedicationId(), k -> new LinkedHashSet<>()).add(id);
+        }
+        indexedDrugs.put(id, drugs);
+    }
+
+    synchronized void remove(String id) {
+        Prescription removed = byId.remove(id);
+        if (removed == null) return;
+        removeFrom(byPatient, removed.getPatientId(), id);
+        for (PrescribedDrug drug : indexedDrugs.remove(id)) {
+            removeFrom(byMedication, drug.getMedicationId(), id);
+        }
+    }
+
+    /** The drugs a current prescription had when it was last indexed, which is when it was last saved; empty if not indexed. */
+    synchronized List<PrescribedDrug> indexedDrugs(String id) {
+        List<PrescribedDrug> drugs = indexedDrugs.get(id);
+        return drugs != null ? List.copyOf(drugs) : List.of();
+    }
+
+    private static void removeFrom(Map<String, Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) index.remove(key);
+    }
+
+    synchronized Set<Prescription> withMedication(String medicationId) {
+        return resolve(byMedication.get(medicationId));
+    }
+
+    synchronized Set<Prescription> forPatient(String patientId) {
+        return resolve(byPatient.get(patientId));
+    }
+
+    synchronized Set<Prescription> all() {
+        return new LinkedHashSet<>(byId.values());
+    }
+
+    private Set<Prescription> resolve(Set<String> ids) {
+        Set<Prescription> prescriptions = new LinkedHashSet<>();
+        if (ids != null) ids.forEach(id -> prescriptions.add(byId.get(id)));
+        return prescriptions;
+    }
+}
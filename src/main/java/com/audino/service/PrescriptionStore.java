@@ -0,0 +1,209 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertMatch;
+import com.audino.model.AlertType;
+import com.audino.model.InteractionAlert;
+import com.audino.model.Medication;
+import com.audino.model.PrescribedDrug;
+import com.audino.model.Prescription;
+import com.audino.model.PrescriptionStatus;
+import com.audino.model.TabletMedication;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads and writes the prescriptions file in its normalized form, where
+ * drugs refer to catalog medications by id and alerts are stored as their
+ * matches, with display text rendered again on demand. Medications are
+ * rehydrated from the catalog on load; each drug also keeps the generic
+ * name it was saved under, so a drug whose id is no longer in the catalog
+ * still loads with that name rather than without a medication. Files in
+ * the older format, a bare list of prescriptions with an embedded copy of
+ * every medication and the full text of every alert, are still read and
+ * are written back in the normalized form on the next save.
+ */
+public class PrescriptionStore {
+
+    public static final int FORMAT_VERSION = 2;
+
+    record StoredFile(int formatVersion, List<StoredPrescription> prescriptions) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredPrescription(String prescriptionId, String patientId, LocalDateTime createdAt, String prescribedBy,
+                              PrescriptionStatus status, int version, LocalDateTime supersededAt,
+                              List<StoredDrug> drugs, List<StoredAlert> alerts) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredDrug(String medicationId, String dosage, String frequency, String duration,
+                      String specialInstructions, String prescribedBy, LocalDateTime startedAt, String medicationName) {}
+
+    /** An alert backed by a match, or, for alerts without one, its level, type and text. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredAlert(AlertMatch match, LocalDateTime createdAt,
+                       @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean acknowledged,
+                       String alertId, AlertLevel alertLevel, AlertType alertType, String title, String message,
+                       String recommendation, String involvedMedications, String patientFactor) {}
+
+    private final ObjectMapper objectMapper;
+
+    public PrescriptionStore(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /** Reads prescriptions in either format and attaches catalog medications and alert renderers from the ruleset. */
+    public List<Prescription> read(InputStream input, Ruleset ruleset) throws IOException {
+        JsonNode root = objectMapper.readTree(input);
+        List<Prescription> prescriptions;
+        if (root == null || root.isNull()) {
+            prescriptions = new ArrayList<>();
+        } else if (root.isArray()) {
+            prescriptions = objectMapper.convertValue(root, new TypeReference<List<Prescription>>() {});
+        } else {
+            StoredFile file = objectMapper.treeToValue(root, StoredFile.class);
+            if (file.formatVersion() > FORMAT_VERSION) {
+                throw new IOException("Prescriptions file format " + file.formatVersion() + " is newer than supported ("
+                    + FORMAT_VERSION + ").");
+            }
+            AlertRenderer renderer = new AlertRenderer(ruleset);
+            prescriptions = new ArrayList<>();
+            for (StoredPrescription stored : file.prescriptions() != null ? file.prescriptions() : List.<StoredPrescription>of()) {
+                prescriptions.add(toPrescription(stored, renderer));
+            }
+        }
+        rehydrate(prescriptions, ruleset);
+        return prescriptions;
+    }
+
+    /**
+     * Reads prescriptions one normalized record at a time, such as from a
+     * database cursor, without holding the records themselves in memory.
+     */
+    List<Prescription> fromStoredNodes(Iterator<JsonNode> nodes, Ruleset ruleset) throws IOException {
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        List<Prescription> prescriptions = new ArrayList<>();
+        while (nodes.hasNext()) {
+            prescriptions.add(toPrescription(objectMapper.treeToValue(nodes.next(), StoredPrescription.class), renderer));
+        }
+        rehydrate(prescriptions, ruleset);
+        return prescriptions;
+    }
+
+    /**
+     * Points every drug at the catalog's medication object, so all
+     * prescriptions share one instance per medication. A drug the catalog no
+     * longer has keeps its embedded copy or saved name, or failing both a
+     * placeholder named after its id, and is logged.
+     */
+    public static void rehydrate(List<Prescription> prescriptions, Ruleset ruleset) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (Prescription prescription : prescriptions) {
+            for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+                Medication med = ruleset.getMedication(drug.getMedicationId());
+                if (med != null) {
+                    drug.setMedication(med);
+                    continue;
+                }
+                missing.add(drug.getMedicationId());
+                if (drug.getMedication() == null) drug.setMedication(placeholder(drug.getMedicationId(), null));
+            }
+        }
+        if (!missing.isEmpty()) {
+            System.err.println("Prescriptions refer to medications missing from the catalog: " + missing);
+        }
+    }
+
+    /** Stand-in for a medication no longer in the catalog, so the drug can still be shown. */
+    static Medication placeholder(String medicationId, String name) {
+        String genericName = name != null ? name : "Unknown medication " + medicationId;
+        return new TabletMedication(medicationId, genericName, genericName + " (not in catalog)", null);
+    }
+
+    /** The normalized form written to disk. */
+    public Object toStoredForm(List<Prescription> prescriptions) {
+        List<StoredPrescription> stored = new ArrayList<>(prescriptions.size());
+        prescriptions.forEach(prescription -> stored.add(toStored(prescription)));
+        return new StoredFile(FORMAT_VERSION, stored);
+    }
+
+    /** One prescription in its normalized form, for comparing records regardless of the format they were read from. */
+    JsonNode toStoredNode(Prescription prescription) {
+        return objectMapper.valueToTree(toStored(prescription));
+    }
+
+    private static StoredPrescription toStored(Prescription prescription) {
+        List<StoredDrug> drugs = new ArrayList<>();
+        for (PrescribedDrug drug : prescription.getPrescribedDrugs()) {
+            drugs.add(new StoredDrug(drug.getMedicationId(), drug.getDosage(), drug.getFrequency(), drug.getDuration(),
+                drug.getSpecialInstructions(), drug.getPrescribedBy(), drug.getStartedAt(),
+                drug.getMedication() != null ? drug.getMedication().getGenericName() : null));
+        }
+        List<StoredAlert> alerts = new ArrayList<>();
+        for (InteractionAlert alert : prescription.getAlerts()) {
+            alerts.add(alert.getMatch() != null
+                ? new StoredAlert(alert.getMatch(), alert.getCreatedAt(), alert.isAcknowledged(),
+                    null, null, null, null, null, null, null, null)
+                : new StoredAlert(null, alert.getCreatedAt(), alert.isAcknowledged(), alert.getAlertId(),
+                    alert.getAlertLevel(), alert.getAlertType(), alert.getTitle(), alert.getMessage(),
+                    alert.getRecommendation(), alert.getInvolvedMedications(), alert.getPatientFactor()));
+        }
+        return new StoredPrescription(prescription.getPrescriptionId(), prescription.getPatientId(),
+            prescription.getCreatedAt(), prescription.getPrescribedBy(), prescription.getStatus(),
+            prescription.getVersion(), prescription.getSupersededAt(), drugs, alerts);
+    }
+
+    private static Prescription toPrescription(StoredPrescription stored, AlertRenderer renderer) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(stored.prescriptionId());
+        prescription.setPatientId(stored.patientId());
+        prescription.setCreatedAt(stored.createdAt());
+        prescription.setPrescribedBy(stored.prescribedBy());
+        prescription.setStatus(stored.status());
+        prescription.setVersion(stored.version() > 0 ? stored.version() : 1);
+        prescription.setSupersededAt(stored.supersededAt());
+
+        List<PrescribedDrug> drugs = new ArrayList<>();
+        for (StoredDrug storedDrug : stored.drugs() != null ? stored.drugs() : List.<StoredDrug>of()) {
+            PrescribedDrug drug = new PrescribedDrug();
+            drug.setMedicationId(storedDrug.medicationId());
+            drug.setDosage(storedDrug.dosage());
+            drug.setFrequency(storedDrug.frequency());
+            drug.setDuration(storedDrug.duration());
+            drug.setSpecialInstructions(storedDrug.specialInstructions());
+            drug.setPrescribedBy(storedDrug.prescribedBy());
+            drug.setStartedAt(storedDrug.startedAt());
+            // Replaced by the catalog's medication on rehydration while the catalog still has it
+            drug.setMedication(placeholder(storedDrug.medicationId(), storedDrug.medicationName()));
+            drugs.add(drug);
+        }
+        prescription.setPrescribedDrugs(drugs);
+
+        List<InteractionAlert> alerts = new ArrayList<>();
+        for (StoredAlert storedAlert : stored.alerts() != null ? stored.alerts() : List.<StoredAlert>of()) {
+            InteractionAlert alert;
+            if (storedAlert.match() != null) {
+                alert = new InteractionAlert(storedAlert.match(), renderer);
+            } else {
+                alert = new InteractionAlert(storedAlert.alertLevel(), storedAlert.alertType(), storedAlert.title(),
+                    storedAlert.message(), storedAlert.recommendation(), storedAlert.involvedMedications(),
+                    storedAlert.patientFactor());
+                alert.setAlertId(storedAlert.alertId());
+            }
+            alert.setCreatedAt(storedAlert.createdAt());
+            alert.setAcknowledged(storedAlert.acknowledged());
+            alerts.add(alert);
+        }
+        prescription.setAlerts(alerts);
+        return prescription;
+    }
+}
@@ -0,0 +1,78 @@
+package com.audino.service;
+
+import com.audino.model.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks the prescribed drugs against drugs from the patient's other
+ * prescriptions whose exposure windows are still open, such as an MAOI
+ * stopped last week that is still within its washout. Open windows come
+ * from the patient's exposure interval tree, so history that has ended is
+ * never visited.
+ */
+public class RecentExposureCheckStrategy implements InteractionCheckStrategy {
+
+    @Override
+    public String getStrategyName() {
+        return "Recent Exposure Check";
+    }
+
+    @Override
+    public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+        if (patient == null) return;
+        Map<String, ExposureHistory.Exposure> open = openWindows(patient, prescription.getPrescriptionId(), ruleset, LocalDateTime.now());
+        if (open.isEmpty()) return;
+        List<Medication> meds = RuleSupport.prescribedMedications(prescription, ruleset);
+        if (meds.isEmpty()) return;
+
+        Set<String> prescribed = new HashSet<>();
+        meds.forEach(med -> prescribed.add(med.getMedicationId()));
+        List<ExposureHistory.Exposure> windows = new ArrayList<>(open.values());
+        windows.removeIf(exposure -> prescribed.contains(exposure.medicationId()));
+        if (windows.isEmpty()) return;
+
+        List<BitSet> prescribedBits = new ArrayList<>(meds.size());
+        meds.forEach(med -> prescribedBits.add(ruleset.classBits(med.getMedicationId())));
+        List<BitSet> earlierBits = new ArrayList<>(windows.size());
+        windows.forEach(exposure -> earlierBits.add(ruleset.classBits(exposure.medicationId())));
+
+        for (Ruleset.PairRule rule : ruleset.pairRuleOrder().rules()) {
+            if (sink.isCancelled()) return;
+            if (!sink.wants(rule.level())) return;
+            for (int i = 0; i < meds.size(); i++) {
+                for (int j = 0; j < windows.size(); j++) {
+                    if (!rule.matches(prescribedBits.get(i), earlierBits.get(j))) continue;
+                    if (!sink.accept(createMatch(rule, meds.get(i), windows.get(j)))) return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The patient's exposure windows open at the given time, one per catalog
+     * drug and keeping the one that ends last, excluding the prescription
+     * being checked. Drugs that are also prescribed again are not removed.
+     */
+    static Map<String, ExposureHistory.Exposure> openWindows(Patient patient, String prescriptionId, Ruleset ruleset, LocalDateTime time) {
+        Map<String, ExposureHistory.Exposure> earlier = new LinkedHashMap<>();
+        for (ExposureHistory.Exposure exposure : patient.getExposureHistory().activeAt(time)) {
+            if (exposure.prescriptionId() != null && exposure.prescriptionId().equals(prescriptionId)) continue;
+            if (ruleset.getMedication(exposure.medicationId()) == null) continue;
+            earlier.merge(exposure.medicationId(), exposure, (a, b) -> a.end() == null || (b.end() != null && a.end().isAfter(b.end())) ? a : b);
+        }
+        return earlier;
+    }
+
+    static AlertMatch createMatch(Ruleset.PairRule rule, Medication prescribed, ExposureHistory.Exposure earlier) {
+        String until = earlier.end() != null ? "until " + earlier.end().toLocalDate() : "ongoing";
+        return new AlertMatch(rule.ruleId(), AlertType.DRUG_DRUG, rule.level(),
+            List.of(prescribed.getMedicationId(), earlier.medicationId()), until);
+    }
+}
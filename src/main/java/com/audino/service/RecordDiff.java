@@ -0,0 +1,60 @@
+package com.audino.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Record-level difference between the records held in memory and those read
+ * back from a data file, matched by id and compared by their serialized
+ * content, so derived in-memory state does not count as a change.
+ */
+final class RecordDiff<T> {
+
+    record Update<T>(T current, T incoming) {}
+
+    private final List<T> inserted = new ArrayList<>();
+    private final List<Update<T>> updated = new ArrayList<>();
+    private final List<T> deleted = new ArrayList<>();
+
+    private RecordDiff() {
+    }
+
+    static <T> RecordDiff<T> between(Collection<T> current, Collection<T> incoming,
+                                     Function<T, String> id, Function<T, ?> content) {
+        RecordDiff<T> diff = new RecordDiff<>();
+        Map<String, T> remaining = new LinkedHashMap<>();
+        current.forEach(record -> remaining.put(id.apply(record), record));
+        for (T record : incoming) {
+            T existing = remaining.remove(id.apply(record));
+            if (existing == null) {
+                diff.inserted.add(record);
+            } else if (!Objects.equals(content.apply(existing), content.apply(record))) {
+                diff.updated.add(new Update<>(existing, record));
+            }
+        }
+        diff.deleted.addAll(remaining.values());
+        return diff;
+    }
+
+    List<T> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    List<Update<T>> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    List<T> getDeleted() {
+        return Collections.unmodifiableList(deleted);
+    }
+
+    boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+}
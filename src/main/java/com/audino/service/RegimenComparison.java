@@ -0,0 +1,34 @@
+package com.audino.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of evaluating several candidate changes to one prescription: the
+ * base regimen's outcome and the candidates ranked safest first.
+ */
+public class RegimenComparison {
+
+    private final RegimenOutcome baseline;
+    private final List<RegimenOutcome> ranked;
+
+    RegimenComparison(RegimenOutcome baseline, List<RegimenOutcome> candidates) {
+        this.baseline = baseline;
+        List<RegimenOutcome> sorted = new ArrayList<>(candidates);
+        // Stable, so equally safe candidates keep the order they were proposed in
+        sorted.sort(RegimenOutcome.SAFEST_FIRST);
+        this.ranked = Collections.unmodifiableList(sorted);
+    }
+
+    public RegimenOutcome getBaseline() { return baseline; }
+    public List<RegimenOutcome> getRankedCandidates() { return ranked; }
+
+    /** The best candidate, or the baseline if no candidate improves on it. */
+    public RegimenOutcome getBest() {
+        if (ranked.isEmpty() || RegimenOutcome.SAFEST_FIRST.compare(ranked.get(0), baseline) >= 0) {
+            return baseline;
+        }
+        return ranked.get(0);
+    }
+}
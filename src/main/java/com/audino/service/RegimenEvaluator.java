@@ -0,0 +1,211 @@
+package com.audino.service;
+
+import com.audino.model.AlertMatch;
+import com.audino.model.AlertType;
+import com.audino.model.ContraindicationProfile;
+import com.audino.model.ContraindicationProfile.Contraindication;
+import com.audino.model.ExposureHistory;
+import com.audino.model.InteractionAlert;
+import com.audino.model.Medication;
+import com.audino.model.Patient;
+import com.audino.service.rules.ExpressionRule;
+import com.audino.service.rules.RuleContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates alternative regimens for one patient. Results that depend on a
+ * single drug (allergy and condition matches) or on a pair of drugs
+ * (drug-drug matches) are remembered, so drugs and pairs shared between
+ * candidates are only evaluated once; so are the matches of each drug
+ * against the patient's earlier drugs still within their washout. Only the
+ * multi-drug, expression, burden and duplicate therapy checks, which look at
+ * the regimen as a whole, are evaluated per candidate. Regimens are lists of
+ * medications without doses, so the maximum dose check does not apply here.
+ */
+public class RegimenEvaluator {
+
+    private final Patient patient;
+    private final Ruleset ruleset;
+    private final ContraindicationProfile profile;
+    private final AlertRenderer renderer;
+    private final Map<String, List<AlertMatch>> singleMatches = new HashMap<>();
+    private final Map<String, List<AlertMatch>> pairMatches = new HashMap<>();
+    private final Map<String, List<AlertMatch>> exposureMatches = new HashMap<>();
+    private final List<ExposureHistory.Exposure> openWindows;
+
+    public RegimenEvaluator(Patient patient, Ruleset ruleset) {
+        this(patient, null, ruleset);
+    }
+
+    /**
+     * @param prescriptionId the prescription the regimens replace, whose own
+     *        exposure windows are not earlier drugs; null if there is none
+     */
+    public RegimenEvaluator(Patient patient, String prescriptionId, Ruleset ruleset) {
+        this.patient = patient;
+        this.ruleset = ruleset;
+        this.profile = patient != null && patient.isNormalized() ? ruleset.profileFor(patient) : null;
+        this.renderer = new AlertRenderer(ruleset);
+        this.openWindows = patient != null
+            ? new ArrayList<>(RecentExposureCheckStrategy.openWindows(patient, prescriptionId, ruleset, LocalDateTime.now()).values())
+            : List.of();
+    }
+
+    public RegimenComparison compare(List<Medication> base, List<Substitution> candidates) {
+        RegimenOutcome baseline = evaluate(null, base);
+        List<RegimenOutcome> outcomes = new ArrayList<>();
+        for (Substitution candidate : candidates) {
+            outcomes.add(evaluate(candidate, apply(base, candidate)));
+        }
+        return new RegimenComparison(baseline, outcomes);
+    }
+
+    public RegimenOutcome evaluate(Substitution substitution, List<Medication> regimen) {
+        List<AlertMatch> matches = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < regimen.size(); i++) {
+            Medication med = regimen.get(i);
+            ids.add(med.getMedicationId());
+            matches.addAll(singleMatches.computeIfAbsent(med.getMedicationId(), id -> matchSingle(med)));
+            for (int j = i + 1; j < regimen.size(); j++) {
+                matches.addAll(matchPair(med, regimen.get(j)));
+            }
+        }
+        matchRecentExposures(regimen, ids, matches);
+        matchMultiDrug(regimen, matches);
+        matchExpressions(regimen, matches);
+        matchBurden(regimen, matches);
+        matchDuplicates(regimen, matches);
+
+        List<InteractionAlert> alerts = new ArrayList<>(matches.size());
+        matches.forEach(match -> alerts.add(new InteractionAlert(match, renderer)));
+        return new RegimenOutcome(substitution, ids, InteractionReport.of(alerts));
+    }
+
+    private List<Medication> apply(List<Medication> base, Substitution substitution) {
+        List<Medication> regimen = new ArrayList<>(base);
+        if (substitution.replacedMedicationId() != null
+                && !regimen.removeIf(med -> med.getMedicationId().equals(substitution.replacedMedicationId()))) {
+            throw new IllegalArgumentException("Medication " + substitution.replacedMedicationId() + " is not on the prescription.");
+        }
+        if (substitution.replacement() != null) {
+            Medication catalogEntry = ruleset.getMedication(substitution.replacement().getMedicationId());
+            regimen.add(catalogEntry != null ? catalogEntry : substitution.replacement());
+        }
+        return regimen;
+    }
+
+    private List<AlertMatch> matchSingle(Medication med) {
+        if (profile == null) return List.of();
+        List<AlertMatch> matches = new ArrayList<>();
+        for (Contraindication contraindication : profile.getContraindications(ruleset.classBits(med.getMedicationId()))) {
+            matches.add(new AlertMatch(contraindication.ruleId(), contraindication.alertType(), contraindication.alertLevel(),
+                List.of(med.getMedicationId()), contraindication.patientFactor()));
+        }
+        return matches;
+    }
+
+    private List<AlertMatch> matchPair(Medication a, Medication b) {
+        String first = a.getMedicationId();
+        String second = b.getMedicationId();
+        String key = first.compareTo(second) <= 0 ? first + '|' + second : second + '|' + first;
+        return pairMatches.computeIfAbsent(key, k -> {
+            BitSet bitsA = ruleset.classBits(first);
+            BitSet bitsB = ruleset.classBits(second);
+            List<AlertMatch> matches = new ArrayList<>();
+            for (Ruleset.PairRule rule : ruleset.pairRules()) {
+                if (rule.matches(bitsA, bitsB)) {
+                    matches.add(new AlertMatch(rule.ruleId(), AlertType.DRUG_DRUG, rule.level(), List.of(first, second), null));
+                }
+            }
+            return matches;
+        });
+    }
+
+    private void matchRecentExposures(List<Medication> regimen, List<String> ids, List<AlertMatch> matches) {
+        if (openWindows.isEmpty()) return;
+        // A drug still on the regimen is being continued, not an earlier exposure
+        Set<String> onRegimen = new HashSet<>(ids);
+        for (Medication med : regimen) {
+            for (AlertMatch match : exposureMatches.computeIfAbsent(med.getMedicationId(), id -> matchExposures(med))) {
+                if (!onRegimen.contains(match.medicationIds().get(1))) matches.add(match);
+            }
+        }
+    }
+
+    private List<AlertMatch> matchExposures(Medication med) {
+        BitSet bits = ruleset.classBits(med.getMedicationId());
+        List<AlertMatch> matches = new ArrayList<>();
+        for (Ruleset.PairRule rule : ruleset.pairRules()) {
+            for (ExposureHistory.Exposure window : openWindows) {
+                if (rule.matches(bits, ruleset.classBits(window.medicationId()))) {
+                    matches.add(RecentExposureCheckStrategy.createMatch(rule, med, window));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void matchMultiDrug(List<Medication> regimen, List<AlertMatch> matches) {
+        if (regimen.size() < 2 || ruleset.multiDrugRules().isEmpty()) return;
+
+        List<BitSet> classBits = new ArrayList<>(regimen.size());
+        BitSet regimenClasses = new BitSet();
+        for (Medication med : regimen) {
+            BitSet bits = ruleset.classBits(med.getMedicationId());
+            classBits.add(bits);
+            regimenClasses.or(bits);
+        }
+        for (Ruleset.MultiDrugRule rule : ruleset.multiDrugRules()) {
+            List<String> participants = rule.participants(regimen, classBits, regimenClasses);
+            if (!participants.isEmpty()) {
+                matches.add(new AlertMatch(rule.ruleId(), AlertType.DRUG_DRUG, rule.level(), participants, null));
+            }
+        }
+    }
+
+    private void matchBurden(List<Medication> regimen, List<AlertMatch> matches) {
+        BurdenScorer scorer = ruleset.burdenScorer();
+        if (scorer.isEmpty() || regimen.isEmpty()) return;
+
+        int[] scores = new int[scorer.rules().size()];
+        scorer.score(regimen, ruleset, scores, new int[scores.length]);
+        for (int i = 0; i < scores.length; i++) {
+            AlertMatch match = scorer.match(i, scores[i], regimen, ruleset);
+            if (match != null) matches.add(match);
+        }
+    }
+
+    private void matchDuplicates(List<Medication> regimen, List<AlertMatch> matches) {
+        if (regimen.size() < 2) return;
+        IngredientIndex index = ruleset.getIngredientIndex();
+        BitSet duplicated = DuplicateTherapyCheckStrategy.duplicatedIngredients(index, regimen);
+        for (int bit = duplicated.nextSetBit(0); bit >= 0; bit = duplicated.nextSetBit(bit + 1)) {
+            matches.add(DuplicateTherapyCheckStrategy.createMatch(index, bit, regimen));
+        }
+    }
+
+    private void matchExpressions(List<Medication> regimen, List<AlertMatch> matches) {
+        List<ExpressionRule> rules = ruleset.getExpressionRules();
+        if (rules.isEmpty() || regimen.isEmpty()) return;
+
+        RuleContext context = new RuleContext(patient, regimen, ruleset.getExpressionMemoSlots(),
+            ruleset.getOntology()::expand);
+        for (ExpressionRule rule : rules) {
+            for (int i = 0; i < regimen.size(); i++) {
+                context.setCurrent(i);
+                if (rule.predicate().test(context)) {
+                    matches.add(new AlertMatch(rule.ruleId(), rule.alertType(), rule.alertLevel(),
+                        List.of(regimen.get(i).getMedicationId()), rule.patientFactor()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The alerts one regimen would raise, as evaluated by {@link RegimenEvaluator}.
+ */
+public class RegimenOutcome {
+
+    /** Fewest critical alerts first, then fewest warnings, then fewest infos. */
+    public static final Comparator<RegimenOutcome> SAFEST_FIRST = Comparator
+        .comparingInt((RegimenOutcome outcome) -> outcome.getCount(AlertLevel.CRITICAL))
+        .thenComparingInt(outcome -> outcome.getCount(AlertLevel.WARNING))
+        .thenComparingInt(outcome -> outcome.getCount(AlertLevel.INFO));
+
+    private final Substitution substitution;
+    private final List<String> medicationIds;
+    private final InteractionReport report;
+
+    RegimenOutcome(Substitution substitution, List<String> medicationIds, InteractionReport report) {
+        this.substitution = substitution;
+        this.medicationIds = List.copyOf(medicationIds);
+        this.report = report;
+    }
+
+    /** The candidate change, or null for the unchanged base regimen. */
+    public Substitution getSubstitution() { return substitution; }
+    public List<String> getMedicationIds() { return medicationIds; }
+    public InteractionReport getReport() { return report; }
+
+    public int getCount(AlertLevel level) {
+        return report.getCount(level);
+    }
+
+    public int getTotalCount() {
+        return report.getTotalCount();
+    }
+}
@@ -0,0 +1,56 @@
+package com.audino.service;
+
+import com.audino.model.InteractionAlert;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Outcome of re-screening the prescriptions a rule change could affect, as
+ * produced by {@link RuleImpactAnalyzer}: the alerts each prescription
+ * gained and lost compared with its stored alerts.
+ */
+public class RuleImpact {
+
+    private final RulesetDiff diff;
+    private final int screened;
+    private final Map<String, List<InteractionAlert>> gained;
+    private final Map<String, List<InteractionAlert>> lost;
+
+    RuleImpact(RulesetDiff diff, int screened, Map<String, List<InteractionAlert>> gained,
+               Map<String, List<InteractionAlert>> lost) {
+        this.diff = diff;
+        this.screened = screened;
+        this.gained = Map.copyOf(gained);
+        this.lost = Map.copyOf(lost);
+    }
+
+    public RulesetDiff getDiff() { return diff; }
+
+    /** Number of prescriptions re-screened. */
+    public int getScreenedCount() { return screened; }
+
+    /** Prescriptions whose alerts changed. */
+    public Set<String> getChangedPrescriptionIds() {
+        Set<String> ids = new TreeSet<>(gained.keySet());
+        ids.addAll(lost.keySet());
+        return ids;
+    }
+
+    public List<InteractionAlert> getGained(String prescriptionId) {
+        return gained.getOrDefault(prescriptionId, List.of());
+    }
+
+    public List<InteractionAlert> getLost(String prescriptionId) {
+        return lost.getOrDefault(prescriptionId, List.of());
+    }
+
+    public int getGainedCount() {
+        return gained.values().stream().mapToInt(List::size).sum();
+    }
+
+    public int getLostCount() {
+        return lost.values().stream().mapToInt(List::size).sum();
+    }
+}
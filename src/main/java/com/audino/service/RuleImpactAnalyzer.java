@@ -0,0 +1,87 @@
+package com.audino.service;
+
+import com.audino.model.AlertMatch;
+import com.audino.model.InteractionAlert;
+import com.audino.model.Patient;
+import com.audino.model.Prescription;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps the alerts stored on saved prescriptions in step with the rules.
+ * After a reload it diffs the old and new rulesets, resolves the affected
+ * current prescriptions through the data service's reverse indexes,
+ * re-screens them in parallel against the new ruleset and saves their new
+ * alerts through the data service in one batch, reporting what each one
+ * gained or lost. Alerts that
+ * survive the change keep their acknowledgement and are rendered again
+ * from the new rules, so an edited description or recommendation shows.
+ */
+public class RuleImpactAnalyzer {
+
+    private final DataService dataService;
+    private final InteractionEngine engine;
+
+    public RuleImpactAnalyzer(DataService dataService, InteractionEngine engine) {
+        this.dataService = dataService;
+        this.engine = engine;
+    }
+
+    public CompletableFuture<RuleImpact> analyze(Ruleset before, Ruleset after) {
+        RulesetDiff diff = RulesetDiff.between(before, after);
+        if (diff.isEmpty()) {
+            return CompletableFuture.completedFuture(new RuleImpact(diff, 0, Map.of(), Map.of()));
+        }
+        Set<Prescription> impacted = dataService.getImpactedPrescriptions(diff, before, after);
+
+        List<Prescription> screened = new ArrayList<>();
+        List<CompletableFuture<List<AlertMatch>>> futures = new ArrayList<>();
+        for (Prescription prescription : impacted) {
+            Patient patient = dataService.getPatient(prescription.getPatientId());
+            if (patient == null) continue;
+            screened.add(prescription);
+            futures.add(engine.matchAllInteractionsAsync(patient, prescription, after));
+        }
+
+        AlertRenderer renderer = new AlertRenderer(after);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, List<InteractionAlert>> gained = new HashMap<>();
+            Map<String, List<InteractionAlert>> lost = new HashMap<>();
+            Map<Prescription, List<InteractionAlert>> rescreened = new LinkedHashMap<>();
+            for (int i = 0; i < screened.size(); i++) {
+                Prescription prescription = screened.get(i);
+                Map<String, InteractionAlert> stored = new LinkedHashMap<>();
+                prescription.getAlerts().forEach(alert -> stored.put(alert.getAlertId(), alert));
+
+                List<InteractionAlert> updated = new ArrayList<>();
+                for (AlertMatch match : futures.get(i).join()) {
+                    InteractionAlert kept = stored.remove(match.alertId());
+                    if (kept != null) {
+                        InteractionAlert rendered = new InteractionAlert(match, renderer);
+                        rendered.setCreatedAt(kept.getCreatedAt());
+                        rendered.setAcknowledged(kept.isAcknowledged());
+                        updated.add(rendered);
+                    } else {
+                        InteractionAlert alert = new InteractionAlert(match, renderer);
+                        updated.add(alert);
+                        gained.computeIfAbsent(prescription.getPrescriptionId(), k -> new ArrayList<>()).add(alert);
+                    }
+                }
+                if (!stored.isEmpty()) {
+                    lost.put(prescription.getPrescriptionId(), new ArrayList<>(stored.values()));
+                }
+                rescreened.put(prescription, updated);
+            }
+            dataService.saveAlerts(rescreened);
+            System.out.println("Rule change " + diff.getChangedRules() + " re-screened " + screened.size()
+                + " prescriptions: " + gained.values().stream().mapToInt(List::size).sum() + " alerts gained, "
+                + lost.values().stream().mapToInt(List::size).sum() + " lost.");
+            return new RuleImpact(diff, screened.size(), gained, lost);
+        });
+    }
+}
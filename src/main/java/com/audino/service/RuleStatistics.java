@@ -0,0 +1,74 @@
+package com.audino.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Per-rule evaluation counters, kept across checks and rule reloads. The
+ * counters are striped so concurrent strategies do not contend on them, and
+ * they drive the evaluation order of {@link AdaptiveRuleOrder}.
+ */
+public class RuleStatistics {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    Counter counter(String section, String ruleId) {
+        return counters.computeIfAbsent(section + "/" + ruleId, key -> new Counter());
+    }
+
+    /** Current counters for every rule, ordered by section and rule id. */
+    public List<RuleStats> snapshot() {
+        List<RuleStats> stats = new ArrayList<>();
+        counters.forEach((rule, counter) -> stats.add(new RuleStats(
+            rule, counter.evaluations.sum(), counter.hits.sum(), counter.nanos.sum())));
+        stats.sort((a, b) -> a.rule().compareTo(b.rule()));
+        return stats;
+    }
+
+    /** Rules that have been evaluated but have never matched. */
+    public List<String> neverFired() {
+        return snapshot().stream()
+            .filter(stats -> stats.evaluations() > 0 && stats.hits() == 0)
+            .map(RuleStats::rule)
+            .collect(Collectors.toList());
+    }
+
+    public static final class Counter {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long startNanos, boolean hit) {
+            nanos.add(System.nanoTime() - startNanos);
+            evaluations.increment();
+            if (hit) hits.increment();
+        }
+
+        long evaluations() {
+            return evaluations.sum();
+        }
+
+        /**
+         * Average time spent per match, smoothed so rules that never match
+         * rank by their total cost.
+         */
+        double costPerHit() {
+            return (double) nanos.sum() / (hits.sum() + 1);
+        }
+    }
+
+    public record RuleStats(String rule, long evaluations, long hits, long totalNanos) {
+
+        public double hitRate() {
+            return evaluations == 0 ? 0 : (double) hits / evaluations;
+        }
+
+        public long averageNanos() {
+            return evaluations == 0 ? 0 : totalNanos / evaluations;
+        }
+    }
+}
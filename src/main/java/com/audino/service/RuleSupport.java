@@ -0,0 +1,65 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.Medication;
+import com.audino.model.Prescription;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared helpers for reading the interaction rule maps loaded from
+ * interaction-rules.json.
+ */
+final class RuleSupport {
+
+    private RuleSupport() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> section(Map<String, Object> rules, String name) {
+        if (rules == null || !(rules.get(name) instanceof Map)) {
+            return null;
+        }
+        return (Map<String, Object>) rules.get(name);
+    }
+
+    /**
+     * Rules of a section ordered most severe first, keeping file order within
+     * a severity, so short-circuit callers reach critical matches soonest.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map.Entry<String, Map<String, Object>>> bySeverity(Map<String, Object> section) {
+        List<Map.Entry<String, Map<String, Object>>> ordered = new ArrayList<>();
+        section.forEach((ruleId, ruleObj) -> ordered.add(Map.entry(ruleId, (Map<String, Object>) ruleObj)));
+        ordered.sort(Comparator.comparing(entry -> level(entry.getValue())));
+        return ordered;
+    }
+
+    static AlertLevel level(Map<String, Object> rule) {
+        String severity = (String) rule.get("severity");
+        return "CRITICAL".equalsIgnoreCase(severity) ? AlertLevel.CRITICAL : AlertLevel.WARNING;
+    }
+
+    /** Rule fields may hold a single class name or a list of them. */
+    @SuppressWarnings("unchecked")
+    static List<String> classList(Object value) {
+        List<String> classes = new ArrayList<>();
+        if (value instanceof String) {
+            classes.add((String) value);
+        } else if (value instanceof List) {
+            classes.addAll((List<String>) value);
+        }
+        return classes;
+    }
+
+    static List<Medication> prescribedMedications(Prescription prescription, Ruleset ruleset) {
+        List<Medication> prescribed = new ArrayList<>();
+        prescription.getPrescribedDrugs().forEach(drug -> {
+            Medication med = ruleset.getMedication(drug.getMedicationId());
+            if (med != null) prescribed.add(med);
+        });
+        return prescribed;
+    }
+}
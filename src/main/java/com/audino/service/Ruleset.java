@@ -0,0 +1,483 @@
+package com.audino.service;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertType;
+import com.audino.model.ContraindicationProfile;
+import com.audino.model.ContraindicationProfile.Contraindication;
+import com.audino.model.Medication;
+import com.audino.model.Patient;
+import com.audino.service.rules.ExpressionRule;
+import com.audino.service.rules.PredicateCompiler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, validated snapshot of the interaction rules and the medication
+ * catalog they are evaluated against. A new snapshot is published as a whole
+ * whenever the data files change, and every snapshot carries a version number
+ * that caches can key on.
+ */
+public class Ruleset {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final Set<String> SEVERITIES = Set.of("CRITICAL", "WARNING", "INFO");
+    private static final ObjectMapper STAMP_MAPPER = new ObjectMapper();
+
+    private final long version;
+    private final Map<String, Object> rules;
+    private final List<Medication> medications;
+    private final Map<String, Medication> medicationsById;
+    private final TermNormalizer termNormalizer;
+    private final List<ExpressionRule> expressionRules;
+    private final int expressionMemoSlots;
+    private final RuleStatistics ruleStatistics;
+    private final AdaptiveRuleOrder<ExpressionRule> expressionRuleOrder;
+    private final DrugClassOntology ontology;
+    private final ClassIndex classIndex;
+    private final Map<String, BitSet> medicationClassBits = new HashMap<>();
+    private final Map<String, Set<String>> medicationsByClass = new HashMap<>();
+    private final Map<String, Integer> catalogPositions = new HashMap<>();
+    private final List<BitSet> catalogClassBits = new ArrayList<>();
+    private final List<PairRule> pairRules = new ArrayList<>();
+    private final AdaptiveRuleOrder<PairRule> pairRuleOrder;
+    private final List<MultiDrugRule> multiDrugRules = new ArrayList<>();
+    private final AdaptiveRuleOrder<MultiDrugRule> multiDrugRuleOrder;
+    private final BurdenScorer burdenScorer;
+    private final IngredientIndex ingredientIndex;
+    // Content stamps, computed on first use; unlike the version they are stable across restarts
+    private volatile String rulesStamp;
+    private volatile String catalogStamp;
+
+    private Ruleset(long version, Map<String, Object> rules, List<Medication> medications,
+                    DrugClassOntology ontology, RuleStatistics ruleStatistics) {
+        this.version = version;
+        this.ontology = ontology;
+        this.rules = Collections.unmodifiableMap(rules);
+        this.medications = Collections.unmodifiableList(new ArrayList<>(medications));
+        Map<String, Medication> byId = new HashMap<>();
+        for (Medication med : medications) {
+            byId.put(med.getMedicationId(), med);
+        }
+        this.medicationsById = byId;
+
+        PredicateCompiler compiler = new PredicateCompiler();
+        this.expressionRules = compileExpressionRules(rules, compiler);
+        this.expressionMemoSlots = compiler.getMemoSlots();
+        this.termNormalizer = TermNormalizer.fromRules(rules, compiler.getAllergyKeywords(), compiler.getConditionKeywords());
+
+        this.ruleStatistics = ruleStatistics;
+        this.expressionRuleOrder = new AdaptiveRuleOrder<>(expressionRules,
+            ExpressionRule::alertLevel, ExpressionRule::ruleId, "expressionRules", ruleStatistics);
+
+        Set<String> identifiers = new LinkedHashSet<>();
+        medications.forEach(med -> identifiers.addAll(med.getInteractionIdentifiers()));
+        for (String section : List.of("drugAllergyInteractions", "drugConditionInteractions")) {
+            Map<String, Object> sectionRules = RuleSupport.section(rules, section);
+            if (sectionRules != null) {
+                sectionRules.values().forEach(rule -> identifiers.addAll(
+                    RuleSupport.classList(((Map<?, ?>) rule).get("medicationClasses"))));
+            }
+        }
+        this.classIndex = new ClassIndex(identifiers, ontology);
+        for (Medication med : this.medications) {
+            // Medications carry their ancestor classes too, so a rule on a parent class is a plain mask test
+            BitSet bits = classIndex.closureOf(med.getInteractionIdentifiers());
+            medicationClassBits.put(med.getMedicationId(), bits);
+            catalogPositions.put(med.getMedicationId(), catalogClassBits.size());
+            catalogClassBits.add(bits);
+            for (String drugClass : ontology.expand(med.getInteractionIdentifiers())) {
+                medicationsByClass.computeIfAbsent(drugClass, k -> new LinkedHashSet<>()).add(med.getMedicationId());
+            }
+        }
+
+        Map<String, Object> drugDrugRules = RuleSupport.section(rules, "drugDrugInteractions");
+        if (drugDrugRules != null) {
+            for (Map.Entry<String, Map<String, Object>> entry : RuleSupport.bySeverity(drugDrugRules)) {
+                Map<String, Object> rule = entry.getValue();
+                pairRules.add(new PairRule(entry.getKey(),
+                    classIndex.bitsOf(RuleSupport.classList(rule.get("drug1"))),
+                    classIndex.bitsOf(RuleSupport.classList(rule.get("drug2"))),
+                    RuleSupport.level(rule)));
+            }
+        }
+        // Allergy and condition rules are folded into patient profiles instead of being evaluated per check
+        this.pairRuleOrder = new AdaptiveRuleOrder<>(pairRules,
+            PairRule::level, PairRule::ruleId, "drugDrugInteractions", ruleStatistics);
+
+        Map<String, Object> multiDrugSection = RuleSupport.section(rules, "multiDrugInteractions");
+        if (multiDrugSection != null) {
+            for (Map.Entry<String, Map<String, Object>> entry : RuleSupport.bySeverity(multiDrugSection)) {
+                List<BitSet> slots = new ArrayList<>();
+                for (Object slot : (List<?>) entry.getValue().get("drugClasses")) {
+                    slots.add(classIndex.bitsOf(RuleSupport.classList(slot)));
+                }
+                multiDrugRules.add(new MultiDrugRule(entry.getKey(), slots, RuleSupport.level(entry.getValue())));
+            }
+        }
+        this.multiDrugRuleOrder = new AdaptiveRuleOrder<>(multiDrugRules,
+            MultiDrugRule::level, MultiDrugRule::ruleId, "multiDrugInteractions", ruleStatistics);
+        this.burdenScorer = BurdenScorer.compile(RuleSupport.section(rules, "burdenRules"), classIndex);
+        this.ingredientIndex = new IngredientIndex(this.medications);
+    }
+
+    /** A drug-drug rule with both sides compiled to class bits. */
+    record PairRule(String ruleId, BitSet left, BitSet right, AlertLevel level) {
+
+        boolean matches(BitSet a, BitSet b) {
+            return (a.intersects(left) && b.intersects(right)) || (a.intersects(right) && b.intersects(left));
+        }
+    }
+
+    /**
+     * A rule over k drug classes, each slot holding the alternative classes
+     * that satisfy it. It fires when the regimen covers every slot with at
+     * least two different drugs.
+     */
+    record MultiDrugRule(String ruleId, List<BitSet> slots, AlertLevel level) {
+
+        /** Number of slots not covered by any of the given classes. */
+        int uncoveredSlots(BitSet classes) {
+            int uncovered = 0;
+            for (BitSet slot : slots) {
+                if (!slot.intersects(classes)) uncovered++;
+            }
+            return uncovered;
+        }
+
+        /**
+         * The ids of the drugs that cover the rule's slots, or an empty list
+         * if the rule does not fire for this regimen.
+         *
+         * @param regimenClasses the union of {@code classBits}
+         */
+        List<String> participants(List<Medication> regimen, List<BitSet> classBits, BitSet regimenClasses) {
+            if (uncoveredSlots(regimenClasses) > 0) {
+                return List.of();
+            }
+            Set<String> participants = new LinkedHashSet<>();
+            for (int i = 0; i < regimen.size(); i++) {
+                for (BitSet slot : slots) {
+                    if (classBits.get(i).intersects(slot)) {
+                        participants.add(regimen.get(i).getMedicationId());
+                        break;
+                    }
+                }
+            }
+            return participants.size() >= 2 ? new ArrayList<>(participants) : List.of();
+        }
+    }
+
+    /**
+     * Validates and compiles a ruleset under the next version number,
+     * against the bundled drug class ontology.
+     *
+     * @throws IllegalArgumentException if the rules or catalog are malformed
+     */
+    public static Ruleset compile(Map<String, Object> rules, List<Medication> medications) {
+        return compile(rules, medications, DrugClassOntology.bundled(), new RuleStatistics());
+    }
+
+    /**
+     * Compiles a ruleset whose class rules also match descendants of the
+     * classes they name, as given by the drug class ontology. Rule
+     * statistics are carried over, so a reload does not lose the learned
+     * evaluation order.
+     */
+    public static Ruleset compile(Map<String, Object> rules, List<Medication> medications,
+                                  DrugClassOntology ontology, RuleStatistics statistics) {
+        validate(rules, medications);
+        return new Ruleset(VERSIONS.incrementAndGet(), rules, medications, ontology, statistics);
+    }
+
+    public long getVersion() { return version; }
+    public Map<String, Object> getRules() { return rules; }
+    public List<Medication> getMedications() { return medications; }
+    public Medication getMedication(String medicationId) { return medicationsById.get(medicationId); }
+    public TermNormalizer getTermNormalizer() { return termNormalizer; }
+    public List<ExpressionRule> getExpressionRules() { return expressionRules; }
+    public int getExpressionMemoSlots() { return expressionMemoSlots; }
+    public RuleStatistics getRuleStatistics() { return ruleStatistics; }
+    public DrugClassOntology getOntology() { return ontology; }
+    public ClassIndex getClassIndex() { return classIndex; }
+    public IngredientIndex getIngredientIndex() { return ingredientIndex; }
+
+    /** Digest of the rules and the drug class ontology, equal whenever their content is. */
+    public String getRulesStamp() {
+        if (rulesStamp == null) {
+            rulesStamp = stamp(rules, ontology.canonicalForm());
+        }
+        return rulesStamp;
+    }
+
+    /** Digest of the medication catalog, equal whenever its content is. */
+    public String getCatalogStamp() {
+        if (catalogStamp == null) {
+            catalogStamp = stamp(medications, "");
+        }
+        return catalogStamp;
+    }
+
+    private static String stamp(Object content, String suffix) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(STAMP_MAPPER.writeValueAsBytes(content));
+            digest.update(suffix.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to stamp ruleset content", e);
+        }
+    }
+
+    /** Catalog medications in a class, directly or through a descendant class. */
+    public Set<String> medicationsInClass(String drugClass) {
+        Set<String> ids = drugClass != null ? medicationsByClass.get(drugClass.toUpperCase()) : null;
+        return ids != null ? Collections.unmodifiableSet(ids) : Set.of();
+    }
+
+    /** Class bits of a catalog medication; shared, so callers must not modify them. */
+    BitSet classBits(String medicationId) {
+        BitSet bits = medicationClassBits.get(medicationId);
+        return bits != null ? bits : new BitSet();
+    }
+
+    /** Class bits of every catalog medication, in catalog order; shared, so callers must not modify them. */
+    List<BitSet> catalogClassBits() {
+        return catalogClassBits;
+    }
+
+    /** Drug-drug rules compiled to class bits, most severe first. */
+    List<PairRule> pairRules() {
+        return pairRules;
+    }
+
+    /** Multi-drug rules compiled to class bits, most severe first. */
+    List<MultiDrugRule> multiDrugRules() {
+        return multiDrugRules;
+    }
+
+    AdaptiveRuleOrder<MultiDrugRule> multiDrugRuleOrder() {
+        return multiDrugRuleOrder;
+    }
+
+    BurdenScorer burdenScorer() {
+        return burdenScorer;
+    }
+
+    /** Position of a medication in {@link #getMedications()}, or -1 if it is not in the catalog. */
+    int catalogPosition(String medicationId) {
+        return catalogPositions.getOrDefault(medicationId, -1);
+    }
+
+    /**
+     * Folds the allergy and condition rules that apply to a normalized
+     * patient into a contraindication profile for this ruleset version.
+     */
+    public ContraindicationProfile buildProfile(Patient patient) {
+        return buildProfile(patient.getAllergyCodes(), patient.getConditionCodes());
+    }
+
+    private ContraindicationProfile buildProfile(Map<String, List<String>> allergyCodes, Map<String, List<String>> conditionCodes) {
+        Map<Integer, List<Contraindication>> byClass = new LinkedHashMap<>();
+        addContraindications(byClass, "drugAllergyInteractions", "allergyKeywords", AlertType.DRUG_ALLERGY, allergyCodes);
+        addContraindications(byClass, "drugConditionInteractions", "conditionKeywords", AlertType.DRUG_CONDITION, conditionCodes);
+        return new ContraindicationProfile(version, byClass);
+    }
+
+    /**
+     * Maps the patient's terms onto this ruleset's vocabulary and builds
+     * their profile, publishing codes and profile together. Holds the
+     * patient's lock, so a concurrent term edit is never overwritten with
+     * codes computed from the old terms.
+     */
+    public TermNormalizer.Result normalize(Patient patient) {
+        synchronized (patient) {
+            TermNormalizer.Codes codes = termNormalizer.codesFor(patient);
+            patient.setNormalization(codes.allergyCodes(), codes.conditionCodes(),
+                buildProfile(codes.allergyCodes(), codes.conditionCodes()));
+            return codes.result();
+        }
+    }
+
+    private void addContraindications(Map<Integer, List<Contraindication>> byClass, String section, String keywordField,
+                                      AlertType type, Map<String, List<String>> patientCodes) {
+        Map<String, Object> sectionRules = RuleSupport.section(rules, section);
+        if (sectionRules == null || patientCodes == null) return;
+
+        for (Map.Entry<String, Map<String, Object>> entry : RuleSupport.bySeverity(sectionRules)) {
+            Map<String, Object> rule = entry.getValue();
+            List<String> keywords = RuleSupport.classList(rule.get(keywordField));
+            // Drug-allergy alerts are always critical
+            AlertLevel level = type == AlertType.DRUG_ALLERGY ? AlertLevel.CRITICAL : RuleSupport.level(rule);
+
+            for (Map.Entry<String, List<String>> term : patientCodes.entrySet()) {
+                if (keywords.stream().noneMatch(term.getValue()::contains)) continue;
+
+                Contraindication contraindication = new Contraindication(entry.getKey(), type, level, term.getKey());
+                BitSet classes = classIndex.bitsOf(RuleSupport.classList(rule.get("medicationClasses")));
+                if (type == AlertType.DRUG_ALLERGY) {
+                    classes = classIndex.withCrossReactive(classes);
+                }
+                for (int bit = classes.nextSetBit(0); bit >= 0; bit = classes.nextSetBit(bit + 1)) {
+                    byClass.computeIfAbsent(bit, b -> new ArrayList<>()).add(contraindication);
+                }
+            }
+        }
+    }
+
+    /**
+     * The patient's stored profile if it was built from this ruleset,
+     * otherwise a freshly built one.
+     */
+    public ContraindicationProfile profileFor(Patient patient) {
+        ContraindicationProfile profile = patient.getContraindicationProfile();
+        return profile != null && profile.getRulesetVersion() == version ? profile : buildProfile(patient);
+    }
+
+    /**
+     * The most severe allergy or condition alert prescribing the medication
+     * would raise for the patient, or null if it raises none.
+     */
+    public AlertLevel contraindicationLevel(Patient patient, String medicationId) {
+        return profileFor(patient).getWorstLevel(classBits(medicationId));
+    }
+
+    AdaptiveRuleOrder<PairRule> pairRuleOrder() {
+        return pairRuleOrder;
+    }
+
+    AdaptiveRuleOrder<ExpressionRule> expressionRuleOrder() {
+        return expressionRuleOrder;
+    }
+
+    private static List<ExpressionRule> compileExpressionRules(Map<String, Object> rules, PredicateCompiler compiler) {
+        Map<String, Object> section = RuleSupport.section(rules, "expressionRules");
+        if (section == null) return List.of();
+
+        List<ExpressionRule> compiled = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : RuleSupport.bySeverity(section)) {
+            Map<String, Object> rule = entry.getValue();
+            try {
+                AlertType type = rule.get("alertType") != null
+                    ? AlertType.valueOf(String.valueOf(rule.get("alertType")).toUpperCase())
+                    : AlertType.DRUG_CONDITION;
+                AlertLevel level = RuleSupport.level(rule);
+                compiled.add(new ExpressionRule(entry.getKey(), type, level,
+                    (String) rule.get("patientFactor"), compiler.compile(rule.get("when"))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Rule '" + entry.getKey() + "' in expressionRules: " + e.getMessage(), e);
+            }
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    private static void validate(Map<String, Object> rules, List<Medication> medications) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Interaction rules are missing.");
+        }
+        validateSection(rules, "drugAllergyInteractions", "allergyKeywords", "medicationClasses");
+        validateSection(rules, "drugDrugInteractions", "drug1", "drug2");
+        validateSection(rules, "drugConditionInteractions", "conditionKeywords", "medicationClasses");
+        validateSection(rules, "expressionRules");
+        validateSection(rules, "multiDrugInteractions", "drugClasses");
+        validateMultiDrugRules(rules);
+        validateSection(rules, "burdenRules");
+        validateBurdenRules(rules);
+
+        if (medications == null) {
+            throw new IllegalArgumentException("Medication catalog is missing.");
+        }
+        Set<String> ids = new HashSet<>();
+        for (Medication med : medications) {
+            if (med.getMedicationId() == null || med.getMedicationId().isBlank()) {
+                throw new IllegalArgumentException("Medication without an id: " + med.getGenericName());
+            }
+            if (!ids.add(med.getMedicationId())) {
+                throw new IllegalArgumentException("Duplicate medication id: " + med.getMedicationId());
+            }
+        }
+    }
+
+    private static void validateMultiDrugRules(Map<String, Object> rules) {
+        Map<String, Object> section = RuleSupport.section(rules, "multiDrugInteractions");
+        if (section == null) return;
+        section.forEach((ruleId, ruleObj) -> {
+            Object slots = ((Map<?, ?>) ruleObj).get("drugClasses");
+            if (!(slots instanceof List<?> slotList) || slotList.size() < 2) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in multiDrugInteractions needs at least two drug classes.");
+            }
+            for (Object slot : slotList) {
+                if (RuleSupport.classList(slot).isEmpty()) {
+                    throw new IllegalArgumentException("Rule '" + ruleId + "' in multiDrugInteractions has an empty drug class.");
+                }
+            }
+        });
+    }
+
+    private static void validateBurdenRules(Map<String, Object> rules) {
+        Map<String, Object> section = RuleSupport.section(rules, "burdenRules");
+        if (section == null) return;
+        section.forEach((ruleId, ruleObj) -> {
+            Map<?, ?> rule = (Map<?, ?>) ruleObj;
+            if (!(rule.get("weights") instanceof Map<?, ?> weights) || weights.isEmpty()) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in burdenRules is missing 'weights'.");
+            }
+            weights.forEach((medicationClass, weight) -> {
+                if (!(weight instanceof Integer value) || value <= 0) {
+                    throw new IllegalArgumentException("Rule '" + ruleId + "' in burdenRules has an invalid weight for '" + medicationClass + "'.");
+                }
+            });
+            Object warning = rule.get("warningThreshold");
+            Object critical = rule.get("criticalThreshold");
+            if (warning == null && critical == null) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in burdenRules needs a warningThreshold or criticalThreshold.");
+            }
+            for (Object threshold : new Object[] {warning, critical}) {
+                if (threshold != null && (!(threshold instanceof Integer value) || value <= 0)) {
+                    throw new IllegalArgumentException("Rule '" + ruleId + "' in burdenRules has an invalid threshold '" + threshold + "'.");
+                }
+            }
+            if (warning != null && critical != null && (Integer) warning > (Integer) critical) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in burdenRules has a warningThreshold above its criticalThreshold.");
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void validateSection(Map<String, Object> rules, String section, String... requiredFields) {
+        Object sectionObj = rules.get(section);
+        if (sectionObj == null) return;
+        if (!(sectionObj instanceof Map)) {
+            throw new IllegalArgumentException("Rule section '" + section + "' must be an object.");
+        }
+        ((Map<String, Object>) sectionObj).forEach((ruleId, ruleObj) -> {
+            if (!(ruleObj instanceof Map)) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in " + section + " must be an object.");
+            }
+            Map<String, Object> rule = (Map<String, Object>) ruleObj;
+            for (String field : requiredFields) {
+                if (RuleSupport.classList(rule.get(field)).isEmpty()) {
+                    throw new IllegalArgumentException("Rule '" + ruleId + "' in " + section + " is missing '" + field + "'.");
+                }
+            }
+            Object severity = rule.get("severity");
+            if (severity != null && !SEVERITIES.contains(String.valueOf(severity).toUpperCase())) {
+                throw new IllegalArgumentException("Rule '" + ruleId + "' in " + section + " has unknown severity '" + severity + "'.");
+            }
+        });
+    }
+}
@@ -0,0 +1,222 @@
+package com.audino.service;
+
+import com.audino.model.Medication;
+import com.audino.util.ConfigurationManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What changed between two rulesets, reduced to what a change can affect:
+ * the drug classes its rules mention, together with the classes
+ * cross-reactive with an allergy rule's classes, the allergy and condition keywords
+ * for rules that apply without any class, and the catalog medications
+ * whose entries changed. A prescription can only gain or lose an alert if
+ * it contains a medication in one of these classes, one of the changed
+ * medications, or belongs to a patient with one of the keywords. A change
+ * whose reach cannot be bounded this way, such as an age-only expression
+ * rule, marks the diff as global.
+ */
+public class RulesetDiff {
+
+    private record Scope(Set<String> classes, Set<String> keywords, boolean global) {
+        static final Scope GLOBAL = new Scope(Set.of(), Set.of(), true);
+    }
+
+    private final Set<String> changedRules = new LinkedHashSet<>();
+    private final Set<String> classes = new LinkedHashSet<>();
+    private final Set<String> keywords = new LinkedHashSet<>();
+    private final Set<String> medicationIds = new LinkedHashSet<>();
+    private boolean global;
+
+    private RulesetDiff() {
+    }
+
+    public static RulesetDiff between(Ruleset before, Ruleset after) {
+        RulesetDiff diff = new RulesetDiff();
+        diff.compareRules(before, after);
+        diff.compareMedications(before, after);
+        diff.compareOntology(before.getOntology(), after.getOntology());
+        return diff;
+    }
+
+    private void compareRules(Ruleset beforeRuleset, Ruleset afterRuleset) {
+        Map<String, Object> before = beforeRuleset.getRules();
+        Map<String, Object> after = afterRuleset.getRules();
+        Set<String> sections = new LinkedHashSet<>(before.keySet());
+        sections.addAll(after.keySet());
+        for (String section : sections) {
+            Object old = before.get(section);
+            Object current = after.get(section);
+            if (Objects.equals(old, current)) continue;
+            if (!(old == null || old instanceof Map) || !(current == null || current instanceof Map)) {
+                changedRules.add(section);
+                global = true;
+                continue;
+            }
+            Map<?, ?> oldRules = old != null ? (Map<?, ?>) old : Map.of();
+            Map<?, ?> currentRules = current != null ? (Map<?, ?>) current : Map.of();
+            Set<Object> ruleIds = new LinkedHashSet<>(oldRules.keySet());
+            ruleIds.addAll(currentRules.keySet());
+            for (Object ruleId : ruleIds) {
+                Object oldRule = oldRules.get(ruleId);
+                Object currentRule = currentRules.get(ruleId);
+                if (Objects.equals(oldRule, currentRule)) continue;
+                changedRules.add(section + "." + ruleId);
+                // Both versions count: the old one may stop firing where the new one starts
+                Scope oldScope = scopeOf(section, oldRule);
+                Scope currentScope = scopeOf(section, currentRule);
+                if (section.equals("drugAllergyInteractions")) {
+                    // Allergy rules also fire on cross-reactive classes, under either ontology
+                    oldScope = withCrossReactive(oldScope, beforeRuleset.getOntology(), afterRuleset.getOntology());
+                    currentScope = withCrossReactive(currentScope, beforeRuleset.getOntology(), afterRuleset.getOntology());
+                }
+                add(oldScope);
+                add(currentScope);
+            }
+        }
+    }
+
+    private void compareMedications(Ruleset before, Ruleset after) {
+        ObjectMapper mapper = ConfigurationManager.getInstance().getObjectMapper();
+        for (Medication med : before.getMedications()) {
+            Medication updated = after.getMedication(med.getMedicationId());
+            if (updated == null || !mapper.valueToTree(med).equals(mapper.valueToTree(updated))) {
+                medicationIds.add(med.getMedicationId());
+            }
+        }
+        for (Medication med : after.getMedications()) {
+            if (before.getMedication(med.getMedicationId()) == null) {
+                medicationIds.add(med.getMedicationId());
+            }
+        }
+    }
+
+    private void compareOntology(DrugClassOntology before, DrugClassOntology after) {
+        Set<String> all = new LinkedHashSet<>(before.getClasses());
+        all.addAll(after.getClasses());
+        for (String drugClass : all) {
+            if (!before.getAncestors(drugClass).equals(after.getAncestors(drugClass))
+                    || !before.getCrossReactive(drugClass).equals(after.getCrossReactive(drugClass))) {
+                classes.add(drugClass);
+            }
+        }
+    }
+
+    private void add(Scope scope) {
+        if (scope == null) return;
+        global |= scope.global();
+        classes.addAll(scope.classes());
+        keywords.addAll(scope.keywords());
+    }
+
+    private static Scope scopeOf(String section, Object rule) {
+        if (!(rule instanceof Map<?, ?> map)) return null;
+        return switch (section) {
+            case "drugDrugInteractions" -> classScope(RuleSupport.classList(map.get("drug1")), RuleSupport.classList(map.get("drug2")));
+            case "drugAllergyInteractions", "drugConditionInteractions" -> classScope(RuleSupport.classList(map.get("medicationClasses")));
+            case "multiDrugInteractions" -> map.get("drugClasses") instanceof List<?> slots
+                ? classScope(slots.stream().flatMap(slot -> RuleSupport.classList(slot).stream()).toList())
+                : Scope.GLOBAL;
+            case "burdenRules" -> map.get("weights") instanceof Map<?, ?> weights
+                ? classScope(weights.keySet().stream().map(String::valueOf).toList())
+                : Scope.GLOBAL;
+            case "expressionRules" -> expressionScope(map.get("when"));
+            default -> Scope.GLOBAL;
+        };
+    }
+
+    private static Scope withCrossReactive(Scope scope, DrugClassOntology... ontologies) {
+        if (scope == null || scope.global()) return scope;
+        Set<String> classes = new LinkedHashSet<>(scope.classes());
+        for (DrugClassOntology ontology : ontologies) {
+            scope.classes().forEach(drugClass -> classes.addAll(ontology.getCrossReactive(drugClass)));
+        }
+        return new Scope(classes, scope.keywords(), false);
+    }
+
+    @SafeVarargs
+    private static Scope classScope(List<String>... lists) {
+        Set<String> classes = new LinkedHashSet<>();
+        for (List<String> list : lists) {
+            list.forEach(drugClass -> classes.add(drugClass.toUpperCase()));
+        }
+        return classes.isEmpty() ? Scope.GLOBAL : new Scope(classes, Set.of(), false);
+    }
+
+    /**
+     * Narrowest scope an expression can fire in. Any one operand of an "and"
+     * bounds it, while an "or" needs all of its operands bounded; negations
+     * and numeric tests are unbounded.
+     */
+    private static Scope expressionScope(Object expression) {
+        if (!(expression instanceof Map<?, ?> map) || map.size() != 1) return Scope.GLOBAL;
+        Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+        Object operand = entry.getValue();
+        return switch (String.valueOf(entry.getKey())) {
+            case "medicationClass", "regimenClass" -> classScope(RuleSupport.classList(operand));
+            case "allergy", "condition" -> {
+                Set<String> terms = new LinkedHashSet<>();
+                RuleSupport.classList(operand).forEach(term -> terms.add(term.toLowerCase()));
+                yield terms.isEmpty() ? Scope.GLOBAL : new Scope(Set.of(), terms, false);
+            }
+            case "and" -> {
+                Scope narrowest = Scope.GLOBAL;
+                for (Object child : operand instanceof List<?> list ? list : List.of()) {
+                    Scope scope = expressionScope(child);
+                    if (scope.global()) continue;
+                    // A class bound is preferred, as it is resolved through the reverse indexes
+                    if (narrowest.global() || (narrowest.classes().isEmpty() && !scope.classes().isEmpty())) {
+                        narrowest = scope;
+                    }
+                }
+                yield narrowest;
+            }
+            case "or" -> {
+                Set<String> classes = new LinkedHashSet<>();
+                Set<String> terms = new LinkedHashSet<>();
+                for (Object child : operand instanceof List<?> list ? list : List.of()) {
+                    Scope scope = expressionScope(child);
+                    if (scope.global()) yield Scope.GLOBAL;
+                    classes.addAll(scope.classes());
+                    terms.addAll(scope.keywords());
+                }
+                yield classes.isEmpty() && terms.isEmpty() ? Scope.GLOBAL : new Scope(classes, terms, false);
+            }
+            default -> Scope.GLOBAL;
+        };
+    }
+
+    /** Section-qualified ids of the rules that were added, removed or edited. */
+    public Set<String> getChangedRules() {
+        return Collections.unmodifiableSet(changedRules);
+    }
+
+    /** Upper-case drug classes whose medications may gain or lose alerts. */
+    public Set<String> getClasses() {
+        return Collections.unmodifiableSet(classes);
+    }
+
+    /** Lower-case allergy and condition keywords of changed rules that apply without any drug class. */
+    public Set<String> getKeywords() {
+        return Collections.unmodifiableSet(keywords);
+    }
+
+    /** Medications added, removed or edited in the catalog. */
+    public Set<String> getMedicationIds() {
+        return Collections.unmodifiableSet(medicationIds);
+    }
+
+    /** Whether some change cannot be bounded, so every prescription must be re-screened. */
+    public boolean isGlobal() {
+        return global;
+    }
+
+    public boolean isEmpty() {
+        return !global && classes.isEmpty() && keywords.isEmpty() && medicationIds.isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package com.audino.service;
+
+import com.audino.model.Medication;
+
+/**
+ * One candidate change to a prescription for what-if evaluation: replace a
+ * prescribed drug with another, add a drug, or remove one.
+ *
+ * @param replacedMedicationId the prescribed drug to take out, or null to only add
+ * @param replacement          the drug to put in, or null to only remove
+ */
+public record Substitution(String replacedMedicationId, Medication replacement) {
+
+    public Substitution {
+        if (replacedMedicationId == null && replacement == null) {
+            throw new IllegalArgumentException("A substitution must remove or add a medication.");
+        }
+    }
+
+    public static Substitution replace(String medicationId, Medication replacement) {
+        return new Substitution(medicationId, replacement);
+    }
+
+    public static Substitution add(Medication medication) {
+        return new Substitution(null, medication);
+    }
+
+    public static Substitution remove(String medicationId) {
+        return new Substitution(medicationId, null);
+    }
+
+    public String getDescription() {
+        if (replacedMedicationId == null) return "Add " + replacement.getDisplayName();
+        if (replacement == null) return "Remove " + replacedMedicationId;
+        return "Replace " + replacedMedicationId + " with " + replacement.getDisplayName();
+    }
+}
@@ -0,0 +1,211 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps free-text patient allergies and chronic conditions onto the keyword
+ * vocabulary used by the interaction rules. Normalization runs once when a
+ * patient is loaded or edited, so the check strategies only compare codes.
+ * Words of a term not covered by a verbatim keyword are looked up with a
+ * small edit-distance tolerance, so misspellings such as "penicilin" or
+ * "sulpha" still map, even next to a correctly spelt keyword.
+ * Each distinct term is resolved once and cached.
+ */
+public class TermNormalizer {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}<>-]+");
+
+    private final Vocabulary allergyVocabulary;
+    private final Vocabulary conditionVocabulary;
+
+    public TermNormalizer(Collection<String> allergyKeywords, Collection<String> conditionKeywords) {
+        this.allergyVocabulary = new Vocabulary(allergyKeywords);
+        this.conditionVocabulary = new Vocabulary(conditionKeywords);
+    }
+
+    /** Keywords of one rule field with their fuzzy index and the terms already resolved against them. */
+    private static final class Vocabulary {
+        final Set<String> keywords;
+        final Map<String, String> byLowerCase = new LinkedHashMap<>();
+        final FuzzyKeywordIndex fuzzyIndex;
+        final Map<String, Mapping> resolved = new ConcurrentHashMap<>();
+
+        Vocabulary(Collection<String> keywords) {
+            this.keywords = new LinkedHashSet<>(keywords);
+            keywords.forEach(keyword -> byLowerCase.putIfAbsent(keyword.toLowerCase(Locale.ROOT), keyword));
+            this.fuzzyIndex = new FuzzyKeywordIndex(byLowerCase.keySet());
+        }
+    }
+
+    /** Codes a term maps onto, and whether they were only found by tolerating misspellings. */
+    private record Mapping(List<String> codes, boolean fuzzy) {
+    }
+
+    public static TermNormalizer fromRules(Map<String, Object> rules) {
+        return fromRules(rules, Set.of(), Set.of());
+    }
+
+    /**
+     * Builds the vocabulary from the keyword rule sections plus keywords
+     * referenced elsewhere, such as in compiled rule expressions.
+     */
+    public static TermNormalizer fromRules(Map<String, Object> rules,
+                                           Collection<String> extraAllergyKeywords, Collection<String> extraConditionKeywords) {
+        Set<String> allergyKeywords = collectKeywords(rules, "drugAllergyInteractions", "allergyKeywords");
+        Set<String> conditionKeywords = collectKeywords(rules, "drugConditionInteractions", "conditionKeywords");
+        allergyKeywords.addAll(extraAllergyKeywords);
+        conditionKeywords.addAll(extraConditionKeywords);
+        return new TermNormalizer(allergyKeywords, conditionKeywords);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> collectKeywords(Map<String, Object> rules, String section, String field) {
+        Set<String> keywords = new LinkedHashSet<>();
+        if (rules == null || !(rules.get(section) instanceof Map)) {
+            return keywords;
+        }
+        ((Map<String, Object>) rules.get(section)).values().forEach(ruleObj -> {
+            Object value = ((Map<String, Object>) ruleObj).get(field);
+            if (value instanceof List) {
+                keywords.addAll((List<String>) value);
+            }
+        });
+        return keywords;
+    }
+
+    /**
+     * Normalizes the patient's allergies and conditions in place and reports
+     * the terms that did not map onto any known keyword.
+     */
+    public Result normalize(Patient patient) {
+        Codes codes = codesFor(patient);
+        patient.setAllergyCodes(codes.allergyCodes());
+        patient.setConditionCodes(codes.conditionCodes());
+        return codes.result();
+    }
+
+    /** Codes a patient's terms map onto, computed without changing the patient. */
+    public record Codes(Map<String, List<String>> allergyCodes, Map<String, List<String>> conditionCodes, Result result) {}
+
+    public Codes codesFor(Patient patient) {
+        List<String> fuzzyAllergies = new ArrayList<>();
+        List<String> fuzzyConditions = new ArrayList<>();
+        Map<String, List<String>> allergyCodes = mapTerms(patient.getAllergies(), allergyVocabulary, fuzzyAllergies);
+        Map<String, List<String>> conditionCodes = mapTerms(patient.getChronicConditions(), conditionVocabulary, fuzzyConditions);
+        return new Codes(allergyCodes, conditionCodes,
+            new Result(unmapped(allergyCodes), unmapped(conditionCodes), fuzzyAllergies, fuzzyConditions));
+    }
+
+    public List<String> normalizeAllergy(String term) {
+        return mapTerm(term, allergyVocabulary).codes();
+    }
+
+    public List<String> normalizeCondition(String term) {
+        return mapTerm(term, conditionVocabulary).codes();
+    }
+
+    private Map<String, List<String>> mapTerms(List<String> terms, Vocabulary vocabulary, List<String> fuzzyTerms) {
+        Map<String, List<String>> codes = new LinkedHashMap<>();
+        for (String term : terms) {
+            Mapping mapping = mapTerm(term, vocabulary);
+            codes.put(term, mapping.codes());
+            if (mapping.fuzzy()) fuzzyTerms.add(term);
+        }
+        return codes;
+    }
+
+    private Mapping mapTerm(String term, Vocabulary vocabulary) {
+        if (term == null) return new Mapping(List.of(), false);
+        return vocabulary.resolved.computeIfAbsent(term.toLowerCase(Locale.ROOT), termLower -> resolve(termLower, vocabulary));
+    }
+
+    private static Mapping resolve(String termLower, Vocabulary vocabulary) {
+        Set<String> codes = new LinkedHashSet<>();
+        boolean[] covered = new boolean[termLower.length()];
+        for (String keyword : vocabulary.keywords) {
+            String keywordLower = keyword.toLowerCase(Locale.ROOT);
+            if (keywordLower.isEmpty()) continue;
+            for (int at = termLower.indexOf(keywordLower); at >= 0; at = termLower.indexOf(keywordLower, at + 1)) {
+                codes.add(keyword);
+                Arrays.fill(covered, at, at + keywordLower.length(), true);
+            }
+        }
+
+        // Look up each word and short phrase not covered by a verbatim keyword with a typo tolerance,
+        // so "aspirin, penicilin" maps both the exact and the misspelt term
+        List<String> words = new ArrayList<>();
+        Matcher word = WORD.matcher(termLower);
+        while (word.find()) {
+            boolean wordCovered = false;
+            for (int i = word.start(); i < word.end() && !wordCovered; i++) wordCovered = covered[i];
+            // A covered word breaks phrases, so they never straddle an exact match
+            words.add(wordCovered ? null : word.group());
+        }
+        Set<String> fuzzyMatches = new LinkedHashSet<>();
+        for (int start = 0; start < words.size(); start++) {
+            StringBuilder phrase = new StringBuilder();
+            for (int end = start; end < words.size() && words.get(end) != null
+                    && end - start < vocabulary.fuzzyIndex.maxWords(); end++) {
+                if (end > start) phrase.append(' ');
+                phrase.append(words.get(end));
+                int tolerance = FuzzyKeywordIndex.tolerance(phrase.length());
+                if (tolerance > 0) {
+                    vocabulary.fuzzyIndex.search(phrase.toString(), tolerance)
+                        .forEach(keyword -> fuzzyMatches.add(vocabulary.byLowerCase.get(keyword)));
+                }
+            }
+        }
+        fuzzyMatches.removeAll(codes);
+        codes.addAll(fuzzyMatches);
+        return new Mapping(List.copyOf(codes), !fuzzyMatches.isEmpty());
+    }
+
+    private List<String> unmapped(Map<String, List<String>> codes) {
+        List<String> unmapped = new ArrayList<>();
+        codes.forEach((term, termCodes) -> {
+            if (termCodes.isEmpty()) unmapped.add(term);
+        });
+        return unmapped;
+    }
+
+    public static class Result {
+        private final List<String> unmappedAllergies;
+        private final List<String> unmappedConditions;
+        private final List<String> fuzzyAllergies;
+        private final List<String> fuzzyConditions;
+
+        public Result(List<String> unmappedAllergies, List<String> unmappedConditions) {
+            this(unmappedAllergies, unmappedConditions, List.of(), List.of());
+        }
+
+        public Result(List<String> unmappedAllergies, List<String> unmappedConditions,
+                      List<String> fuzzyAllergies, List<String> fuzzyConditions) {
+            this.unmappedAllergies = unmappedAllergies;
+            this.unmappedConditions = unmappedConditions;
+            this.fuzzyAllergies = fuzzyAllergies;
+            this.fuzzyConditions = fuzzyConditions;
+        }
+
+        public List<String> getUnmappedAllergies() { return new ArrayList<>(unmappedAllergies); }
+        public List<String> getUnmappedConditions() { return new ArrayList<>(unmappedConditions); }
+        /** Allergies that only mapped after tolerating a misspelling, worth confirming with the patient. */
+        public List<String> getFuzzyAllergies() { return new ArrayList<>(fuzzyAllergies); }
+        public List<String> getFuzzyConditions() { return new ArrayList<>(fuzzyConditions); }
+
+        public boolean hasUnmappedTerms() {
+            return !unmappedAllergies.isEmpty() || !unmappedConditions.isEmpty();
+        }
+    }
+}
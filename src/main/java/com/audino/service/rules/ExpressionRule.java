@@ -0,0 +1,13 @@
+package com.audino.service.rules;
+
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertType;
+import java.util.function.Predicate;
+
+/**
+ * A rule from the expressionRules section, with its condition compiled to a
+ * predicate that is tested once per prescribed medication.
+ */
+public record ExpressionRule(String ruleId, AlertType alertType, AlertLevel alertLevel,
+                             String patientFactor, Predicate<RuleContext> predicate) {
+}
@@ -0,0 +1,212 @@
+package com.audino.service.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles rule expressions from interaction-rules.json into composed
+ * predicates once at load time, so evaluation never walks the JSON maps.
+ *
+ * <p>An expression is an object with a single operator key:
+ * <pre>
+ * {"and": [expr, ...]}            {"or": [expr, ...]}        {"not": expr}
+ * {"medicationClass": [CLASS, ...]}  the medication being checked has a class
+ * {"regimenClass": [CLASS, ...]}     another medication in the regimen has a class
+ * {"allergy": [keyword, ...]}        {"condition": [keyword, ...]}
+ * {"age": {">=": 65}}                {"regimenSize": {">": 4}}
+ * </pre>
+ * Identical sub-expressions are compiled once and shared between rules.
+ * Sub-expressions that only look at the patient or the regimen as a whole are
+ * evaluated at most once per check and remembered in the {@link RuleContext}.
+ */
+public class PredicateCompiler {
+
+    private final Map<String, Node> compiled = new HashMap<>();
+    private final Map<String, Integer> memoSlots = new HashMap<>();
+    private final Set<String> allergyKeywords = new LinkedHashSet<>();
+    private final Set<String> conditionKeywords = new LinkedHashSet<>();
+
+    /**
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public Predicate<RuleContext> compile(Object expression) {
+        return memoize(node(expression));
+    }
+
+    /** Number of memo slots a {@link RuleContext} needs for the predicates compiled so far. */
+    public int getMemoSlots() {
+        return memoSlots.size();
+    }
+
+    /** Allergy keywords referenced by the compiled expressions, for term normalization. */
+    public Set<String> getAllergyKeywords() {
+        return allergyKeywords;
+    }
+
+    /** Condition keywords referenced by the compiled expressions, for term normalization. */
+    public Set<String> getConditionKeywords() {
+        return conditionKeywords;
+    }
+
+    private Node node(Object expression) {
+        if (!(expression instanceof Map<?, ?> map) || map.size() != 1) {
+            throw new IllegalArgumentException("Rule expression must be an object with one operator: " + expression);
+        }
+        Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+        String operator = String.valueOf(entry.getKey());
+        Object operand = entry.getValue();
+
+        return switch (operator) {
+            case "and" -> combine("and", operands(operator, operand), true);
+            case "or" -> combine("or", operands(operator, operand), false);
+            case "not" -> negate(node(operand));
+            case "medicationClass" -> {
+                Set<String> classes = upperCase(keywords(operator, operand));
+                yield share(new Node("medicationClass" + classes, ctx -> ctx.currentHasAny(classes), false));
+            }
+            case "regimenClass" -> {
+                Set<String> classes = upperCase(keywords(operator, operand));
+                yield share(new Node("regimenClass" + classes, ctx -> ctx.othersHaveAny(classes), false));
+            }
+            case "allergy" -> {
+                Set<String> keywords = keywords(operator, operand);
+                allergyKeywords.addAll(keywords);
+                yield share(new Node("allergy" + keywords, ctx -> ctx.hasAllergy(keywords), true));
+            }
+            case "condition" -> {
+                Set<String> keywords = keywords(operator, operand);
+                conditionKeywords.addAll(keywords);
+                yield share(new Node("condition" + keywords, ctx -> ctx.hasCondition(keywords), true));
+            }
+            case "age" -> comparison(operator, operand, RuleContext::age);
+            case "regimenSize" -> comparison(operator, operand, RuleContext::regimenSize);
+            default -> throw new IllegalArgumentException("Unknown rule operator '" + operator + "'.");
+        };
+    }
+
+    private List<Node> operands(String operator, Object operand) {
+        if (!(operand instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("'" + operator + "' needs a non-empty list of expressions.");
+        }
+        return list.stream().map(this::node).collect(Collectors.toList());
+    }
+
+    private Node combine(String operator, List<Node> children, boolean conjunction) {
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        boolean invariant = children.stream().allMatch(Node::invariant);
+        String key = operator + children.stream().map(Node::key).collect(Collectors.joining(",", "(", ")"));
+
+        // An invariant composite is memoized as a whole; otherwise memoize its invariant parts
+        List<Predicate<RuleContext>> parts = new ArrayList<>();
+        for (Node child : children) {
+            parts.add(invariant ? child.predicate() : memoize(child));
+        }
+
+        Predicate<RuleContext> predicate;
+        if (parts.size() == 2) {
+            Predicate<RuleContext> left = parts.get(0);
+            Predicate<RuleContext> right = parts.get(1);
+            predicate = conjunction ? ctx -> left.test(ctx) && right.test(ctx) : ctx -> left.test(ctx) || right.test(ctx);
+        } else {
+            @SuppressWarnings("unchecked")
+            Predicate<RuleContext>[] array = parts.toArray(new Predicate[0]);
+            predicate = conjunction ? ctx -> {
+                for (Predicate<RuleContext> part : array) {
+                    if (!part.test(ctx)) return false;
+                }
+                return true;
+            } : ctx -> {
+                for (Predicate<RuleContext> part : array) {
+                    if (part.test(ctx)) return true;
+                }
+                return false;
+            };
+        }
+        return share(new Node(key, predicate, invariant));
+    }
+
+    private Node negate(Node child) {
+        Predicate<RuleContext> inner = child.invariant() ? child.predicate() : memoize(child);
+        return share(new Node("not(" + child.key() + ")", ctx -> !inner.test(ctx), child.invariant()));
+    }
+
+    private Node comparison(String operator, Object operand, ToIntFunction<RuleContext> value) {
+        if (!(operand instanceof Map<?, ?> bounds) || bounds.isEmpty()) {
+            throw new IllegalArgumentException("'" + operator + "' needs an object such as {\">=\": 65}.");
+        }
+        Map<String, Object> sorted = new TreeMap<>();
+        bounds.forEach((comparator, bound) -> sorted.put(String.valueOf(comparator), bound));
+
+        IntPredicate test = null;
+        for (Map.Entry<String, Object> bound : sorted.entrySet()) {
+            IntPredicate next = compare(operator, bound.getKey(), bound.getValue());
+            test = test == null ? next : test.and(next);
+        }
+        IntPredicate combined = test;
+        return share(new Node(operator + sorted, ctx -> combined.test(value.applyAsInt(ctx)), true));
+    }
+
+    private static IntPredicate compare(String operator, String comparator, Object bound) {
+        if (!(bound instanceof Number number)) {
+            throw new IllegalArgumentException("'" + operator + "' must be compared with a number, got " + bound);
+        }
+        int limit = number.intValue();
+        return switch (comparator) {
+            case "<" -> v -> v < limit;
+            case "<=" -> v -> v <= limit;
+            case ">" -> v -> v > limit;
+            case ">=" -> v -> v >= limit;
+            case "==" -> v -> v == limit;
+            case "!=" -> v -> v != limit;
+            default -> throw new IllegalArgumentException("Unknown comparison '" + comparator + "' for '" + operator + "'.");
+        };
+    }
+
+    private static Set<String> keywords(String operator, Object operand) {
+        Set<String> keywords = new TreeSet<>();
+        if (operand instanceof String value) {
+            keywords.add(value);
+        } else if (operand instanceof List<?> list) {
+            list.forEach(value -> keywords.add(String.valueOf(value)));
+        }
+        if (keywords.isEmpty()) {
+            throw new IllegalArgumentException("'" + operator + "' needs a name or a list of names.");
+        }
+        return keywords;
+    }
+
+    private static Set<String> upperCase(Set<String> values) {
+        return values.stream().map(String::toUpperCase).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private Node share(Node node) {
+        return compiled.computeIfAbsent(node.key(), key -> node);
+    }
+
+    private Predicate<RuleContext> memoize(Node node) {
+        if (!node.invariant()) {
+            return node.predicate();
+        }
+        int slot = memoSlots.computeIfAbsent(node.key(), key -> memoSlots.size());
+        Predicate<RuleContext> inner = node.predicate();
+        return ctx -> ctx.memoized(slot, inner);
+    }
+
+    /**
+     * A compiled sub-expression. Invariant nodes do not depend on which
+     * medication is being checked.
+     */
+    private record Node(String key, Predicate<RuleContext> predicate, boolean invariant) {}
+}
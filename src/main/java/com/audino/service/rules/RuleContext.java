@@ -0,0 +1,119 @@
+package com.audino.service.rules;
+
+import com.audino.model.Medication;
+import com.audino.model.Patient;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Facts a compiled rule predicate is evaluated against: the patient, the
+ * regimen, and the medication currently under consideration. One context is
+ * built per check and reused for every medication and rule.
+ */
+public final class RuleContext {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final Set<String> allergyCodes;
+    private final Set<String> conditionCodes;
+    private final int age;
+    private final List<Set<String>> medicationClasses;
+    private final byte[] memo;
+    private int current;
+
+    public RuleContext(Patient patient, List<Medication> regimen, int memoSlots) {
+        this(patient, regimen, memoSlots, identifiers -> identifiers);
+    }
+
+    /**
+     * @param classExpander maps a medication's interaction identifiers to the
+     *                      classes it belongs to, such as the identifiers plus
+     *                      their ancestors in the drug class ontology
+     */
+    public RuleContext(Patient patient, List<Medication> regimen, int memoSlots,
+                       Function<Collection<String>, ? extends Collection<String>> classExpander) {
+        this.allergyCodes = flatten(patient != null ? patient.getAllergyCodes() : null);
+        this.conditionCodes = flatten(patient != null ? patient.getConditionCodes() : null);
+        this.age = patient != null ? patient.getAge() : 0;
+        this.medicationClasses = new ArrayList<>(regimen.size());
+        for (Medication med : regimen) {
+            Set<String> classes = new HashSet<>();
+            classExpander.apply(med.getInteractionIdentifiers()).forEach(id -> classes.add(id.toUpperCase()));
+            medicationClasses.add(classes);
+        }
+        this.memo = new byte[memoSlots];
+    }
+
+    private static Set<String> flatten(Map<String, List<String>> codes) {
+        Set<String> flat = new HashSet<>();
+        if (codes != null) {
+            codes.values().forEach(flat::addAll);
+        }
+        return flat;
+    }
+
+    public void setCurrent(int index) {
+        this.current = index;
+    }
+
+    public int getCurrent() {
+        return current;
+    }
+
+    public int regimenSize() {
+        return medicationClasses.size();
+    }
+
+    public int age() {
+        return age;
+    }
+
+    public boolean currentHasAny(Set<String> classes) {
+        return intersects(medicationClasses.get(current), classes);
+    }
+
+    public boolean othersHaveAny(Set<String> classes) {
+        for (int i = 0; i < medicationClasses.size(); i++) {
+            if (i != current && intersects(medicationClasses.get(i), classes)) return true;
+        }
+        return false;
+    }
+
+    public boolean hasAllergy(Set<String> keywords) {
+        return intersects(allergyCodes, keywords);
+    }
+
+    public boolean hasCondition(Set<String> keywords) {
+        return intersects(conditionCodes, keywords);
+    }
+
+    /**
+     * Evaluates a predicate that does not depend on the current medication at
+     * most once per context.
+     */
+    boolean memoized(int slot, Predicate<RuleContext> predicate) {
+        byte cached = memo[slot];
+        if (cached == UNKNOWN) {
+            cached = predicate.test(this) ? TRUE : FALSE;
+            memo[slot] = cached;
+        }
+        return cached == TRUE;
+    }
+
+    private static boolean intersects(Set<String> facts, Set<String> wanted) {
+        Set<String> smaller = facts.size() <= wanted.size() ? facts : wanted;
+        Set<String> larger = smaller == facts ? wanted : facts;
+        for (String value : smaller) {
+            if (larger.contains(value)) return true;
+        }
+        return false;
+    }
+}
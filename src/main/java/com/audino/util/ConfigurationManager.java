@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 public class ConfigurationManager {
@@ -51,6 +52,7 @@ public class ConfigurationManager {
     private void setDefaultProperties() {
         applicationProperties.setProperty("data.medications.file", "/data/medications.json");
         applicationProperties.setProperty("data.interactions.file", "/data/interaction-rules.json");
+        applicationProperties.setProperty("data.classes.file", "/data/drug-classes.json");
         applicationProperties.setProperty("mongodb.uri", "mongodb://localhost:27017");
         applicationProperties.setProperty("mongodb.database", "audino");
     }
@@ -77,10 +79,33 @@ public class ConfigurationManager {
         return getProperty("data.interactions.file", "/data/interaction-rules.json");
     }
     
+    public String getDrugClassesDataFile() {
+        return getProperty("data.classes.file", "/data/drug-classes.json");
+    }
+
     public String getPrescriptionsDataFile() {
         return getProperty("data.prescriptions.file", "/data/prescriptions.json");
     }
 
+    /** Where patients and prescriptions are stored: "json" for the bundled data files or "mongodb". */
+    public String getStorageBackend() {
+        return getProperty("storage.backend", "json");
+    }
+
+    public String getMongoUri() {
+        return getProperty("mongodb.uri", "mongodb://localhost:27017");
+    }
+
+    public String getMongoDatabase() {
+        return getProperty("mongodb.database", "audino");
+    }
+
+    /** File system path of the persisted alert view, outside the bundled resources. */
+    public String getAlertViewFile() {
+        return getProperty("cache.alerts.file",
+            Paths.get(System.getProperty("user.home"), ".audino", "alert-view.json").toString());
+    }
+
     public ObjectMapper getObjectMapper() {
         return objectMapper;
     }
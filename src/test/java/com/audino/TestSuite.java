@@ -2,8 +2,11 @@ package com.audino;
 
 import com.audino.model.MedicationTest;
 import com.audino.model.PatientTest;
+import com.audino.service.DataRepositoryTest;
 import com.audino.service.DataServiceTest;
 import com.audino.service.InteractionEngineTest;
+import com.audino.service.TermNormalizerTest;
+import com.audino.service.rules.PredicateCompilerTest;
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
 import org.junit.platform.suite.api.SuiteDisplayName;
@@ -18,7 +21,10 @@ import org.junit.platform.suite.api.SuiteDisplayName;
     PatientTest.class,
     MedicationTest.class,
     DataServiceTest.class,
-    InteractionEngineTest.class
+    DataRepositoryTest.class,
+    InteractionEngineTest.class,
+    TermNormalizerTest.class,
+    PredicateCompilerTest.class
 })
 public class TestSuite {
     // This class remains empty. It's used only as a holder for the above annotations.
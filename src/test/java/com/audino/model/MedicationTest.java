@@ -55,4 +55,36 @@ public class MedicationTest { // This line was changed
         assertFalse(injection.isValidDosage("1 g"));
         assertFalse(injection.isValidDosage("one unit"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should parse dosages into structured daily amounts")
+    void testDosageParsing() {
+        assertEquals(new Dosage.Amount(10, "mg"), Dosage.parseAmount("10 MG"));
+        assertEquals(new Dosage.Amount(2, "each"), Dosage.parseAmount("2"));
+        assertEquals(new Dosage.Amount(20, "units"), Dosage.parseAmount("20 units"));
+        assertNull(Dosage.parseAmount("ten ml"));
+
+        assertEquals(1, Dosage.parseDosesPerDay("Once daily at bedtime"));
+        assertEquals(3, Dosage.parseDosesPerDay("Three times daily"));
+        assertEquals(4, Dosage.parseDosesPerDay("Every 6 hours as needed"));
+        assertEquals(4, Dosage.parseDosesPerDay("2 puffs twice daily"));
+        assertEquals(2, Dosage.parseDosesPerDay("bid"));
+        assertEquals(0, Dosage.parseDosesPerDay("as directed"));
+        // Ranges count at their most frequent end
+        assertEquals(6, Dosage.parseDosesPerDay("Every 4-6 hours as needed"));
+        assertEquals(6, Dosage.parseDosesPerDay("q4-6h prn"));
+        assertEquals(3, Dosage.parseDosesPerDay("2-3 times daily"));
+        assertEquals(2, Dosage.parseDosesPerDay("Once or twice daily"));
+
+        PrescribedDrug drug = new PrescribedDrug(tablet, "2", "Every 4 hours", "7 days", "", "");
+        assertEquals(new Dosage.Amount(12, "each"), drug.getParsedDosage().dailyAmount());
+        assertEquals(new Dosage.Amount(2400, "mg"), tablet.getUnitStrength().of(drug.getParsedDosage().dailyAmount()));
+        drug.setFrequency("Twice daily");
+        assertEquals(new Dosage.Amount(4, "each"), drug.getParsedDosage().dailyAmount());
+
+        Dosage.Strength concentration = Dosage.parseStrength("40mg/0.8mL");
+        assertEquals(new Dosage.Amount(50, "mg"), concentration.of(new Dosage.Amount(1, "ml")));
+        assertEquals(new Dosage.Amount(0.5, "mg"), new Dosage.Amount(500, "mcg").convertTo("mg"));
+        assertNull(new Dosage.Amount(5, "ml").convertTo("mg"));
+    }
+}
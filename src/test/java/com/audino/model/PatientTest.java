@@ -5,6 +5,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DisplayName("Patient Model Tests")
@@ -51,6 +52,29 @@ public class PatientTest { // This line was changed
         assertTrue(allergies.contains("Sulfa"));
     }
 
+    @Test
+    @DisplayName("Should drop the contraindication profile when terms change")
+    void testProfileInvalidatedOnEdit() {
+        patient.setContraindicationProfile(new ContraindicationProfile(1, Map.of()));
+        patient.addChronicCondition("Asthma");
+        assertNull(patient.getContraindicationProfile());
+    }
+
+    @Test
+    @DisplayName("Should publish codes and profile together and drop them on a term edit")
+    void testNormalizationPublishedTogether() {
+        ContraindicationProfile profile = new ContraindicationProfile(2, Map.of());
+        patient.setNormalization(Map.of("Sulfa", List.of("sulfa")), Map.of(), profile);
+        assertTrue(patient.isNormalized());
+        assertSame(profile, patient.getContraindicationProfile());
+
+        patient.addAllergy("Latex");
+        assertFalse(patient.isNormalized());
+        assertNull(patient.getAllergyCodes());
+        assertEquals(Map.of(), patient.getConditionCodes());
+        assertNull(patient.getContraindicationProfile());
+    }
+
     @Test
     @DisplayName("Should add and retrieve conditions correctly")
     void testConditionManagement() {
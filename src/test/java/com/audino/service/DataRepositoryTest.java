@@ -0,0 +1,178 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import com.audino.model.PrescribedDrug;
+import com.audino.model.Prescription;
+import com.audino.model.PrescriptionStatus;
+import com.audino.util.ConfigurationManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import java.time.LocalDate;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Data Repository Tests")
+public class DataRepositoryTest {
+
+    private static ObjectMapper mapper;
+    private static DataService source;
+
+    @BeforeAll
+    static void setUp() {
+        ConfigurationManager.getInstance().initialize();
+        mapper = ConfigurationManager.getInstance().getObjectMapper();
+        // The bundled data files, read but never written
+        source = new DataService();
+        source.loadAllData();
+    }
+
+    @Test
+    @DisplayName("Should match name search terms by word prefix")
+    void testNameKeys() {
+        Patient patient = new Patient("Rajesh", "Kumar", LocalDate.of(1980, 1, 1));
+        assertEquals(List.of("rajesh", "kumar"), DataRepository.nameKeys(patient));
+        assertTrue(DataRepository.matchesName(patient, "raj KU"));
+        assertTrue(DataRepository.matchesName(patient, "kumar"));
+        assertFalse(DataRepository.matchesName(patient, "esh"));
+        assertFalse(DataRepository.matchesName(patient, "raj sharma"));
+    }
+
+    @Test
+    @DisplayName("Should write changes through to the in-memory repository")
+    void testInMemoryRepository() {
+        verifyRepository(new InMemoryRepository(mapper));
+    }
+
+    @Test
+    @DisplayName("Should write changes through to MongoDB")
+    @EnabledIfSystemProperty(named = "mongodb.test.uri", matches = ".+")
+    void testMongoRepository() {
+        String database = "audino_test_" + System.nanoTime();
+        MongoClient client = MongoClients.create(System.getProperty("mongodb.test.uri"));
+        try {
+            verifyRepository(new MongoRepository(client, database, mapper));
+            verifyChangeDetection(new MongoRepository(client, database, mapper), new MongoRepository(client, database, mapper));
+        } finally {
+            client.getDatabase(database).drop();
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should search and look up prescriptions through a repository shared with another service")
+    void testSharedRepository() {
+        InMemoryRepository shared = new InMemoryRepository(mapper) {
+            @Override
+            public boolean hasIndexedFinders() {
+                return true;
+            }
+        };
+        shared.replaceAll(source.getAllPatients(), source.getAllPrescriptions());
+        DataService here = new DataService(shared);
+        here.loadAllData();
+        DataService elsewhere = new DataService(shared);
+        elsewhere.loadAllData();
+
+        Patient added = new Patient("Shared", "Workstation", LocalDate.of(1985, 3, 1));
+        added.setPatientId("PAT-SHARED");
+        elsewhere.savePatient(added);
+        assertNull(here.getPatient(added.getPatientId()));
+        List<Patient> found = here.searchPatients("shared work");
+        assertEquals(List.of(added.getPatientId()), found.stream().map(Patient::getPatientId).toList());
+        assertSame(here.getPatient(added.getPatientId()), found.get(0));
+        assertTrue(here.matchesPatientSearch(found.get(0), "shared work"));
+
+        Patient patel = elsewhere.searchPatients("Patel").get(0);
+        Prescription replacement = new Prescription(patel, "Dr. Elsewhere");
+        replacement.addPrescribedDrug(new PrescribedDrug(elsewhere.getRuleset().getMedication("MED-012"), "1", "Once daily", "Ongoing", "", ""));
+        elsewhere.savePrescription(replacement);
+        here.refreshPrescriptionsForPatient(patel.getPatientId());
+        assertEquals(replacement.getPrescriptionId(), here.getActivePrescriberionForPatient(patel.getPatientId()).getPrescriptionId());
+        assertEquals(2, here.getPrescriptionsForPatient(here.getPatient(patel.getPatientId())).size());
+
+        // A full save from one service leaves records it has not loaded alone
+        Patient late = new Patient("Late", "Arrival", LocalDate.of(1975, 6, 1));
+        late.setPatientId("PAT-LATE");
+        elsewhere.savePatient(late);
+        here.saveAllData();
+        assertTrue(shared.loadPatients().stream().anyMatch(patient -> patient.getPatientId().equals(late.getPatientId())));
+    }
+
+    /** Each repository reports writes made through the other as changes, and not its own. */
+    private void verifyChangeDetection(DataRepository here, DataRepository elsewhere) {
+        here.replaceAll(source.getAllPatients(), List.of());
+        here.loadPatients();
+        assertNull(here.loadPatientsIfChanged(false));
+        Patient own = new Patient("Own", "Write", LocalDate.of(1990, 1, 1));
+        own.setPatientId("PAT-OWNWRITE");
+        here.savePatients(List.of(own));
+        assertNull(here.loadPatientsIfChanged(false));
+
+        Patient other = new Patient("Other", "Write", LocalDate.of(1990, 1, 1));
+        other.setPatientId("PAT-OTHERWRITE");
+        elsewhere.savePatients(List.of(other));
+        List<Patient> reloaded = here.loadPatientsIfChanged(false);
+        assertNotNull(reloaded);
+        assertTrue(reloaded.stream().anyMatch(patient -> patient.getPatientId().equals(other.getPatientId())));
+        assertNull(here.loadPatientsIfChanged(false));
+
+        elsewhere.deletePatients(List.of(own.getPatientId()));
+        assertEquals(source.getAllPatients().size() + 1, here.loadPatientsIfChanged(false).size());
+    }
+
+    private void verifyRepository(DataRepository repository) {
+        repository.replaceAll(source.getAllPatients(), source.getAllPrescriptions());
+        DataService service = new DataService(repository);
+        service.loadAllData();
+        assertEquals(source.getAllPatients().size(), service.getAllPatients().size());
+        assertEquals(source.getAllPrescriptions().size(), service.getAllPrescriptions().size());
+        assertEquals(List.of("PAT-A1B2C3D4"), repository.findPatientsByName("raj ku").stream().map(Patient::getPatientId).toList());
+        // Drugs point at the catalog's medications again
+        Prescription loaded = service.getAllPrescriptions().get(0);
+        assertSame(service.getRuleset().getMedication(loaded.getPrescribedDrugs().get(0).getMedicationId()),
+            loaded.getPrescribedDrugs().get(0).getMedication());
+
+        Patient added = new Patient("Repo", "Tester", LocalDate.of(1990, 5, 1));
+        added.setPatientId("PAT-REPOTEST");
+        service.savePatient(added);
+        Patient patel = service.searchPatients("Patel").get(0);
+        Prescription original = service.getActivePrescriberionForPatient(patel.getPatientId());
+        Prescription replacement = new Prescription(patel, "Dr. Test");
+        replacement.addPrescribedDrug(new PrescribedDrug(service.getRuleset().getMedication("MED-052"), "1", "Once daily", "Ongoing", "", ""));
+        service.savePrescription(replacement);
+        Patient removed = service.searchPatients("Mandal").get(0);
+        service.deletePatient(removed);
+
+        // A new service sees every change, the superseded version included
+        DataService reopened = new DataService(repository);
+        reopened.loadAllData();
+        assertNotNull(reopened.getPatient(added.getPatientId()));
+        assertNull(reopened.getPatient(removed.getPatientId()));
+        List<Prescription> patelPrescriptions = repository.findPrescriptionsForPatient(patel.getPatientId(), reopened.getRuleset());
+        assertEquals(2, patelPrescriptions.size());
+        assertEquals(PrescriptionStatus.SUPERSEDED, patelPrescriptions.stream()
+            .filter(p -> p.getPrescriptionId().equals(original.getPrescriptionId())).findFirst().orElseThrow().getStatus());
+        assertEquals(replacement.getPrescriptionId(),
+            reopened.getActivePrescriberionForPatient(patel.getPatientId()).getPrescriptionId());
+        assertEquals(List.of(added.getPatientId()), repository.findPatientsByName("tester").stream().map(Patient::getPatientId).toList());
+
+        // An edit never saved is discarded by a forced reload
+        Patient edited = reopened.getPatient(added.getPatientId());
+        edited.setAllergies(List.of("Penicillin"));
+        assertTrue(reopened.reloadChangedData(false).isEmpty());
+        DataService.ReloadResult result = reopened.reloadChangedData(true);
+        assertEquals(List.of("patients"), result.changedSources());
+        assertEquals(1, result.updated());
+        assertSame(edited, reopened.getPatient(added.getPatientId()));
+        assertTrue(edited.getAllergies().isEmpty());
+
+        repository.replaceAll(List.of(), List.of());
+        assertTrue(repository.loadPatients().isEmpty());
+        assertTrue(repository.loadPrescriptions(reopened.getRuleset()).isEmpty());
+    }
+}
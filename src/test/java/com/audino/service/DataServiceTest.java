@@ -1,11 +1,35 @@
 package com.audino.service;
 
+import com.audino.model.AlertLevel;
+import com.audino.model.AlertMatch;
+import com.audino.model.ExposureHistory;
+import com.audino.model.InteractionAlert;
 import com.audino.model.Medication;
 import com.audino.model.Patient;
+import com.audino.model.PrescribedDrug;
+import com.audino.model.Prescription;
+import com.audino.model.PrescriptionStatus;
+import com.audino.util.ConfigurationManager;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DisplayName("Data Service Tests")
@@ -64,4 +88,350 @@ public class DataServiceTest {
         List<Medication> searchResults = dataService.searchMedications(null);
         assertEquals(allMedications.size(), searchResults.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should publish a new ruleset version on reload")
+    void testReloadRuleset() {
+        Ruleset before = dataService.getRuleset();
+        List<Ruleset> published = new ArrayList<>();
+        Runnable unsubscribe = dataService.getEventBus().subscribe(DataEvent.RulesReloaded.class, event -> {
+            assertSame(before, event.previous());
+            published.add(event.current());
+        });
+
+        Ruleset after = dataService.reloadRuleset();
+        unsubscribe.run();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertSame(after, dataService.getRuleset());
+        assertEquals(List.of(after), published);
+        assertEquals(before.getMedications().size(), after.getMedications().size());
+
+        // A service whose first load never ran has no earlier ruleset to carry statistics from
+        DataService unloaded = new DataService(new InMemoryRepository(ConfigurationManager.getInstance().getObjectMapper()));
+        assertNotNull(unloaded.reloadRuleset());
+        assertNotNull(unloaded.getRuleset());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed interaction rules")
+    void testRulesetValidation() {
+        Map<String, Object> rules = Map.of("drugDrugInteractions", Map.of("broken", Map.of("drug1", "NSAID")));
+        assertThrows(IllegalArgumentException.class, () -> Ruleset.compile(rules, dataService.getAllMedications()));
+
+        Map<String, Object> burden = Map.of("burdenRules", Map.of("noThreshold", Map.of("weights", Map.of("QT_PROLONGING", 1))));
+        assertThrows(IllegalArgumentException.class, () -> Ruleset.compile(burden, dataService.getAllMedications()));
+    }
+
+    @Test
+    @DisplayName("Should materialize a contraindication profile per patient")
+    void testContraindicationProfile() {
+        Patient kumar = dataService.searchPatients("Kumar").get(0);
+        Ruleset ruleset = dataService.getRuleset();
+        assertNotNull(kumar.getContraindicationProfile());
+        assertEquals(ruleset.getVersion(), kumar.getContraindicationProfile().getRulesetVersion());
+
+        assertEquals(AlertLevel.CRITICAL, ruleset.contraindicationLevel(kumar, medicationId("Amoxicillin")));
+        assertEquals(AlertLevel.WARNING, ruleset.contraindicationLevel(kumar, medicationId("Lisinopril")));
+        assertNull(ruleset.contraindicationLevel(kumar, medicationId("Acetaminophen")));
+    }
+
+    @Test
+    @DisplayName("Should match rules on parent and cross-reactive drug classes")
+    void testDrugClassOntology() {
+        Ruleset ruleset = dataService.getRuleset();
+        DrugClassOntology ontology = ruleset.getOntology();
+        assertTrue(ontology.getAncestors("ANTIBIOTIC_PENICILLIN").containsAll(List.of("BETA_LACTAM", "ANTIBIOTIC")));
+
+        Patient patient = new Patient("Jane", "Doe", LocalDate.of(1960, 1, 1));
+        patient.addAllergy("Sulfa drugs");
+        patient.addAllergy("Ibuprofen");
+        ruleset.getTermNormalizer().normalize(patient);
+        // Loop diuretics only reach the sulfa rule through cross-reactivity, celecoxib only through its parent class
+        assertEquals(AlertLevel.CRITICAL, ruleset.contraindicationLevel(patient, medicationId("Furosemide")));
+        assertEquals(AlertLevel.CRITICAL, ruleset.contraindicationLevel(patient, medicationId("Celecoxib")));
+        assertNull(ruleset.contraindicationLevel(patient, medicationId("Amoxicillin")));
+
+        Map<String, Object> cyclic = Map.of("classes", Map.of("A", List.of("B"), "B", List.of("A")));
+        assertThrows(IllegalArgumentException.class, () -> DrugClassOntology.fromMap(cyclic));
+    }
+
+    @Test
+    @DisplayName("Should keep superseded prescriptions as exposure history")
+    void testPrescriptionHistory() {
+        DataService history = new DataService();
+        history.loadAllData();
+        Patient patel = history.searchPatients("Patel").get(0);
+        Prescription original = history.getActivePrescriberionForPatient(patel.getPatientId());
+        int exposures = patel.getExposureHistory().size();
+
+        Prescription replacement = new Prescription(patel, "Dr. Test");
+        replacement.addPrescribedDrug(new PrescribedDrug(history.getRuleset().getMedication("MED-052"), "1", "Once daily", "Ongoing", "", ""));
+        List<DataEvent.PrescriptionSaved> saved = new ArrayList<>();
+        history.getEventBus().subscribe(DataEvent.PrescriptionSaved.class, saved::add);
+        history.recordPrescription(replacement);
+
+        assertEquals(List.of(new DataEvent.PrescriptionSaved(replacement, List.of(original))), saved);
+        assertEquals(Set.of(replacement), history.getCurrentPrescriptions(patel.getPatientId()));
+        assertSame(replacement, history.getActivePrescriberionForPatient(patel.getPatientId()));
+        assertEquals(original.getVersion() + 1, replacement.getVersion());
+        assertEquals(PrescriptionStatus.SUPERSEDED, original.getStatus());
+        assertNotNull(original.getSupersededAt());
+        assertEquals(2, history.getPrescriptionsForPatient(patel).size());
+        assertEquals(exposures + 1, patel.getExposureHistory().size());
+
+        // Drugs from the superseded version stay active only through their washout
+        LocalDateTime later = LocalDateTime.now().plusDays(1);
+        assertTrue(patel.getExposureHistory().activeAt(later).stream()
+            .noneMatch(exposure -> exposure.prescriptionId().equals(original.getPrescriptionId())));
+        assertEquals(List.of("MED-052"), patel.getExposureHistory().activeAt(later).stream()
+            .map(ExposureHistory.Exposure::medicationId).toList());
+    }
+
+    @Test
+    @DisplayName("Should deliver data events by type until unsubscribed")
+    void testDataEventBus() {
+        DataEventBus bus = new DataEventBus();
+        Patient patient = dataService.getAllPatients().get(0);
+        List<DataEvent> all = new ArrayList<>();
+        List<Patient> added = new ArrayList<>();
+        bus.subscribe(DataEvent.PatientAdded.class, event -> {
+            throw new IllegalStateException("failing subscriber");
+        });
+        bus.subscribe(DataEvent.class, all::add);
+        Runnable unsubscribe = bus.subscribe(DataEvent.PatientAdded.class, event -> added.add(event.patient()));
+
+        bus.publish(new DataEvent.PatientAdded(patient));
+        bus.publish(new DataEvent.PatientDeleted(patient));
+        unsubscribe.run();
+        bus.publish(new DataEvent.PatientAdded(patient));
+
+        assertEquals(List.of(patient), added);
+        assertEquals(3, all.size());
+        assertInstanceOf(DataEvent.PatientDeleted.class, all.get(1));
+    }
+
+    @Test
+    @DisplayName("Should apply only the stored records that changed")
+    void testDifferentialReload() throws Exception {
+        ObjectMapper mapper = ConfigurationManager.getInstance().getObjectMapper();
+        DataService reload = new DataService();
+        reload.loadAllData();
+        assertTrue(reload.reloadChangedData(false).isEmpty());
+        List<DataEvent> events = new ArrayList<>();
+        reload.getEventBus().subscribe(DataEvent.class, events::add);
+
+        List<Patient> patients = reload.getAllPatients();
+        Patient edited = patients.get(0);
+        Patient removed = patients.get(patients.size() - 1);
+        ArrayNode patientFile = mapper.valueToTree(patients);
+        ((ObjectNode) patientFile.get(0)).putArray("allergies").add("Sulfa");
+        patientFile.remove(patients.size() - 1);
+        patientFile.addObject().put("patientId", "PAT-RELOADED").put("firstName", "Reload").put("lastName", "Test");
+
+        RecordDiff<Patient> patientDiff = reload.applyPatients(mapper.convertValue(patientFile, new TypeReference<List<Patient>>() {}));
+        assertEquals(1, patientDiff.getInserted().size());
+        assertEquals(1, patientDiff.getUpdated().size());
+        assertEquals(List.of(removed), patientDiff.getDeleted());
+        // Updated in place and normalized again
+        assertSame(edited, reload.getPatient(edited.getPatientId()));
+        assertEquals(List.of("Sulfa"), edited.getAllergies());
+        assertTrue(edited.isNormalized());
+        assertNull(reload.getPatient(removed.getPatientId()));
+        assertNotNull(reload.getPatient("PAT-RELOADED"));
+        assertEquals(List.of(DataEvent.PatientAdded.class, DataEvent.PatientUpdated.class, DataEvent.PatientDeleted.class),
+            events.stream().map(Object::getClass).toList());
+        assertTrue(reload.applyPatients(mapper.convertValue(patientFile, new TypeReference<List<Patient>>() {})).isEmpty());
+
+        // An edit made in memory but never saved is reverted to the file's version
+        events.clear();
+        List<Prescription> prescriptions = reload.getAllPrescriptions();
+        Prescription unsaved = prescriptions.get(0);
+        Prescription dropped = prescriptions.get(prescriptions.size() - 1);
+        byte[] prescriptionFile = mapper.writeValueAsBytes(new PrescriptionStore(mapper).toStoredForm(prescriptions.subList(0, prescriptions.size() - 1)));
+        int drugCount = unsaved.getPrescribedDrugs().size();
+        unsaved.addPrescribedDrug(new PrescribedDrug(reload.getRuleset().getMedication("MED-020"), "1", "Once daily", "5 days", "", ""));
+
+        RecordDiff<Prescription> prescriptionDiff = reload.applyPrescriptions(new PrescriptionStore(mapper).read(new ByteArrayInputStream(prescriptionFile), reload.getRuleset()));
+        assertEquals(0, prescriptionDiff.getInserted().size());
+        assertEquals(1, prescriptionDiff.getUpdated().size());
+        assertEquals(List.of(dropped), prescriptionDiff.getDeleted());
+        Prescription reverted = reload.getActivePrescriberionForPatient(unsaved.getPatientId());
+        assertNotSame(unsaved, reverted);
+        assertEquals(drugCount, reverted.getPrescribedDrugs().size());
+        assertFalse(reload.getCurrentPrescriptions(dropped.getPatientId()).contains(dropped));
+        assertEquals(List.of(new DataEvent.PrescriptionSaved(reverted, List.of()), new DataEvent.PrescriptionDeleted(dropped)), events);
+    }
+
+    @Test
+    @DisplayName("Should skip data files whose time and checksum are unchanged")
+    void testDataFileTracker() throws Exception {
+        Path directory = Files.createTempDirectory("data-files");
+        Path file = directory.resolve("patients.json");
+        DataFileTracker tracker = new DataFileTracker(name -> {
+            try {
+                return directory.resolve(name).toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(e);
+            }
+        });
+        try {
+            Files.writeString(file, "[]");
+            tracker.record("patients.json", tracker.read("patients.json"));
+            assertNull(tracker.readIfChanged("patients.json"));
+
+            // Rewritten with the same content
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+            assertNull(tracker.readIfChanged("patients.json"));
+
+            Files.writeString(file, "[ ]");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            byte[] changed = tracker.readIfChanged("patients.json");
+            assertEquals("[ ]", new String(changed));
+            tracker.record("patients.json", changed);
+            assertNull(tracker.readIfChanged("patients.json"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("Should find overlapping exposure windows like a full scan")
+    void testExposureIntervals() {
+        Patient patient = new Patient("Interval", "Test", LocalDate.of(1980, 1, 1));
+        patient.setPatientId("PAT-INTERVAL");
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Random random = new Random(7);
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Prescription prescription = new Prescription(patient, "Dr. Test");
+            prescription.setCreatedAt(base.plusDays(random.nextInt(300)));
+            prescription.addPrescribedDrug(new PrescribedDrug(dataService.getRuleset().getMedication("MED-001"), "1", "Once daily",
+                random.nextInt(4) == 0 ? "Ongoing" : (1 + random.nextInt(60)) + " days", "", ""));
+            prescriptions.add(prescription);
+        }
+        ExposureHistory history = ExposureHistory.build(prescriptions, medicationId -> 3);
+        assertEquals(14, ExposureHistory.parseDurationDays("2 weeks"));
+        assertEquals(-1, ExposureHistory.parseDurationDays("Ongoing"));
+
+        for (int day = 0; day < 400; day += 7) {
+            LocalDateTime from = base.plusDays(day);
+            LocalDateTime to = from.plusDays(random.nextInt(20));
+            List<String> expected = new ArrayList<>();
+            for (Prescription prescription : prescriptions) {
+                int course = ExposureHistory.parseDurationDays(prescription.getPrescribedDrugs().get(0).getDuration());
+                LocalDateTime end = course >= 0 ? prescription.getCreatedAt().plusDays(course + 3) : null;
+                if (!prescription.getCreatedAt().isAfter(to) && (end == null || end.isAfter(from))) {
+                    expected.add(prescription.getPrescriptionId());
+                }
+            }
+            List<String> found = history.overlapping(from, to).stream().map(ExposureHistory.Exposure::prescriptionId).toList();
+            assertEquals(expected.stream().sorted().toList(), found.stream().sorted().toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve materialized alerts only while their stamps match")
+    void testAlertView() throws Exception {
+        Path file = Files.createTempFile("alert-view", ".json");
+        Files.delete(file);
+        InteractionEngine engine = new InteractionEngine();
+        try {
+            AlertView view = new AlertView(file, ConfigurationManager.getInstance().getObjectMapper());
+            assertEquals(dataService.getAllPrescriptions().size(), view.refreshAsync(dataService, engine).get());
+            assertTrue(Files.exists(file));
+            assertEquals(0, view.refreshAsync(dataService, engine).get());
+
+            // A restart reads the entries back and serves them without checking
+            AlertView reloaded = new AlertView(file, ConfigurationManager.getInstance().getObjectMapper()).load();
+            Ruleset ruleset = dataService.getRuleset();
+            Prescription prescription = dataService.getAllPrescriptions().get(0);
+            Patient patient = dataService.getPatient(prescription.getPatientId());
+            List<AlertMatch> expected = engine.matchAllInteractionsAsync(patient, prescription, ruleset).get();
+            assertEquals(Set.copyOf(expected), Set.copyOf(reloaded.lookup(patient, prescription, ruleset)));
+
+            Ruleset recompiled = Ruleset.compile(ruleset.getRules(), ruleset.getMedications(), ruleset.getOntology(), new RuleStatistics());
+            assertEquals(ruleset.getRulesStamp(), recompiled.getRulesStamp());
+            assertNotNull(reloaded.lookup(patient, prescription, recompiled));
+            Map<String, Object> edited = new LinkedHashMap<>(ruleset.getRules());
+            edited.remove("burdenRules");
+            assertNull(reloaded.lookup(patient, prescription, Ruleset.compile(edited, ruleset.getMedications())));
+
+            Patient changed = new Patient(patient.getFirstName(), patient.getLastName(), patient.getDateOfBirth());
+            changed.setPatientId(patient.getPatientId());
+            changed.addAllergy("Codeine");
+            assertNull(reloaded.lookup(changed, prescription, ruleset));
+        } finally {
+            engine.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Should store prescriptions by medication reference and read the embedded format")
+    void testPrescriptionStore() throws Exception {
+        ObjectMapper mapper = ConfigurationManager.getInstance().getObjectMapper();
+        PrescriptionStore store = new PrescriptionStore(mapper);
+        Ruleset ruleset = dataService.getRuleset();
+        List<Prescription> prescriptions = new ArrayList<>(dataService.getAllPrescriptions());
+
+        // An alert backed by a match is stored as the match and rendered again on load
+        Patient patient = dataService.getAllPatients().get(0);
+        Prescription screened = new Prescription(patient, "Dr. Test");
+        screened.addPrescribedDrug(new PrescribedDrug(ruleset.getMedication(medicationId("Warfarin")), "1", "Once daily", "Ongoing", "", ""));
+        screened.addPrescribedDrug(new PrescribedDrug(ruleset.getMedication(medicationId("Ibuprofen")), "1", "Once daily", "7 days", "", ""));
+        AlertRenderer renderer = new AlertRenderer(ruleset);
+        InteractionEngine engine = new InteractionEngine();
+        try {
+            screened.setAlerts(engine.matchAllInteractionsAsync(patient, screened, ruleset).get().stream()
+                .map(match -> new InteractionAlert(match, renderer)).toList());
+        } finally {
+            engine.shutdown();
+        }
+        assertFalse(screened.getAlerts().isEmpty());
+        screened.getAlerts().get(0).acknowledge();
+        prescriptions.add(screened);
+
+        byte[] legacy = mapper.writeValueAsBytes(prescriptions);
+        byte[] stored = mapper.writeValueAsBytes(store.toStoredForm(prescriptions));
+        assertTrue(stored.length * 2 < legacy.length, stored.length + " vs " + legacy.length);
+
+        for (byte[] file : List.of(legacy, stored)) {
+            List<Prescription> read = store.read(new ByteArrayInputStream(file), ruleset);
+            assertEquals(prescriptions.size(), read.size());
+            for (int i = 0; i < read.size(); i++) {
+                Prescription expected = prescriptions.get(i);
+                Prescription actual = read.get(i);
+                assertEquals(expected.getPrescriptionId(), actual.getPrescriptionId());
+                assertEquals(expected.getPrescribedDrugs(), actual.getPrescribedDrugs());
+                for (PrescribedDrug drug : actual.getPrescribedDrugs()) {
+                    assertSame(ruleset.getMedication(drug.getMedicationId()), drug.getMedication());
+                }
+                assertEquals(expected.getAlerts().size(), actual.getAlerts().size());
+                for (int j = 0; j < actual.getAlerts().size(); j++) {
+                    assertEquals(expected.getAlerts().get(j).getMessage(), actual.getAlerts().get(j).getMessage());
+                    assertEquals(expected.getAlerts().get(j).isAcknowledged(), actual.getAlerts().get(j).isAcknowledged());
+                }
+            }
+        }
+        assertNotNull(store.read(new ByteArrayInputStream(stored), ruleset).get(prescriptions.size() - 1).getAlerts().get(0).getMatch());
+
+        // A drug whose id has left the catalog loads under its saved name
+        Medication warfarin = ruleset.getMedication(medicationId("Warfarin"));
+        Ruleset withoutWarfarin = Ruleset.compile(ruleset.getRules(),
+            ruleset.getMedications().stream().filter(med -> med != warfarin).toList(), ruleset.getOntology(), ruleset.getRuleStatistics());
+        PrescribedDrug orphan = store.read(new ByteArrayInputStream(stored), withoutWarfarin).get(prescriptions.size() - 1)
+            .getPrescribedDrugs().get(0);
+        assertEquals(warfarin.getMedicationId(), orphan.getMedicationId());
+        assertNotNull(orphan.getMedication());
+        assertEquals(warfarin.getGenericName(), orphan.getMedication().getGenericName());
+        assertTrue(orphan.getMedication().getDisplayName().contains("not in catalog"));
+    }
+
+    private String medicationId(String genericName) {
+        return dataService.getAllMedications().stream()
+            .filter(m -> genericName.equals(m.getGenericName()))
+            .findFirst().get().getMedicationId();
+    }
+}
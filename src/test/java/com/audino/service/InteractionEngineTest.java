@@ -5,7 +5,14 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -82,6 +89,508 @@ public class InteractionEngineTest {
         assertTrue(alerts.stream().anyMatch(a -> a.getAlertType() == AlertType.DRUG_DRUG));
     }
     
+    @Test
+    @DisplayName("Should assign the same alert ids on every recheck")
+    void testDeterministicAlertIds() throws ExecutionException, InterruptedException {
+        Prescription prescription = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+
+        List<InteractionAlert> first = engine.checkAllInteractionsAsync(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications).get();
+        List<InteractionAlert> second = engine.checkAllInteractionsAsync(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications).get();
+
+        assertEquals(first.stream().map(InteractionAlert::getAlertId).sorted().toList(),
+                     second.stream().map(InteractionAlert::getAlertId).sorted().toList());
+
+        InteractionAlert drugDrug = first.stream().filter(a -> a.getAlertType() == AlertType.DRUG_DRUG).findFirst().get();
+        assertTrue(drugDrug.getMessage().contains(warfarinMed.getDisplayName()));
+        assertNotNull(drugDrug.getRecommendation());
+    }
+
+    @Test
+    @DisplayName("Should report alerts bucketed by level, most severe first")
+    void testInteractionReport() throws ExecutionException, InterruptedException {
+        Prescription prescription = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+
+        InteractionReport report = engine.checkInteractionsAsync(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications).get();
+
+        int total = 0;
+        for (AlertLevel level : AlertLevel.values()) {
+            total += report.getCount(level);
+        }
+        assertEquals(report.getTotalCount(), total);
+        assertTrue(report.getCount(AlertLevel.CRITICAL) > 0);
+        assertEquals(AlertLevel.CRITICAL, report.getAlerts().get(0).getAlertLevel());
+        assertEquals(9, report.getStrategyTimings().size());
+    }
+
+    @Test
+    @DisplayName("Should short-circuit on the first critical alert")
+    void testFirstCritical() throws ExecutionException, InterruptedException {
+        Prescription prescription = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+
+        Optional<InteractionAlert> critical = engine.firstCriticalAsync(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications).get();
+
+        assertTrue(critical.isPresent());
+        assertEquals(AlertLevel.CRITICAL, critical.get().getAlertLevel());
+
+        Patient safePatient = dataService.searchPatients("Patel").get(0);
+        Medication safeMed = allMedications.stream().filter(m -> "Lisinopril".equals(m.getGenericName())).findFirst().get();
+        Prescription safePrescription = new Prescription(safePatient, "Dr. Test");
+        safePrescription.addPrescribedDrug(new PrescribedDrug(safeMed, "1", "daily", "30d", "", ""));
+
+        assertFalse(engine.anyCriticalAsync(safePatient, safePrescription, dataService.getInteractionRules(), allMedications).get());
+    }
+
+    @Test
+    @DisplayName("Should return partial results when the budget runs out")
+    void testDeadlineBoundedCheck() throws InterruptedException {
+        InteractionCheckStrategy slowStrategy = new InteractionCheckStrategy() {
+            @Override
+            public void match(Patient patient, Prescription prescription, Ruleset ruleset, MatchSink sink) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Slow Check";
+            }
+        };
+        InteractionEngine budgetEngine = new InteractionEngine(List.of(new DrugDrugCheckStrategy(), slowStrategy));
+        try {
+            Prescription prescription = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+            prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+            prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+
+            InteractionReport partial = budgetEngine.check(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications, Duration.ofMillis(100));
+            assertFalse(partial.isComplete());
+            assertEquals(Set.of("Slow Check"), partial.getIncompleteChecks());
+            assertTrue(partial.getCount(AlertType.DRUG_DRUG) > 0);
+
+            Thread.sleep(500);
+            InteractionReport cached = budgetEngine.check(patientWithAllergyAndCondition, prescription, dataService.getInteractionRules(), allMedications, Duration.ofMillis(100));
+            assertTrue(cached.isComplete());
+        } finally {
+            budgetEngine.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fire expression rules for older patients")
+    void testExpressionRules() throws ExecutionException, InterruptedException {
+        Patient elderlyPatient = dataService.searchPatients("Patel").get(0);
+        Medication diazepam = allMedications.stream().filter(m -> "Diazepam".equals(m.getGenericName())).findFirst().get();
+        Medication ibuprofen = allMedications.stream().filter(m -> "Ibuprofen".equals(m.getGenericName())).findFirst().get();
+
+        Prescription prescription = new Prescription(elderlyPatient, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(diazepam, "1", "daily", "7d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(ibuprofen, "1", "daily", "7d", "", ""));
+
+        List<InteractionAlert> alerts = engine.checkAllInteractionsAsync(elderlyPatient, prescription, dataService.getInteractionRules(), allMedications).get();
+        List<String> ruleMessages = alerts.stream().map(InteractionAlert::getMessage).toList();
+
+        assertTrue(alerts.stream().anyMatch(a -> "Potentially Inappropriate in Older Adults".equals(a.getTitle())
+            && a.getInvolvedMedications().contains(diazepam.getDisplayName())), "Expected a Beers criteria alert: " + ruleMessages);
+        assertTrue(alerts.stream().anyMatch(a -> a.getAlertType() == AlertType.DRUG_CONDITION
+            && a.getInvolvedMedications().contains(ibuprofen.getDisplayName())), "Expected an NSAID heart failure alert: " + ruleMessages);
+    }
+
+    @Test
+    @DisplayName("Should count rule evaluations and hits")
+    void testRuleStatisticsRecorded() throws ExecutionException, InterruptedException {
+        Ruleset ruleset = Ruleset.compile(dataService.getInteractionRules(), allMedications);
+        Prescription prescription = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+
+        engine.checkInteractionsAsync(patientWithAllergyAndCondition, prescription, ruleset).get();
+
+        RuleStatistics.RuleStats warfarinNsaid = ruleset.getRuleStatistics().snapshot().stream()
+            .filter(stats -> stats.rule().equals("drugDrugInteractions/warfarinNsaid"))
+            .findFirst().get();
+        assertEquals(1, warfarinNsaid.evaluations());
+        assertEquals(1, warfarinNsaid.hits());
+        assertTrue(ruleset.getRuleStatistics().neverFired().contains("drugDrugInteractions/ssriMaoi"));
+    }
+
+    @Test
+    @DisplayName("Should move frequently matching rules forward within a severity")
+    void testAdaptiveRuleOrder() {
+        record TestRule(String id, AlertLevel level) {}
+        TestRule rare = new TestRule("rare", AlertLevel.WARNING);
+        TestRule frequent = new TestRule("frequent", AlertLevel.WARNING);
+        TestRule critical = new TestRule("critical", AlertLevel.CRITICAL);
+        RuleStatistics statistics = new RuleStatistics();
+        AdaptiveRuleOrder<TestRule> order = new AdaptiveRuleOrder<>(
+            List.of(rare, frequent, critical), TestRule::level, TestRule::id, "test", statistics);
+        assertEquals(List.of(critical, rare, frequent), order.rules());
+
+        for (int i = 0; i < AdaptiveRuleOrder.MIN_SAMPLES; i++) {
+            order.counter(rare).record(System.nanoTime() - 1_000, false);
+            order.counter(frequent).record(System.nanoTime() - 1_000, true);
+        }
+        for (int i = 0; i < AdaptiveRuleOrder.REORDER_INTERVAL; i++) {
+            order.rules();
+        }
+
+        assertEquals(List.of(critical, frequent, rare), order.rules());
+        assertEquals(List.of("test/rare"), statistics.neverFired());
+    }
+
+    @Test
+    @DisplayName("Should screen the catalog against the patient and regimen")
+    void testCatalogScreen() {
+        Ruleset ruleset = dataService.getRuleset();
+        Patient patel = dataService.searchPatients("Patel").get(0);
+        Prescription prescription = new Prescription(patel, "Dr. Test");
+
+        CatalogScreen before = engine.screenCatalog(patel, prescription, ruleset, null);
+        assertNull(before.getLevel(nsaidMed));
+
+        prescription.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+        CatalogScreen incremental = engine.screenCatalog(patel, prescription, ruleset, before);
+        CatalogScreen full = engine.screenCatalog(patel, prescription, ruleset, null);
+
+        assertEquals(AlertLevel.CRITICAL, incremental.getLevel(nsaidMed));
+        assertNull(incremental.getLevel(penicillinMed));
+        for (Medication med : allMedications) {
+            assertEquals(full.getLevel(med), incremental.getLevel(med), med.getGenericName());
+        }
+        assertEquals(AlertLevel.CRITICAL, engine.screenCatalog(patientWithAllergyAndCondition, null, ruleset, null).getLevel(penicillinMed));
+    }
+
+    @Test
+    @DisplayName("Should rank candidate regimens and agree with full checks")
+    void testCompareRegimens() throws ExecutionException, InterruptedException {
+        Ruleset ruleset = dataService.getRuleset();
+        Medication acetaminophen = allMedications.stream().filter(m -> "Acetaminophen".equals(m.getGenericName())).findFirst().get();
+        Prescription base = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+        base.addPrescribedDrug(new PrescribedDrug(warfarinMed, "1", "daily", "30d", "", ""));
+        base.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+
+        List<Substitution> candidates = List.of(
+            Substitution.replace(warfarinMed.getMedicationId(), penicillinMed),
+            Substitution.replace(nsaidMed.getMedicationId(), acetaminophen),
+            Substitution.add(penicillinMed));
+        RegimenComparison comparison = engine.compareRegimensAsync(patientWithAllergyAndCondition, base, candidates, ruleset).get();
+
+        assertEquals(candidates.get(1), comparison.getBest().getSubstitution());
+        assertTrue(comparison.getBaseline().getCount(AlertLevel.CRITICAL) > comparison.getBest().getCount(AlertLevel.CRITICAL));
+
+        for (RegimenOutcome outcome : comparison.getRankedCandidates()) {
+            Prescription materialized = new Prescription(patientWithAllergyAndCondition, "Dr. Test");
+            outcome.getMedicationIds().forEach(id -> materialized.addPrescribedDrug(
+                new PrescribedDrug(ruleset.getMedication(id), "1", "daily", "5d", "", "")));
+            InteractionReport full = engine.checkInteractionsAsync(patientWithAllergyAndCondition, materialized, ruleset).get();
+            assertEquals(full.getAlerts().stream().map(InteractionAlert::getAlertId).sorted().toList(),
+                outcome.getReport().getAlerts().stream().map(InteractionAlert::getAlertId).sorted().toList(),
+                outcome.getSubstitution().getDescription());
+        }
+    }
+
+    @Test
+    @DisplayName("Should fire multi-drug rules only when every class is covered")
+    void testMultiDrugRule() throws ExecutionException, InterruptedException {
+        Patient patel = dataService.searchPatients("Patel").get(0);
+        Medication lisinopril = allMedications.stream().filter(m -> "Lisinopril".equals(m.getGenericName())).findFirst().get();
+        Medication furosemide = allMedications.stream().filter(m -> "Furosemide".equals(m.getGenericName())).findFirst().get();
+
+        Prescription prescription = new Prescription(patel, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(lisinopril, "1", "daily", "30d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(nsaidMed, "1", "bid", "5d", "", ""));
+        InteractionReport pair = engine.checkInteractionsAsync(patel, prescription, dataService.getRuleset()).get();
+        assertTrue(pair.getAlerts().stream().noneMatch(a -> a.getMatch() != null && "tripleWhammy".equals(a.getMatch().ruleId())));
+
+        prescription.addPrescribedDrug(new PrescribedDrug(furosemide, "1", "daily", "30d", "", ""));
+        InteractionReport triple = engine.checkInteractionsAsync(patel, prescription, dataService.getRuleset()).get();
+        InteractionAlert whammy = triple.getAlerts().stream()
+            .filter(a -> a.getMatch() != null && "tripleWhammy".equals(a.getMatch().ruleId()))
+            .findFirst().orElseThrow();
+        assertEquals(AlertLevel.CRITICAL, whammy.getAlertLevel());
+        assertEquals(3, whammy.getMatch().medicationIds().size());
+        assertTrue(whammy.getMessage().contains(furosemide.getDisplayName()));
+    }
+
+    @Test
+    @DisplayName("Should score burden rules across the whole regimen")
+    void testBurdenRule() throws ExecutionException, InterruptedException {
+        Patient patel = dataService.searchPatients("Patel").get(0);
+        Prescription prescription = new Prescription(patel, "Dr. Test");
+        for (String name : List.of("Azithromycin", "Citalopram")) {
+            Medication med = allMedications.stream().filter(m -> name.equals(m.getGenericName())).findFirst().get();
+            prescription.addPrescribedDrug(new PrescribedDrug(med, "1", "daily", "5d", "", ""));
+        }
+        InteractionAlert warning = burdenAlert(engine.checkInteractionsAsync(patel, prescription, dataService.getRuleset()).get());
+        assertEquals(AlertLevel.WARNING, warning.getAlertLevel());
+        assertEquals("2", warning.getMatch().patientFactor());
+
+        Medication ondansetron = allMedications.stream().filter(m -> "Ondansetron".equals(m.getGenericName())).findFirst().get();
+        prescription.addPrescribedDrug(new PrescribedDrug(ondansetron, "1", "daily", "5d", "", ""));
+        InteractionAlert critical = burdenAlert(engine.checkInteractionsAsync(patel, prescription, dataService.getRuleset()).get());
+        assertEquals(AlertLevel.CRITICAL, critical.getAlertLevel());
+        assertEquals(3, critical.getMatch().medicationIds().size());
+        assertTrue(critical.getMessage().contains(ondansetron.getDisplayName()));
+    }
+
+    private static InteractionAlert burdenAlert(InteractionReport report) {
+        return report.getAlerts(AlertType.CUMULATIVE_BURDEN).stream()
+            .filter(a -> "qtProlongationBurden".equals(a.getMatch().ruleId()))
+            .findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Should detect the same active ingredient in two products")
+    void testDuplicateTherapy() throws ExecutionException, InterruptedException {
+        Ruleset ruleset = dataService.getRuleset();
+        Patient patel = dataService.searchPatients("Patel").get(0);
+        Medication fluticasone = ruleset.getMedication("MED-015");
+        Medication salmeterol = ruleset.getMedication("MED-046");
+        Medication combination = ruleset.getMedication("MED-047");
+        assertEquals(ruleset.getIngredientIndex().bit("Salmeterol"), ruleset.getIngredientIndex().bit("Salmeterol Xinafoate"));
+
+        Prescription prescription = new Prescription(patel, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(fluticasone, "1ml", "bid", "30d", "", ""));
+        prescription.addPrescribedDrug(new PrescribedDrug(salmeterol, "1ml", "bid", "30d", "", ""));
+        assertEquals(0, engine.checkInteractionsAsync(patel, prescription, ruleset).get().getCount(AlertType.DUPLICATE_THERAPY));
+        assertEquals(AlertLevel.WARNING, engine.screenCatalog(patel, prescription, ruleset, null).getLevel(combination));
+
+        prescription.addPrescribedDrug(new PrescribedDrug(combination, "1ml", "bid", "30d", "", ""));
+        List<InteractionAlert> duplicates = engine.checkInteractionsAsync(patel, prescription, ruleset).get()
+            .getAlerts(AlertType.DUPLICATE_THERAPY);
+        assertEquals(2, duplicates.size());
+        for (InteractionAlert alert : duplicates) {
+            assertEquals(2, alert.getMatch().medicationIds().size());
+            assertTrue(alert.getMatch().medicationIds().contains(combination.getMedicationId()));
+            assertTrue(alert.getMessage().contains(combination.getDisplayName()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should flag daily doses above the medication's maximum")
+    void testMaxDailyDose() throws ExecutionException, InterruptedException {
+        Ruleset ruleset = dataService.getRuleset();
+        Patient patel = dataService.searchPatients("Patel").get(0);
+        Medication acetaminophen = ruleset.getMedication("MED-020");
+
+        Prescription prescription = new Prescription(patel, "Dr. Test");
+        PrescribedDrug drug = new PrescribedDrug(acetaminophen, "2", "Every 6 hours as needed", "5d", "", "");
+        prescription.addPrescribedDrug(drug);
+        assertEquals(0, engine.checkInteractionsAsync(patel, prescription, ruleset).get().getCount(AlertType.DOSE_LIMIT));
+
+        drug.setDosage("3");
+        List<InteractionAlert> alerts = engine.checkInteractionsAsync(patel, prescription, ruleset).get()
+            .getAlerts(AlertType.DOSE_LIMIT);
+        assertEquals(1, alerts.size());
+        assertEquals(AlertLevel.WARNING, alerts.get(0).getAlertLevel());
+        assertEquals("6000mg", alerts.get(0).getMatch().patientFactor());
+        assertTrue(alerts.get(0).getMessage().contains("4000mg"));
+
+        drug.setFrequency("Every 4 hours");
+        assertEquals(AlertLevel.CRITICAL, engine.checkInteractionsAsync(patel, prescription, ruleset).get()
+            .getAlerts(AlertType.DOSE_LIMIT).get(0).getAlertLevel());
+        // Twice the maximum reaches the critical-only check used to gate saving
+        assertTrue(engine.anyCriticalAsync(patel, prescription, ruleset).get());
+        assertEquals(AlertType.DOSE_LIMIT, engine.firstCriticalAsync(patel, prescription, ruleset).get().orElseThrow().getAlertType());
+
+        // A dose that cannot be worked out is reported rather than skipped
+        drug.setFrequency("As directed");
+        alerts = engine.checkInteractionsAsync(patel, prescription, ruleset).get().getAlerts(AlertType.DOSE_LIMIT);
+        assertEquals(1, alerts.size());
+        assertEquals(AlertLevel.INFO, alerts.get(0).getAlertLevel());
+        assertTrue(alerts.get(0).getMessage().contains("As directed"));
+    }
+
+    @Test
+    @DisplayName("Should match parent-class rules through the map-based API and two-argument compile")
+    void testMapApiUsesBundledOntology() throws ExecutionException, InterruptedException {
+        Patient patient = new Patient("Ontology", "Test", LocalDate.of(1970, 1, 1));
+        patient.setPatientId("PAT-ONTOLOGY");
+        patient.setAllergies(List.of("Sulfa"));
+        Prescription prescription = new Prescription(patient, "Dr. Test");
+        for (String id : List.of("MED-024", "MED-025", "MED-012", "MED-052", "MED-001", "MED-036", "MED-060", "MED-021", "MED-010")) {
+            prescription.addPrescribedDrug(new PrescribedDrug(dataService.getRuleset().getMedication(id), "1", "Once daily", "5 days", "", ""));
+        }
+        List<String> expected = List.of("aceiPotassiumSparingDiuretic", "opioidBenzo", "ssriMaoi", "sulfaAllergy", "warfarinNsaid");
+
+        InteractionEngine mapEngine = new InteractionEngine();
+        try {
+            List<String> viaMaps = mapEngine.checkInteractionsAsync(patient, prescription, dataService.getInteractionRules(), allMedications)
+                .get().getAlerts().stream().map(alert -> alert.getMatch().ruleId()).toList();
+            Ruleset compiled = Ruleset.compile(dataService.getInteractionRules(), allMedications);
+            List<String> viaCompile = mapEngine.matchAllInteractionsAsync(patient, prescription, compiled)
+                .get().stream().map(AlertMatch::ruleId).toList();
+            for (String ruleId : expected) {
+                assertTrue(viaMaps.contains(ruleId), ruleId + " via map API");
+                assertTrue(viaCompile.contains(ruleId), ruleId + " via compile");
+            }
+        } finally {
+            mapEngine.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should check against drugs still within their washout")
+    void testRecentExposure() throws ExecutionException, InterruptedException {
+        Ruleset ruleset = dataService.getRuleset();
+        Patient patient = new Patient("Washout", "Test", LocalDate.of(1970, 1, 1));
+        patient.setPatientId("PAT-WASHOUT");
+        Prescription earlier = new Prescription(patient, "Dr. Test");
+        earlier.setCreatedAt(LocalDateTime.now().minusDays(60));
+        earlier.addPrescribedDrug(new PrescribedDrug(ruleset.getMedication("MED-052"), "1", "Once daily", "Ongoing", "", ""));
+        earlier.setSupersededAt(LocalDateTime.now().minusDays(5));
+        earlier.setStatus(PrescriptionStatus.SUPERSEDED);
+        patient.setExposureHistory(ExposureHistory.build(List.of(earlier),
+            id -> ruleset.getMedication(id).getWashoutDays() != null ? ruleset.getMedication(id).getWashoutDays() : 0));
+
+        Prescription prescription = new Prescription(patient, "Dr. Test");
+        prescription.addPrescribedDrug(new PrescribedDrug(ruleset.getMedication("MED-012"), "1", "Once daily", "Ongoing", "", ""));
+        List<InteractionAlert> alerts = engine.checkInteractionsAsync(patient, prescription, ruleset).get().getAlerts(AlertType.DRUG_DRUG);
+        assertEquals(1, alerts.size());
+        assertEquals("ssriMaoi", alerts.get(0).getMatch().ruleId());
+        assertEquals(AlertLevel.CRITICAL, alerts.get(0).getAlertLevel());
+        assertTrue(alerts.get(0).getMessage().contains("earlier prescription"));
+
+        // A what-if regimen adding the SSRI is flagged the same way
+        RegimenComparison comparison = engine.compareRegimensAsync(patient, new Prescription(patient, "Dr. Test"),
+            List.of(Substitution.add(ruleset.getMedication("MED-012"))), ruleset).get();
+        List<InteractionAlert> whatIf = comparison.getRankedCandidates().get(0).getReport().getAlerts(AlertType.DRUG_DRUG);
+        assertEquals(List.of("ssriMaoi"), whatIf.stream().map(alert -> alert.getMatch().ruleId()).toList());
+
+        earlier.setSupersededAt(LocalDateTime.now().minusDays(15));
+        patient.setExposureHistory(ExposureHistory.build(List.of(earlier), id -> 14));
+        assertEquals(0, engine.checkInteractionsAsync(patient, prescription, ruleset).get().getCount(AlertType.DRUG_DRUG));
+    }
+
+    @Test
+    @DisplayName("Should keep drugs removed from a prescription edited in place within their washout")
+    void testRecentExposureAfterEditInPlace() throws ExecutionException, InterruptedException {
+        DataService editData = new DataService();
+        editData.loadAllData();
+        Ruleset ruleset = editData.getRuleset();
+        Patient patel = editData.searchPatients("Patel").get(0);
+        Prescription active = editData.getActivePrescriberionForPatient(patel.getPatientId());
+        LocalDateTime before = LocalDateTime.now();
+
+        // Add an MAOI to the saved prescription, then stop it
+        PrescribedDrug phenelzine = new PrescribedDrug(ruleset.getMedication("MED-052"), "1", "Once daily", "Ongoing", "", "");
+        active.addPrescribedDrug(phenelzine);
+        editData.recordPrescription(active);
+        assertFalse(phenelzine.getStartedAt().isBefore(before));
+        active.removePrescribedDrug(phenelzine);
+        List<Prescription> superseded = editData.recordPrescription(active);
+
+        assertEquals(1, superseded.size());
+        assertEquals(PrescriptionStatus.SUPERSEDED, superseded.get(0).getStatus());
+        assertTrue(superseded.get(0).getPrescribedDrugs().stream().anyMatch(drug -> drug.getMedicationId().equals("MED-052")));
+        assertSame(active, editData.getActivePrescriberionForPatient(patel.getPatientId()));
+        ExposureHistory.Exposure window = patel.getExposureHistory().activeAt(LocalDateTime.now().plusDays(1)).stream()
+            .filter(exposure -> exposure.medicationId().equals("MED-052")).findFirst().orElseThrow();
+        assertFalse(window.start().isBefore(before));
+
+        // Adding an SSRI in the same prescription is flagged against the stopped MAOI
+        active.addPrescribedDrug(new PrescribedDrug(ruleset.getMedication("MED-012"), "1", "Once daily", "Ongoing", "", ""));
+        List<InteractionAlert> alerts = engine.checkInteractionsAsync(patel, active, ruleset).get().getAlerts(AlertType.DRUG_DRUG);
+        assertTrue(alerts.stream().anyMatch(alert -> alert.getMatch().ruleId().equals("ssriMaoi")
+            && alert.getMessage().contains("earlier prescription")));
+    }
+
+    @Test
+    @DisplayName("Should re-screen only the prescriptions a rule change affects")
+    @SuppressWarnings("unchecked")
+    void testRuleImpact() throws ExecutionException, InterruptedException {
+        InMemoryRepository repository = impactRepository();
+        DataService impactData = new DataService(repository);
+        impactData.loadAllData();
+        Ruleset before = impactData.getRuleset();
+        Prescription warfarinRx = impactData.getAllPrescriptions().stream()
+            .filter(rx -> rx.getPrescribedDrugs().stream().anyMatch(drug -> drug.getMedicationId().equals("MED-021")))
+            .findFirst().get();
+        Patient patient = impactData.getPatient(warfarinRx.getPatientId());
+        List<AlertMatch> current = engine.matchAllInteractionsAsync(patient, warfarinRx, before).get();
+        warfarinRx.setAlerts(current.stream().map(match -> new InteractionAlert(match, new AlertRenderer(before))).toList());
+        assertTrue(current.stream().anyMatch(match -> match.ruleId().equals("warfarinNsaid")));
+
+        Map<String, Object> rules = new LinkedHashMap<>(before.getRules());
+        Map<String, Object> drugDrug = new LinkedHashMap<>((Map<String, Object>) rules.get("drugDrugInteractions"));
+        drugDrug.remove("warfarinNsaid");
+        rules.put("drugDrugInteractions", drugDrug);
+        Ruleset after = Ruleset.compile(rules, before.getMedications(), before.getOntology(), before.getRuleStatistics());
+
+        RulesetDiff diff = RulesetDiff.between(before, after);
+        assertEquals(Set.of("drugDrugInteractions.warfarinNsaid"), diff.getChangedRules());
+        assertEquals(Set.of("WARFARIN", "NSAID"), diff.getClasses());
+        assertFalse(diff.isGlobal());
+
+        RuleImpact impact = new RuleImpactAnalyzer(impactData, engine).analyze(before, after).get();
+        assertTrue(impact.getScreenedCount() < impactData.getAllPrescriptions().size());
+        assertEquals(1, impact.getLost(warfarinRx.getPrescriptionId()).size());
+        assertTrue(impact.getGained(warfarinRx.getPrescriptionId()).isEmpty());
+        assertTrue(warfarinRx.getAlerts().stream().noneMatch(alert -> alert.getMatch() != null
+            && alert.getMatch().ruleId().equals("warfarinNsaid")));
+        assertEquals(current.size() - 1, warfarinRx.getAlerts().size());
+        Prescription saved = repository.loadPrescriptions(after).stream()
+            .filter(rx -> rx.getPrescriptionId().equals(warfarinRx.getPrescriptionId())).findFirst().orElseThrow();
+        assertEquals(current.size() - 1, saved.getAlerts().size());
+    }
+
+    @Test
+    @DisplayName("Should re-screen cross-reactive classes and re-render kept alerts after an allergy rule edit")
+    @SuppressWarnings("unchecked")
+    void testRuleImpactCrossReactive() throws ExecutionException, InterruptedException {
+        InMemoryRepository repository = impactRepository();
+        DataService impactData = new DataService(repository);
+        impactData.loadAllData();
+        Ruleset before = impactData.getRuleset();
+        Patient patel = impactData.searchPatients("Patel").get(0);
+        patel.setAllergies(List.of("Sulfa"));
+        before.normalize(patel);
+        Prescription furosemideRx = new Prescription(patel, "Dr. Test");
+        furosemideRx.addPrescribedDrug(new PrescribedDrug(before.getMedication("MED-010"), "1", "Once daily", "Ongoing", "", ""));
+        impactData.recordPrescription(furosemideRx);
+        List<AlertMatch> current = engine.matchAllInteractionsAsync(patel, furosemideRx, before).get();
+        furosemideRx.setAlerts(current.stream().map(match -> new InteractionAlert(match, new AlertRenderer(before))).toList());
+        InteractionAlert sulfa = furosemideRx.getAlerts().stream()
+            .filter(alert -> alert.getMatch().ruleId().equals("sulfaAllergy")).findFirst().orElseThrow();
+        sulfa.acknowledge();
+
+        Map<String, Object> rules = new LinkedHashMap<>(before.getRules());
+        Map<String, Object> allergy = new LinkedHashMap<>((Map<String, Object>) rules.get("drugAllergyInteractions"));
+        Map<String, Object> sulfaRule = new LinkedHashMap<>((Map<String, Object>) allergy.get("sulfaAllergy"));
+        sulfaRule.put("recommendation", "Edited recommendation.");
+        allergy.put("sulfaAllergy", sulfaRule);
+        rules.put("drugAllergyInteractions", allergy);
+        Ruleset after = Ruleset.compile(rules, before.getMedications(), before.getOntology(), before.getRuleStatistics());
+
+        RulesetDiff diff = RulesetDiff.between(before, after);
+        assertTrue(diff.getClasses().containsAll(Set.of("ANTIBIOTIC_SULFA", "SULFONAMIDE_NONANTIBIOTIC")));
+        assertTrue(impactData.getImpactedPrescriptions(diff, before, after).contains(furosemideRx));
+
+        new RuleImpactAnalyzer(impactData, engine).analyze(before, after).get();
+        InteractionAlert kept = furosemideRx.getAlerts().stream()
+            .filter(alert -> alert.getMatch().ruleId().equals("sulfaAllergy")).findFirst().orElseThrow();
+        assertEquals(sulfa.getAlertId(), kept.getAlertId());
+        assertTrue(kept.isAcknowledged());
+        assertEquals("Edited recommendation.", kept.getRecommendation());
+        Prescription saved = repository.loadPrescriptions(after).stream()
+            .filter(rx -> rx.getPrescriptionId().equals(furosemideRx.getPrescriptionId())).findFirst().orElseThrow();
+        assertTrue(saved.getAlerts().stream().anyMatch(alert -> alert.getAlertId().equals(sulfa.getAlertId()) && alert.isAcknowledged()));
+    }
+
+    /** A repository seeded with the bundled data, so re-screened alerts are saved without touching the files. */
+    private static InMemoryRepository impactRepository() {
+        InMemoryRepository repository = new InMemoryRepository(com.audino.util.ConfigurationManager.getInstance().getObjectMapper());
+        repository.replaceAll(dataService.getAllPatients(), dataService.getAllPrescriptions());
+        return repository;
+    }
+
     @Test
     @DisplayName("Should produce no alerts for safe prescription")
     void testSafePrescription() throws ExecutionException, InterruptedException {
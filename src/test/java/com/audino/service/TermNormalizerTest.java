@@ -0,0 +1,89 @@
+package com.audino.service;
+
+import com.audino.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Term Normalizer Tests")
+public class TermNormalizerTest {
+
+    private TermNormalizer normalizer;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        normalizer = new TermNormalizer(List.of("penicillin", "sulfa"), List.of("kidney", "ckd", "diabetes"));
+        patient = new Patient("John", "Doe", LocalDate.of(1970, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Should map free-text terms onto vocabulary codes")
+    void testNormalizeMapsTerms() {
+        patient.setAllergies(List.of("Penicillin"));
+        patient.setChronicConditions(List.of("Chronic Kidney Disease (CKD)"));
+
+        TermNormalizer.Result result = normalizer.normalize(patient);
+
+        assertTrue(patient.isNormalized());
+        assertFalse(result.hasUnmappedTerms());
+        assertEquals(List.of("penicillin"), patient.getAllergyCodes().get("Penicillin"));
+        assertEquals(List.of("kidney", "ckd"), patient.getConditionCodes().get("Chronic Kidney Disease (CKD)"));
+    }
+
+    @Test
+    @DisplayName("Should report terms that do not map onto any code")
+    void testUnmappedTermsReported() {
+        patient.setAllergies(List.of("Latex", "Sulfa drugs"));
+        patient.setChronicConditions(List.of("Migraine"));
+
+        TermNormalizer.Result result = normalizer.normalize(patient);
+
+        assertTrue(result.hasUnmappedTerms());
+        assertEquals(List.of("Latex"), result.getUnmappedAllergies());
+        assertEquals(List.of("Migraine"), result.getUnmappedConditions());
+    }
+
+    @Test
+    @DisplayName("Should map misspelt terms within a small edit distance")
+    void testFuzzyMatching() {
+        patient.setAllergies(List.of("Penicilin", "Sulpha drugs", "Latex"));
+        patient.setChronicConditions(List.of("Diabetis", "CAD"));
+
+        TermNormalizer.Result result = normalizer.normalize(patient);
+
+        assertEquals(List.of("penicillin"), patient.getAllergyCodes().get("Penicilin"));
+        assertEquals(List.of("sulfa"), patient.getAllergyCodes().get("Sulpha drugs"));
+        assertEquals(List.of("diabetes"), patient.getConditionCodes().get("Diabetis"));
+        // Abbreviations are too short to tolerate an edit
+        assertEquals(List.of("CAD"), result.getUnmappedConditions());
+        assertEquals(List.of("Penicilin", "Sulpha drugs"), result.getFuzzyAllergies());
+        assertEquals(List.of("Latex"), result.getUnmappedAllergies());
+    }
+
+    @Test
+    @DisplayName("Should map a misspelt word next to an exact keyword in the same term")
+    void testFuzzyMatchingBesideExactMatch() {
+        TermNormalizer withAspirin = new TermNormalizer(List.of("penicillin", "sulfa", "aspirin"), List.of());
+        patient.setAllergies(List.of("Aspirin, penicilin"));
+
+        TermNormalizer.Result result = withAspirin.normalize(patient);
+
+        assertEquals(List.of("aspirin", "penicillin"), patient.getAllergyCodes().get("Aspirin, penicilin"));
+        assertEquals(List.of("Aspirin, penicilin"), result.getFuzzyAllergies());
+        assertTrue(result.getUnmappedAllergies().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should invalidate codes when raw terms change")
+    void testEditingTermsInvalidatesCodes() {
+        normalizer.normalize(patient);
+        assertTrue(patient.isNormalized());
+
+        patient.addAllergy("Sulfa");
+        assertFalse(patient.isNormalized());
+    }
+}
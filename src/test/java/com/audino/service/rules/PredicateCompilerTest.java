@@ -0,0 +1,105 @@
+package com.audino.service.rules;
+
+import com.audino.model.Medication;
+import com.audino.model.TabletMedication;
+import com.audino.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Predicate Compiler Tests")
+public class PredicateCompilerTest {
+
+    private PredicateCompiler compiler;
+    private Patient elderlyPatient;
+    private List<Medication> regimen;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new PredicateCompiler();
+        elderlyPatient = new Patient("Jane", "Doe", LocalDate.now().minusYears(70));
+        elderlyPatient.setChronicConditions(List.of("Congestive Heart Failure"));
+        elderlyPatient.setConditionCodes(Map.of("Congestive Heart Failure", List.of("heart failure")));
+
+        regimen = List.of(
+            medication("MED-1", "Diazepam", "BENZODIAZEPINE_LONG_ACTING"),
+            medication("MED-2", "Ibuprofen", "NSAID"));
+    }
+
+    private static Medication medication(String id, String name, String identifier) {
+        Medication med = new TabletMedication(id, name, name, "10mg");
+        med.setInteractionIdentifiers(List.of(identifier));
+        return med;
+    }
+
+    private RuleContext context(Patient patient) {
+        return new RuleContext(patient, regimen, compiler.getMemoSlots());
+    }
+
+    @Test
+    @DisplayName("Should evaluate class membership per medication")
+    void testMedicationClass() {
+        Predicate<RuleContext> rule = compiler.compile(Map.of("and", List.of(
+            Map.of("medicationClass", "benzodiazepine_long_acting"),
+            Map.of("age", Map.of(">=", 65)))));
+        RuleContext ctx = context(elderlyPatient);
+
+        ctx.setCurrent(0);
+        assertTrue(rule.test(ctx));
+        ctx.setCurrent(1);
+        assertFalse(rule.test(ctx));
+    }
+
+    @Test
+    @DisplayName("Should support or, not, conditions and regimen classes")
+    void testComposedOperators() {
+        Predicate<RuleContext> rule = compiler.compile(Map.of("and", List.of(
+            Map.of("medicationClass", List.of("NSAID", "NSAID_COX2")),
+            Map.of("or", List.of(Map.of("condition", "heart failure"), Map.of("condition", "ckd"))),
+            Map.of("not", Map.of("regimenClass", "PPI")),
+            Map.of("regimenSize", Map.of(">", 1, "<=", 5)))));
+        RuleContext ctx = context(elderlyPatient);
+
+        ctx.setCurrent(1);
+        assertTrue(rule.test(ctx));
+        assertEquals(0, compiler.getAllergyKeywords().size());
+        assertTrue(compiler.getConditionKeywords().containsAll(List.of("heart failure", "ckd")));
+    }
+
+    @Test
+    @DisplayName("Should evaluate patient-only sub-expressions once per context")
+    void testInvariantSubexpressionsMemoized() {
+        Predicate<RuleContext> first = compiler.compile(Map.of("and", List.of(
+            Map.of("medicationClass", "NSAID"), Map.of("age", Map.of(">=", 65)))));
+        Predicate<RuleContext> second = compiler.compile(Map.of("and", List.of(
+            Map.of("medicationClass", "BENZODIAZEPINE_LONG_ACTING"), Map.of("age", Map.of(">=", 65)))));
+        assertEquals(1, compiler.getMemoSlots(), "Identical sub-expressions should share one memo slot");
+
+        RuleContext ctx = context(elderlyPatient);
+        ctx.setCurrent(0);
+        assertFalse(first.test(ctx));
+        assertTrue(second.test(ctx));
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Predicate<RuleContext> counting = c -> evaluations.incrementAndGet() > 0;
+        ctx.setCurrent(1);
+        assertTrue(ctx.memoized(0, counting));
+        assertEquals(0, evaluations.get(), "The slot was already filled by the first evaluation");
+    }
+
+    @Test
+    @DisplayName("Should reject malformed expressions")
+    void testMalformedExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("xor", List.of())));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("and", List.of())));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("age", Map.of("~", 3))));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("age", Map.of(">", "old"))));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(null));
+    }
+}